@@ -0,0 +1,73 @@
+package com.checkmarx.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks MaskingPatternLayout.doLayout on lines with and without
+ * anything to mask, using the mask patterns from logback-spring.xml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaskingPatternLayoutBenchmark {
+    private static final String[] MASK_PATTERNS = {
+            "[^&]password=(.+?)\\s",
+            "&password=(.+?)&",
+            "token=(.+?)[&\\s]",
+            "\"access_token\":\"([^\"]+)\"",
+            "Authorization: Bearer (.+)"
+    };
+
+    private MaskingPatternLayout layout;
+    private LoggingEvent unmaskedEvent;
+    private LoggingEvent maskedEvent;
+
+    @Setup
+    public void setUp() {
+        LoggerContext context = new LoggerContext();
+        layout = new MaskingPatternLayout();
+        layout.setContext(context);
+        layout.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p [%15.15t] %-40.40logger{39} : %m%n");
+        for (String maskPattern : MASK_PATTERNS) {
+            layout.addMaskPattern(maskPattern);
+        }
+        layout.start();
+
+        Logger logger = context.getLogger("org.springframework.web.client.RestTemplate");
+        unmaskedEvent = new LoggingEvent(Logger.class.getName(), logger, Level.DEBUG,
+                "HTTP GET https://cx.local/cxrestapi/projects?projectName=netgoat&teamId=22 returned 200 OK "
+                        + "with content type application/json;charset=UTF-8", null, null);
+        maskedEvent = new LoggingEvent(Logger.class.getName(), logger, Level.DEBUG,
+                "Writing [{username=[admin], password=[secret], grant_type=[password], "
+                        + "scope=[sast_rest_api access_control_api]}] body=grant_type=password&password=secret&"
+                        + "client_id=resource_owner_client token=abc123 ", null, null);
+    }
+
+    @Benchmark
+    public String unmaskedLine() {
+        return layout.doLayout(unmaskedEvent);
+    }
+
+    @Benchmark
+    public String maskedLine() {
+        return layout.doLayout(maskedEvent);
+    }
+}
@@ -0,0 +1,112 @@
+package com.checkmarx.util.cache;
+
+import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.util.cmd.CmdUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks team path resolution (TeamIndex.getTeamId and
+ * CmdUtil.addTeamPathSeparatorPrefix) over synthetic team hierarchies
+ * and the cost of indexing them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TeamIndexBenchmark {
+    private static final int FAN_OUT = 20;
+
+    @Param({"10000", "100000"})
+    private int teamCount;
+
+    private CxProperties cxProperties;
+    private SyntheticMetadataCache metadataCache;
+    private TeamIndex teamIndex;
+    private String[] teamPaths;
+    private String[] unprefixedTeamPaths;
+
+    /**
+     * A metadata cache which returns a synthetic team hierarchy without
+     * contacting a server.
+     */
+    static class SyntheticMetadataCache extends MetadataCache {
+        private final Entry<List<Team>> teams = new Entry<>();
+
+        SyntheticMetadataCache(CxProperties cxProperties, List<Team> teams) {
+            super(null, cxProperties, new CacheProperties());
+            this.teams.fetchedAt = System.currentTimeMillis();
+            this.teams.value = teams;
+        }
+
+        @Override
+        public Entry<List<Team>> getTeams(boolean refresh) {
+            return teams;
+        }
+
+        @Override
+        public synchronized void invalidateTeams() {
+        }
+    }
+
+    @Setup
+    public void setUp() throws CheckmarxException {
+        cxProperties = new CxProperties();
+        String separator = cxProperties.getTeamPathSeparator();
+
+        // A tree in which each team has FAN_OUT children, breadth first
+        List<MetadataCache.Team> teams = new ArrayList<>(teamCount);
+        teams.add(new MetadataCache.Team("1", separator + "CxServer"));
+        for (int i = 1; i < teamCount; i++) {
+            String parent = teams.get((i - 1) / FAN_OUT).fullName;
+            teams.add(new MetadataCache.Team(String.valueOf(i + 1), parent + separator + "Team-" + i));
+        }
+        metadataCache = new SyntheticMetadataCache(cxProperties, teams);
+        teamIndex = new TeamIndex(metadataCache, cxProperties);
+
+        teamPaths = new String[1024];
+        unprefixedTeamPaths = new String[teamPaths.length];
+        for (int i = 0; i < teamPaths.length; i++) {
+            teamPaths[i] = teams.get(ThreadLocalRandom.current().nextInt(teamCount)).fullName.toUpperCase();
+            unprefixedTeamPaths[i] = teamPaths[i].substring(separator.length());
+        }
+        teamIndex.getTeamId(teamPaths[0]);
+    }
+
+    @Benchmark
+    public String getTeamId() throws CheckmarxException {
+        return teamIndex.getTeamId(teamPaths[ThreadLocalRandom.current().nextInt(teamPaths.length)]);
+    }
+
+    @Benchmark
+    public String addPrefixAndGetTeamId() throws CheckmarxException {
+        String teamPath = unprefixedTeamPaths[ThreadLocalRandom.current().nextInt(unprefixedTeamPaths.length)];
+        return teamIndex.getTeamId(CmdUtil.addTeamPathSeparatorPrefix(cxProperties, teamPath));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public String buildIndex() throws CheckmarxException {
+        TeamIndex index = new TeamIndex(metadataCache, cxProperties);
+        return index.getTeamId(teamPaths[0]);
+    }
+}
@@ -0,0 +1,78 @@
+package com.checkmarx.util.cmd;
+
+import com.checkmarx.sdk.dto.cx.CxProject;
+import com.checkmarx.util.cache.MetadataCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the custom field matching done by set-custom-fields: building
+ * the catalogue of custom fields and resolving a row's field names to
+ * identifiers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomFieldCatalogueBenchmark {
+
+    @Param({"20", "500"})
+    private int customFieldCount;
+
+    private List<MetadataCache.CustomField> customFields;
+    private CustomFieldCatalogue catalogue;
+    private Map<String, String> row;
+
+    @Setup
+    public void setUp() {
+        customFields = new ArrayList<>(customFieldCount);
+        for (int i = 0; i < customFieldCount; i++) {
+            customFields.add(new MetadataCache.CustomField(i + 1, "Custom-Field-" + i));
+        }
+        catalogue = new CustomFieldCatalogue(customFields);
+
+        // A row setting ten fields (one of which is not defined) in a different case
+        row = new LinkedHashMap<>();
+        for (int i = 0; i < 9; i++) {
+            row.put("custom-field-" + (i * customFieldCount / 9), "value-" + i);
+        }
+        row.put("Undefined-Field", "value");
+    }
+
+    @Benchmark
+    public CustomFieldCatalogue buildCatalogue() {
+        return new CustomFieldCatalogue(customFields);
+    }
+
+    @Benchmark
+    public List<CxProject.CustomField> matchRow() {
+        List<CxProject.CustomField> matched = new ArrayList<>(row.size());
+        for (Map.Entry<String, String> field : row.entrySet()) {
+            Integer id = catalogue.getId(field.getKey());
+            if (id != null) {
+                CxProject.CustomField cf = new CxProject.CustomField();
+                cf.id = id;
+                cf.value = field.getValue();
+                matched.add(cf);
+            }
+        }
+        return matched;
+    }
+}
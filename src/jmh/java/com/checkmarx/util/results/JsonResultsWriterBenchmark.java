@@ -0,0 +1,124 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.checkmarx.util.cmd.ResultsCommand.OutputFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the serialisation of large synthetic scan results by each
+ * of the results writers, and by a plain ObjectMapper for comparison.
+ * The output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JsonResultsWriterBenchmark {
+    private static final String[] SEVERITIES = {"High", "Medium", "Low", "Info"};
+
+    @Param({"1000", "100000"})
+    private int findingCount;
+
+    private ScanResults scanResults;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * A writer which discards its output
+     */
+    static class NullWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        List<ScanResults.XIssue> xIssues = new ArrayList<>(findingCount);
+        for (int i = 0; i < findingCount; i++) {
+            ScanResults.XIssue xIssue = new ScanResults.XIssue();
+            xIssue.setVulnerability("Query_" + (i % 150));
+            xIssue.setSeverity(SEVERITIES[i % SEVERITIES.length]);
+            xIssue.setCwe(String.valueOf(i % 900));
+            xIssue.setLanguage("Java");
+            xIssue.setFilename("src/main/java/com/example/module" + (i % 40) + "/Class" + (i % 997) + ".java");
+            xIssue.setSimilarityId(String.valueOf(-1_000_000_000 + i * 7919));
+            xIssue.setVulnerabilityStatus("TO VERIFY");
+            xIssue.setDescription("Method handle at line " + i + " gets user input for the request element.");
+            xIssue.setLink("https://cx.local/CxWebClient/ViewerMain.aspx?scanid=1000001&projectid=1&pathid=" + i);
+            Map<Integer, ScanResults.IssueDetails> details = new HashMap<>();
+            details.put(10 + i % 500, new ScanResults.IssueDetails());
+            details.put(20 + i % 500, new ScanResults.IssueDetails());
+            xIssue.setDetails(details);
+            xIssues.add(xIssue);
+        }
+        scanResults = new ScanResults();
+        scanResults.setProjectId("1");
+        scanResults.setProject("netgoat");
+        scanResults.setTeam("/CxServer/SP/Company/Users");
+        scanResults.setXIssues(xIssues);
+    }
+
+    private void write(OutputFormat format) throws IOException {
+        try (ResultsWriter writer = format.newWriter(new NullWriter())) {
+            writer.write(scanResults);
+        }
+    }
+
+    @Benchmark
+    public void objectMapper() throws IOException {
+        mapper.writeValue(new NullWriter(), scanResults);
+    }
+
+    @Benchmark
+    public void jsonResultsWriter() throws IOException {
+        write(OutputFormat.JSON);
+    }
+
+    @Benchmark
+    public void ndjsonResultsWriter() throws IOException {
+        write(OutputFormat.NDJSON);
+    }
+
+    @Benchmark
+    public void csvResultsWriter() throws IOException {
+        write(OutputFormat.CSV);
+    }
+
+    @Benchmark
+    public void sarifResultsWriter() throws IOException {
+        write(OutputFormat.SARIF);
+    }
+}
@@ -0,0 +1,213 @@
+package com.checkmarx.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An appender which hands events to its attached appenders on a
+ * background thread, so that the masking done by their layouts and
+ * their I/O (including the compression of rolled over log files) do not
+ * hold up the threads which log.
+ * <p>
+ * Logging threads add events to a bounded lock-free ring buffer. When the
+ * buffer is full, the overflow policy decides what happens: BLOCK waits
+ * for room and DROP discards the event (events at WARN level or above are
+ * never dropped) and reports the number discarded. When the appender is
+ * stopped (by the logging shutdown hook, for example), the buffered
+ * events are written before the attached appenders are stopped.
+ * <p>
+ * Caller data is not captured, so the attached layouts should not use
+ * the caller data conversion words (%C, %M, %L, %F).
+ */
+public class AsyncMaskingAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+    private static final int DEFAULT_QUEUE_SIZE = 8192;
+    private static final int DEFAULT_MAX_FLUSH_TIME = 5000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * What to do with an event when the ring buffer is full
+     */
+    public enum OverflowPolicy {
+        /** Wait for room in the buffer */
+        BLOCK,
+        /** Discard the event (unless its level is WARN or above) */
+        DROP
+    }
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int maxFlushTime = DEFAULT_MAX_FLUSH_TIME;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private RingBuffer<ILoggingEvent> buffer;
+    private Thread worker;
+    private volatile boolean workerIdle = false;
+    private volatile boolean stopping = false;
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setMaxFlushTime(int maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    public int getMaxFlushTime() {
+        return maxFlushTime;
+    }
+
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy.name();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (queueSize < 1) {
+            addError(String.format("Invalid queue size %d", queueSize));
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addWarn("No appenders attached to [" + name + "]");
+        }
+        buffer = new RingBuffer<>(queueSize);
+        stopping = false;
+        worker = new Thread(this::drain, "AsyncMaskingAppender-" + getName());
+        worker.setDaemon(true);
+        super.start();
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        stopping = true;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushTime);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            addWarn(String.format("Events may have been lost: [%s] did not finish writing within %d ms",
+                    name, maxFlushTime));
+        }
+        reportDropped();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // Resolve everything which depends on the calling thread (the
+        // formatted message, the thread name and the MDC) now
+        event.prepareForDeferredProcessing();
+        while (!buffer.offer(event)) {
+            if (overflowPolicy == OverflowPolicy.DROP && !event.getLevel().isGreaterOrEqual(Level.WARN)) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (!isStarted()) {
+                return;
+            }
+            LockSupport.unpark(worker);
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+        if (workerIdle) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * The worker: write events to the attached appenders until stopped and
+     * the buffer is empty, then stop the attached appenders.
+     */
+    private void drain() {
+        try {
+            while (true) {
+                ILoggingEvent event = buffer.poll();
+                if (event != null) {
+                    appenders.appendLoopOnAppenders(event);
+                    continue;
+                }
+                if (stopping) {
+                    break;
+                }
+                workerIdle = true;
+                // Check again in case an event was added before the flag was seen
+                if (buffer.isEmpty() && !stopping) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                workerIdle = false;
+                reportDropped();
+            }
+        } finally {
+            appenders.detachAndStopAllAppenders();
+        }
+    }
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            addWarn(String.format("[%s] dropped %d events because the queue was full", name, count));
+        }
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        addInfo("Attaching appender named [" + newAppender.getName() + "] to " + getName());
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
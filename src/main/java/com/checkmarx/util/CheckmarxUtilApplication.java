@@ -12,6 +12,12 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class CheckmarxUtilApplication {
 
     public static void main(String[] args) {
+        // Print usage messages and reject invalid command lines without starting Spring
+        Integer exitCode = CommandLineCheck.check(args);
+        if (exitCode != null) {
+            System.exit(exitCode);
+        }
+
         SpringApplication app = new SpringApplication(CheckmarxUtilApplication.class);
         app.setWebApplicationType(WebApplicationType.NONE);
         System.exit(SpringApplication.exit(app.run(args)));
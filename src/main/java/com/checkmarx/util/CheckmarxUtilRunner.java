@@ -1,57 +1,151 @@
 package com.checkmarx.util;
 
+import com.checkmarx.util.cache.CacheProperties;
+import com.checkmarx.util.cache.MetadataCache;
+import com.checkmarx.util.cmd.InventoryCommand;
+import com.checkmarx.util.cmd.NdjsonWriter;
 import com.checkmarx.util.cmd.ProjectCommand;
+import com.checkmarx.util.cmd.ResultsCacheCommand;
 import com.checkmarx.util.cmd.ResultsCommand;
 import com.checkmarx.util.cmd.RoleCommand;
 import com.checkmarx.util.cmd.TeamCommand;
+import com.checkmarx.util.metrics.SdkMetrics;
+import com.checkmarx.util.throttle.SdkThrottle;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.slf4j.Logger;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.ExitCodeGenerator;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.ArgSpec;
 import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParseResult;
+import picocli.CommandLine.ScopeType;
 import picocli.CommandLine.Spec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.checkmarx.util.cmd.CmdUtil.STANDARD_INPUT;
+import static com.checkmarx.util.cmd.CmdUtil.openInput;
 
 @Component
 @Command(name = "java -jar <util jar>")
 public class CheckmarxUtilRunner implements Callable<Integer>, CommandLineRunner, ExitCodeGenerator {
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(CheckmarxUtilRunner.class);
+    private static final String SERVE_COMMAND = "serve";
+    private static final String SESSION_COMMAND = "session";
+    private static final long METRICS_FILE_INTERVAL_SECONDS = 15;
     private final ProjectCommand projectCommand;
     private final ResultsCommand resultsCommand;
+    private final ResultsCacheCommand resultsCacheCommand;
     private final RoleCommand roleCommand;
     private final TeamCommand teamCommand;
+    private final InventoryCommand inventoryCommand;
+    private final MetadataCache metadataCache;
+    private final CacheProperties cacheProperties;
+    private final SdkMetrics sdkMetrics;
+    private final SdkThrottle sdkThrottle;
     private int exitCode = 0;
+    private volatile GlobalOptions applied = new GlobalOptions();
 
     @Spec
     private CommandSpec spec;
 
-    public CheckmarxUtilRunner(ProjectCommand projectCommand, ResultsCommand resultsCommand, RoleCommand roleCommand,
-                               TeamCommand teamCommand) {
+    public CheckmarxUtilRunner(ProjectCommand projectCommand, ResultsCommand resultsCommand,
+                               ResultsCacheCommand resultsCacheCommand, RoleCommand roleCommand,
+                               TeamCommand teamCommand, InventoryCommand inventoryCommand,
+                               MetadataCache metadataCache, CacheProperties cacheProperties,
+                               SdkMetrics sdkMetrics, SdkThrottle sdkThrottle) {
         this.projectCommand = projectCommand;
         this.resultsCommand = resultsCommand;
+        this.resultsCacheCommand = resultsCacheCommand;
         this.roleCommand = roleCommand;
         this.teamCommand = teamCommand;
+        this.inventoryCommand = inventoryCommand;
+        this.metadataCache = metadataCache;
+        this.cacheProperties = cacheProperties;
+        this.sdkMetrics = sdkMetrics;
+        this.sdkThrottle = sdkThrottle;
     }
 
     @Override
     public void run(String[] args) {
         log.debug("run: starting");
 
-        // Strip out arguments used to configure the SDK
-        args = Arrays.stream(args)
+        exitCode = newCommandLine(new GlobalOptions(), null).execute(stripConfigurationArguments(args));
+    }
+
+    /**
+     * Strip out arguments used to configure Spring, the SDK and the utility.
+     *
+     * @param args the command line arguments
+     * @return the command line arguments for picocli
+     */
+    static String[] stripConfigurationArguments(String[] args) {
+        return Arrays.stream(args)
                 .filter(s -> !s.startsWith("--checkmarx."))
-		.filter(s -> !s.startsWith("--logging."))
+                .filter(s -> !s.startsWith("--logging."))
+                .filter(s -> !s.startsWith("--cx-util."))
+                .filter(s -> !s.startsWith("--spring."))
                 .toArray(String[]::new);
+    }
 
-        exitCode = new CommandLine(this)
-                .addSubcommand(projectCommand)
-                .addSubcommand(resultsCommand)
-                .addSubcommand(roleCommand)
-                .addSubcommand(teamCommand)
-                .execute(args);
+    /**
+     * The options common to all commands, parsed afresh for each command
+     * line. The cache mode and the rate cap apply to the whole process, so
+     * a command run by the server or in a session starts with the values
+     * of the command running it.
+     */
+    static class GlobalOptions {
+        @Option(names = "--no-cache", scope = ScopeType.INHERIT,
+                description = "Do not use or update the metadata cache")
+        boolean noCache;
+
+        @Option(names = "--refresh-cache", scope = ScopeType.INHERIT,
+                description = "Retrieve cached metadata from the server again")
+        boolean refreshCache;
+
+        @Option(names = "--metrics", scope = ScopeType.INHERIT,
+                description = "Write a summary of the calls to the Checkmarx SDK to standard error when the command completes")
+        boolean metrics;
+
+        @Option(names = "--metrics-file", paramLabel = "<file>", scope = ScopeType.INHERIT,
+                description = "Write metrics for the calls to the Checkmarx SDK, in Prometheus text format, to a file (updated while the command runs)")
+        String metricsFile;
+
+        @Option(names = "--max-rps", paramLabel = "<rate>", scope = ScopeType.INHERIT,
+                description = "The maximum number of calls per second to the Checkmarx SDK (0 for no limit)")
+        Double maxRps;
+
+        /**
+         * @return the options with which a nested command line starts
+         */
+        GlobalOptions inherit() {
+            GlobalOptions options = new GlobalOptions();
+            options.noCache = noCache;
+            options.refreshCache = refreshCache;
+            options.maxRps = maxRps;
+            return options;
+        }
+
+        MetadataCache.Mode getCacheMode() {
+            if (noCache) {
+                return MetadataCache.Mode.DISABLED;
+            }
+            return refreshCache ? MetadataCache.Mode.REFRESH : MetadataCache.Mode.DEFAULT;
+        }
     }
 
     @Override
@@ -67,7 +161,297 @@ public class CheckmarxUtilRunner implements Callable<Integer>, CommandLineRunner
      */
     @Override
     public Integer call() {
-        CommandLine.usage(spec, System.err);
+        spec.commandLine().usage(spec.commandLine().getErr());
         return CommandLine.ExitCode.USAGE;
     }
+
+    /**
+     * Run commands received on a loopback HTTP endpoint until the process
+     * is terminated. The Spring context and the authenticated SDK client
+     * are shared by all the commands. Commands which would read standard
+     * input (an argument of "-") are rejected.
+     *
+     * @param port       the port on which to listen
+     * @param secretFile the file to which the secret required by run requests is written
+     * @return CommandLine.ExitCode.OK once the server has stopped
+     * @throws IOException          if the server cannot be started
+     * @throws InterruptedException if interrupted while waiting for the server to stop
+     */
+    @Command(name = SERVE_COMMAND, description = "Run commands received on a loopback HTTP endpoint")
+    private int serve(
+            @Option(names = {"-p", "--port"}, defaultValue = "8765",
+                    description = "The port on which to listen (default: ${DEFAULT-VALUE})") int port,
+            @Option(names = {"--secret-file"}, paramLabel = "<file>",
+                    description = "The file to which the secret required by run requests is written (default: serve-<port>.secret in the cache directory)") String secretFile
+    ) throws IOException, InterruptedException {
+        log.info("Calling serve command");
+        Host host = new Host("by the server", false);
+        CommandServer server = new CommandServer(port, sdkMetrics::toPrometheusText,
+                (args, out, err) -> execute(args, out, err, host));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "command-server-shutdown"));
+        server.start(secretFile != null ? Paths.get(secretFile)
+                : cacheProperties.getDirectoryPath().resolve("serve-" + server.getPort() + ".secret"));
+        server.awaitStop();
+        return CommandLine.ExitCode.OK;
+    }
+
+    /**
+     * Run the command lines read from standard input (or a file), one per
+     * line, in the current application context so that the Spring context,
+     * the authenticated SDK client and the metadata caches are shared by
+     * all the commands. A line of JSON recording each command's exit code
+     * and output is written to standard output once it has run. Blank
+     * lines and lines starting with # are ignored. Commands which would
+     * read standard input are rejected if the command lines are read
+     * from it.
+     *
+     * @param input    the pathname of the file of command lines ("-" for standard input)
+     * @param failFast stop at the first command which fails
+     * @return CommandLine.ExitCode.OK if every command succeeded, otherwise CommandLine.ExitCode.SOFTWARE
+     * @throws IOException if the command lines cannot be read or the records cannot be written
+     */
+    @Command(name = SESSION_COMMAND, description = "Run command lines read from standard input, one per line")
+    private int session(
+            @Option(names = {"-i", "--input"}, defaultValue = "-",
+                    description = "Read the command lines from a file instead of standard input") String input,
+            @Option(names = {"--fail-fast"}, description = "Stop at the first command which fails") boolean failFast
+    ) throws IOException {
+        log.info("Calling session command");
+        NdjsonWriter records = new NdjsonWriter(spec.commandLine().getOut());
+        Host host = new Host("in a session", !STANDARD_INPUT.equals(input));
+        int commandCount = 0;
+        int failureCount = 0;
+        try (BufferedReader reader = openInput(input)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String commandLine = line.trim();
+                if (commandLine.isEmpty() || commandLine.startsWith("#")) {
+                    continue;
+                }
+                commandCount++;
+                SessionRecord record = runSessionCommand(host, lineNumber, commandLine);
+                records.write(record);
+                if (record.exitCode != CommandLine.ExitCode.OK) {
+                    failureCount++;
+                    if (failFast) {
+                        break;
+                    }
+                }
+            }
+        }
+        log.info("session: ran {} commands ({} failed)", commandCount, failureCount);
+        return failureCount == 0 ? CommandLine.ExitCode.OK : CommandLine.ExitCode.SOFTWARE;
+    }
+
+    private SessionRecord runSessionCommand(Host host, int lineNumber, String commandLine) {
+        SessionRecord record = new SessionRecord();
+        record.line = lineNumber;
+        record.command = commandLine;
+        long start = System.nanoTime();
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        try (PrintWriter outWriter = new PrintWriter(out); PrintWriter errWriter = new PrintWriter(err)) {
+            String[] args = CommandLineTokenizer.tokenize(commandLine);
+            record.exitCode = execute(args, outWriter, errWriter, host);
+        } catch (IllegalArgumentException iae) {
+            err.write(String.format("Invalid command line: %s%n", iae.getMessage()));
+            record.exitCode = CommandLine.ExitCode.USAGE;
+        } catch (RuntimeException re) {
+            log.error("Error running command: {}", re.getMessage(), re);
+            err.write(String.valueOf(re.getMessage()));
+            record.exitCode = CommandLine.ExitCode.SOFTWARE;
+        }
+        record.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        record.out = out.toString();
+        record.err = err.toString();
+        return record;
+    }
+
+    /**
+     * The outcome of a command run in a session
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    static class SessionRecord {
+        public int line;
+        public String command;
+        @JsonInclude(JsonInclude.Include.ALWAYS)
+        public int exitCode;
+        public long elapsedMillis;
+        public String out;
+        public String err;
+    }
+
+    /**
+     * The server or session running nested command lines
+     */
+    static class Host {
+        final String description;
+        final boolean standardInputAvailable;
+
+        /**
+         * @param description            how the commands are run, for the error messages (for example, "in a session")
+         * @param standardInputAvailable whether the commands may read standard input
+         */
+        Host(String description, boolean standardInputAvailable) {
+            this.description = description;
+            this.standardInputAvailable = standardInputAvailable;
+        }
+    }
+
+    /**
+     * Run a command line on behalf of the server or a session, writing the
+     * command's output to the supplied writers. Commands are run one at a
+     * time as the command objects are shared. The serve and session
+     * commands cannot be run this way, nor can commands which read
+     * standard input unless the host leaves it available.
+     *
+     * @param args the command line arguments
+     * @param out  the writer for standard output
+     * @param err  the writer for standard error
+     * @param host the server or session running the command
+     * @return the exit code
+     */
+    synchronized int execute(String[] args, PrintWriter out, PrintWriter err, Host host) {
+        log.debug("execute: args: {}", (Object) args);
+        return newCommandLine(applied.inherit(), host)
+                .setOut(out)
+                .setErr(err)
+                .execute(stripConfigurationArguments(args));
+    }
+
+    /**
+     * @param options the object into which the common options are parsed
+     * @param host    the host of a nested command line, or null for the command line of the process
+     */
+    private CommandLine newCommandLine(GlobalOptions options, Host host) {
+        return newCommandLine(this, options, projectCommand, resultsCommand, resultsCacheCommand, roleCommand,
+                teamCommand, inventoryCommand)
+                .setExecutionStrategy(parseResult -> executeParsed(parseResult, options, host));
+    }
+
+    /**
+     * Assemble the command hierarchy. This is also used, with command
+     * objects which have no dependencies, to check the command line
+     * before the Spring context is created.
+     */
+    static CommandLine newCommandLine(CheckmarxUtilRunner runner, GlobalOptions options,
+                                      ProjectCommand projectCommand, ResultsCommand resultsCommand,
+                                      ResultsCacheCommand resultsCacheCommand, RoleCommand roleCommand,
+                                      TeamCommand teamCommand, InventoryCommand inventoryCommand) {
+        return new CommandLine(runner)
+                .addMixin("globalOptions", options)
+                .addSubcommand(projectCommand)
+                .addSubcommand(new CommandLine(resultsCommand).addSubcommand(resultsCacheCommand))
+                .addSubcommand(roleCommand)
+                .addSubcommand(teamCommand)
+                .addSubcommand(inventoryCommand);
+    }
+
+    /**
+     * Apply the options common to all commands and run the selected
+     * command. The options of the command running a nested command line
+     * are applied again once it completes.
+     */
+    private int executeParsed(ParseResult parseResult, GlobalOptions options, Host host) {
+        if (host != null) {
+            String error = checkNested(parseResult, host);
+            if (error != null) {
+                parseResult.commandSpec().commandLine().getErr().println(error);
+                return CommandLine.ExitCode.USAGE;
+            }
+        }
+
+        GlobalOptions outer = applied;
+        apply(options);
+        try {
+            return executeMeasured(parseResult, options);
+        } finally {
+            metadataCache.flush();
+            apply(outer);
+        }
+    }
+
+    /**
+     * Check that a nested command line may be run by its host.
+     *
+     * @return why the command line cannot be run, or null if it can
+     */
+    private static String checkNested(ParseResult parseResult, Host host) {
+        for (ParseResult command = parseResult; command != null;
+             command = command.hasSubcommand() ? command.subcommand() : null) {
+            String name = command.commandSpec().name();
+            if (command != parseResult && (SERVE_COMMAND.equals(name) || SESSION_COMMAND.equals(name))) {
+                return String.format("The %s command cannot be run %s", name, host.description);
+            }
+            if (!host.standardInputAvailable) {
+                for (ArgSpec arg : command.matchedArgs()) {
+                    if (arg.originalStringValues().contains(STANDARD_INPUT)) {
+                        return String.format("Commands run %s cannot read standard input (\"%s\")",
+                                host.description, STANDARD_INPUT);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Apply the cache mode and the rate cap. The cache mode is only set
+     * when it changes, so that a nested command does not restart a refresh.
+     */
+    private void apply(GlobalOptions options) {
+        MetadataCache.Mode mode = options.getCacheMode();
+        if (metadataCache.getMode() != mode) {
+            metadataCache.setMode(mode);
+        }
+        sdkThrottle.setMaxRps(options.maxRps);
+        applied = options;
+    }
+
+    /**
+     * Run the selected command, recording the metrics if requested.
+     */
+    private int executeMeasured(ParseResult parseResult, GlobalOptions options) {
+        if (!options.metrics && options.metricsFile == null) {
+            return new CommandLine.RunLast().execute(parseResult);
+        }
+
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        long start = System.nanoTime();
+        String file = options.metricsFile;
+        ScheduledExecutorService metricsWriter = null;
+        if (file != null) {
+            metricsWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            metricsWriter.scheduleWithFixedDelay(() -> writeMetricsFile(file),
+                    METRICS_FILE_INTERVAL_SECONDS, METRICS_FILE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        try {
+            return new CommandLine.RunLast().execute(parseResult);
+        } finally {
+            if (metricsWriter != null) {
+                metricsWriter.shutdownNow();
+                writeMetricsFile(file);
+            }
+            if (options.metrics) {
+                PrintWriter err = parseResult.commandSpec().commandLine().getErr();
+                err.printf("Startup: %d ms, command: %d ms%n", uptime,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                sdkMetrics.writeSummary(err);
+            }
+        }
+    }
+
+    private void writeMetricsFile(String file) {
+        try {
+            sdkMetrics.writePrometheusText(Paths.get(file));
+        } catch (IOException | RuntimeException e) {
+            log.warn("{}: error writing metrics: {}", file, e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package com.checkmarx.util;
+
+import com.checkmarx.util.cmd.InventoryCommand;
+import com.checkmarx.util.cmd.ProjectCommand;
+import com.checkmarx.util.cmd.ResultsCacheCommand;
+import com.checkmarx.util.cmd.ResultsCommand;
+import com.checkmarx.util.cmd.RoleCommand;
+import com.checkmarx.util.cmd.TeamCommand;
+import picocli.CommandLine;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.ParseResult;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Checks the command line before the Spring context (and with it the SDK)
+ * is created, so that usage messages and command line errors do not wait
+ * for the application to start.
+ * <p>
+ * The command objects are created with null dependencies, which is
+ * enough for picocli to parse the command line but not to run a command.
+ */
+public class CommandLineCheck {
+
+    private CommandLineCheck() {
+    }
+
+    /**
+     * Check the command line.
+     *
+     * @param args the command line arguments
+     * @return the exit code if the command line has been handled (the usage
+     * has been printed or it is invalid), or null if the command should be run
+     */
+    public static Integer check(String[] args) {
+        String[] commandArgs = CheckmarxUtilRunner.stripConfigurationArguments(args);
+        CommandLine commandLine;
+        try {
+            commandLine = CheckmarxUtilRunner.newCommandLine(create(CheckmarxUtilRunner.class),
+                    new CheckmarxUtilRunner.GlobalOptions(), create(ProjectCommand.class), create(ResultsCommand.class),
+                    create(ResultsCacheCommand.class), create(RoleCommand.class), create(TeamCommand.class),
+                    create(InventoryCommand.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Leave the checking to the command line runner
+            return null;
+        }
+
+        ParseResult parseResult;
+        try {
+            parseResult = commandLine.parseArgs(commandArgs);
+        } catch (ParameterException pe) {
+            try {
+                return commandLine.getParameterExceptionHandler().handleParseException(pe, commandArgs);
+            } catch (Exception e) {
+                return null;
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+
+        // A command implemented by a class (rather than a method) only
+        // prints its usage, so there is no need to start the application
+        while (parseResult.hasSubcommand()) {
+            parseResult = parseResult.subcommand();
+        }
+        if (!(parseResult.commandSpec().userObject() instanceof Method)) {
+            CommandLine selected = parseResult.commandSpec().commandLine();
+            selected.usage(selected.getErr());
+            return CommandLine.ExitCode.USAGE;
+        }
+        return null;
+    }
+
+    /**
+     * Create an instance of a command class, passing null (or zero) for
+     * each argument of its constructor.
+     */
+    static <T> T create(Class<T> cls)
+            throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        @SuppressWarnings("unchecked")
+        Constructor<T> constructor = (Constructor<T>) cls.getConstructors()[0];
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        Object[] arguments = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == boolean.class) {
+                arguments[i] = false;
+            } else if (parameterTypes[i].isPrimitive()) {
+                arguments[i] = 0;
+            }
+        }
+        return constructor.newInstance(arguments);
+    }
+}
@@ -0,0 +1,60 @@
+package com.checkmarx.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a command line into arguments.
+ * <p>
+ * Arguments are separated by whitespace and may be quoted with single or
+ * double quotes. Backslashes have no special meaning so that Checkmarx 8.x
+ * team paths (e.g. CxServer\SP\Team) can be written as they are.
+ */
+public class CommandLineTokenizer {
+
+    private CommandLineTokenizer() {
+    }
+
+    /**
+     * Split a command line into arguments.
+     *
+     * @param line the command line
+     * @return the arguments
+     * @throws IllegalArgumentException if a quoted argument is not terminated
+     */
+    public static String[] tokenize(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    arg.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(arg.toString());
+                    arg.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException(String.format("Unterminated %c quoted argument", quote));
+        }
+        if (inArg) {
+            args.add(arg.toString());
+        }
+        return args.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,256 @@
+package com.checkmarx.util;
+
+import com.checkmarx.util.cache.CacheFiles;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import picocli.CommandLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A loopback HTTP server which runs command lines in the current
+ * application context so that the Spring context and the authenticated
+ * SDK client are reused across commands.
+ * <p>
+ * The following endpoints are provided:
+ * <ul>
+ *     <li>{@code POST /run}: run the command line in the request body
+ *     (a JSON array of arguments or a JSON string holding a single line).
+ *     The response is a JSON object with the exit code and the text
+ *     written to standard output and standard error; the exit code is
+ *     also returned in the {@code X-Exit-Code} header.</li>
+ *     <li>{@code GET /health}: returns 200 if the server is running.</li>
+ *     <li>{@code GET /metrics}: the metrics for the calls to the Checkmarx
+ *     SDK, in the Prometheus text exposition format.</li>
+ * </ul>
+ * Commands are run one at a time, but health and metrics requests are
+ * answered while a command runs.
+ * <p>
+ * Commands run with the server's Checkmarx credentials, so a run request
+ * must present the secret generated when the server starts (and written
+ * to a file which only the owner can read) as a bearer token, must have
+ * a JSON content type and must not have an Origin header. Together these
+ * stop other local users and web pages (which cannot send such a request
+ * across origins without a preflight) from running commands.
+ */
+public class CommandServer {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(CommandServer.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String EXIT_CODE_HEADER = "X-Exit-Code";
+    private static final int MAX_REQUEST_BYTES = 1024 * 1024;
+    private static final int REQUEST_THREADS = 4;
+    private static final int SECRET_BYTES = 32;
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    /**
+     * Runs a command line, writing its output to the supplied writers.
+     */
+    @FunctionalInterface
+    public interface CommandExecutor {
+        int execute(String[] args, PrintWriter out, PrintWriter err);
+    }
+
+    private final CommandExecutor executor;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Object runLock = new Object();
+    private final String secret;
+    private Path secretFile;
+
+    /**
+     * Create a server bound to the loopback interface.
+     *
+     * @param port     the port (0 for an ephemeral port)
+     * @param metrics  supplies the metrics in the Prometheus text format
+     * @param executor the command executor
+     * @throws IOException if the server cannot be bound to the port
+     */
+    public CommandServer(int port, Supplier<String> metrics, CommandExecutor executor) throws IOException {
+        this.executor = executor;
+        byte[] secretBytes = new byte[SECRET_BYTES];
+        new SecureRandom().nextBytes(secretBytes);
+        this.secret = Base64.getUrlEncoder().withoutPadding().encodeToString(secretBytes);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/run", this::handleRun);
+        this.server.createContext("/health", exchange -> respond(exchange, 200, "OK\n", "text/plain"));
+        this.server.createContext("/metrics",
+                exchange -> respond(exchange, 200, metrics.get(), "text/plain; version=0.0.4"));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.requestExecutor = Executors.newFixedThreadPool(REQUEST_THREADS, r -> {
+            Thread thread = new Thread(r, "command-server-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(requestExecutor);
+    }
+
+    /**
+     * Write the secret which run requests must present to a file, which
+     * only the owner can read, and start the server.
+     *
+     * @param secretFile the file to which the secret is written (deleted when the server stops)
+     * @throws IOException if the file cannot be written
+     */
+    public void start(Path secretFile) throws IOException {
+        CacheFiles.writeAtomically(secretFile, secret.getBytes(StandardCharsets.UTF_8));
+        this.secretFile = secretFile;
+        server.start();
+        log.info("Listening on http://{}:{}/ (secret in {})", server.getAddress().getHostString(), getPort(),
+                secretFile);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Block until the server is stopped.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    public void stop() {
+        server.stop(1);
+        requestExecutor.shutdownNow();
+        if (secretFile != null) {
+            try {
+                Files.deleteIfExists(secretFile);
+            } catch (IOException ioe) {
+                log.warn("Error deleting {}: {}", secretFile, ioe.getMessage());
+            }
+        }
+        stopped.countDown();
+        log.info("Stopped");
+    }
+
+    private void handleRun(HttpExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Method not allowed\n", "text/plain");
+            return;
+        }
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            respond(exchange, 403, "Cross-origin requests are not allowed\n", "text/plain");
+            return;
+        }
+        if (!isAuthorized(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            respond(exchange, 401, "Unauthorized\n", "text/plain");
+            return;
+        }
+        if (!isJson(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+            respond(exchange, 415, "The content type must be application/json\n", "text/plain");
+            return;
+        }
+
+        String[] args;
+        try {
+            args = parseArgs(readBody(exchange.getRequestBody()));
+        } catch (IllegalArgumentException | IOException e) {
+            respond(exchange, 400, String.format("Invalid command line: %s%n", e.getMessage()), "text/plain");
+            return;
+        }
+
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        int exitCode;
+        try (PrintWriter outWriter = new PrintWriter(out); PrintWriter errWriter = new PrintWriter(err)) {
+            synchronized (runLock) {
+                exitCode = executor.execute(args, outWriter, errWriter);
+            }
+        } catch (RuntimeException re) {
+            log.error("Error running command: {}", re.getMessage(), re);
+            err.write(String.valueOf(re.getMessage()));
+            exitCode = CommandLine.ExitCode.SOFTWARE;
+        }
+        log.debug("handleRun: exit code {}", exitCode);
+
+        ObjectNode response = mapper.createObjectNode();
+        response.put("exitCode", exitCode);
+        response.put("out", out.toString());
+        response.put("err", err.toString());
+        exchange.getResponseHeaders().set(EXIT_CODE_HEADER, Integer.toString(exitCode));
+        respond(exchange, 200, mapper.writeValueAsString(response) + "\n", "application/json");
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            body.write(buffer, 0, n);
+            if (body.size() > MAX_REQUEST_BYTES) {
+                throw new IOException("request body too large");
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private boolean isAuthorized(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return false;
+        }
+        byte[] presented = authorization.substring(BEARER_PREFIX.length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(presented, secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isJson(String contentType) {
+        return contentType != null
+                && contentType.split(";")[0].trim().toLowerCase(Locale.ROOT).equals(JSON_CONTENT_TYPE);
+    }
+
+    private static String[] parseArgs(String body) throws IOException {
+        JsonNode node = mapper.readTree(body);
+        if (node != null && node.isTextual()) {
+            return CommandLineTokenizer.tokenize(node.asText().trim());
+        }
+        if (node == null || !node.isArray()) {
+            throw new IllegalArgumentException("expected an array of strings or a string");
+        }
+        String[] args = new String[node.size()];
+        for (int i = 0; i < args.length; i++) {
+            if (!node.get(i).isTextual()) {
+                throw new IllegalArgumentException("expected an array of strings");
+            }
+            args[i] = node.get(i).asText();
+        }
+        return args;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body, String contentType)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.checkmarx.util;
+
+import com.checkmarx.sdk.service.CxService;
+import com.checkmarx.util.cache.TokenCache;
+import com.checkmarx.util.metrics.SdkMetrics;
+import com.checkmarx.util.metrics.SdkMetricsInterceptor;
+import com.checkmarx.util.throttle.SdkThrottle;
+import com.checkmarx.util.throttle.SingleFlightInterceptor;
+import org.slf4j.Logger;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps the SDK client in a proxy which coalesces identical concurrent
+ * reads, restores and stores the access token, passes every call through
+ * the shared rate and concurrency limits (retrying failed reads) and then
+ * times it, so that the commands, which are given the proxy, need not be
+ * changed.
+ * <p>
+ * CxService is a class rather than an interface, so the proxy is a
+ * subclass generated at runtime.
+ */
+@Component
+public class CxServicePostProcessor implements BeanPostProcessor {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(CxServicePostProcessor.class);
+    private final SdkMetrics sdkMetrics;
+    private final SdkThrottle sdkThrottle;
+    private final TokenCache tokenCache;
+
+    public CxServicePostProcessor(SdkMetrics sdkMetrics, SdkThrottle sdkThrottle, TokenCache tokenCache) {
+        this.sdkMetrics = sdkMetrics;
+        this.sdkThrottle = sdkThrottle;
+        this.tokenCache = tokenCache;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof CxService)) {
+            return bean;
+        }
+        log.debug("postProcessAfterInitialization: wrapping {}", beanName);
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        // The advice is applied in order: coalesced calls do not wait for
+        // the limits, a call retried after a rejected stored token waits
+        // for the limits again and each retry is timed separately
+        proxyFactory.addAdvice(new SingleFlightInterceptor(sdkMetrics));
+        proxyFactory.addAdvice(tokenCache);
+        proxyFactory.addAdvice(sdkThrottle);
+        proxyFactory.addAdvice(new SdkMetricsInterceptor(sdkMetrics));
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,193 @@
+package com.checkmarx.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Determines whether a string contains any of a set of ASCII keywords in
+ * a single pass, without allocating.
+ * <p>
+ * The keywords are compiled into an Aho-Corasick automaton which is then
+ * expanded into a table of transitions for every ASCII character, so
+ * each character of the input costs one table lookup. A non-ASCII
+ * character cannot be part of a keyword and returns the automaton to its
+ * initial state.
+ */
+class KeywordPrefilter {
+    private static final int ALPHABET = 128;
+
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    /**
+     * Compile a set of keywords.
+     *
+     * @param keywords the keywords (each must be non-empty and consist of ASCII characters)
+     * @throws IllegalArgumentException if a keyword is empty or contains non-ASCII characters
+     */
+    KeywordPrefilter(List<String> keywords) {
+        // Build the trie
+        List<int[]> trie = new ArrayList<>();
+        List<Boolean> output = new ArrayList<>();
+        trie.add(newNode());
+        output.add(false);
+        for (String keyword : keywords) {
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("empty keyword");
+            }
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c >= ALPHABET) {
+                    throw new IllegalArgumentException(String.format("%s: non-ASCII keyword", keyword));
+                }
+                if (trie.get(node)[c] < 0) {
+                    trie.get(node)[c] = trie.size();
+                    trie.add(newNode());
+                    output.add(false);
+                }
+                node = trie.get(node)[c];
+            }
+            output.set(node, true);
+        }
+
+        // Compute the failure links breadth first, filling in the missing
+        // transitions from the failure state as we go
+        int states = trie.size();
+        transitions = new int[states * ALPHABET];
+        accepting = new boolean[states];
+        int[] failure = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = trie.get(0)[c];
+            if (next < 0) {
+                transitions[c] = 0;
+            } else {
+                transitions[c] = next;
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        accepting[0] = output.get(0);
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            accepting[node] = output.get(node) || accepting[failure[node]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = trie.get(node)[c];
+                if (next < 0) {
+                    transitions[node * ALPHABET + c] = transitions[failure[node] * ALPHABET + c];
+                } else {
+                    transitions[node * ALPHABET + c] = next;
+                    failure[next] = transitions[failure[node] * ALPHABET + c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    /**
+     * Return whether the string contains any of the keywords.
+     *
+     * @param s the string
+     * @return true if the string contains at least one keyword
+     */
+    boolean matches(String s) {
+        int state = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            state = c < ALPHABET ? transitions[state * ALPHABET + c] : 0;
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the longest run of literal characters which any match of a
+     * regular expression must contain, or null if a run cannot be
+     * determined. The analysis is deliberately conservative: only
+     * characters outside groups and character classes are considered and
+     * any alternation, inline flag or non-ASCII literal means that no run
+     * is returned.
+     *
+     * @param regex the regular expression
+     * @return the literal run or null
+     */
+    static String requiredLiteral(String regex) {
+        if (regex.contains("|") || regex.contains("(?") || regex.contains("\\Q")) {
+            return null;
+        }
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (inClass) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == ']') {
+                    inClass = false;
+                }
+                continue;
+            }
+            char literal = 0;
+            if (c == '\\') {
+                if (i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    literal = regex.charAt(++i);
+                } else {
+                    // A character class (\s), a back reference or an escape we do not interpret
+                    i++;
+                }
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                // Skip the bounds of the quantifier
+                int end = regex.indexOf('}', i);
+                i = end < 0 ? regex.length() : end;
+            } else if (".^$?*+".indexOf(c) < 0) {
+                literal = c;
+            }
+            if (literal != 0 && depth == 0 && literal < ALPHABET && !isOptional(regex, i + 1)) {
+                run.append(literal);
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '+') {
+                    // The character may be repeated so the run cannot continue past it
+                    if (run.length() > longest.length()) {
+                        longest = run.toString();
+                    }
+                    run.setLength(0);
+                }
+            } else {
+                if (literal >= ALPHABET) {
+                    return null;
+                }
+                if (run.length() > longest.length()) {
+                    longest = run.toString();
+                }
+                run.setLength(0);
+            }
+        }
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+        return longest.isEmpty() ? null : longest;
+    }
+
+    private static boolean isOptional(String regex, int i) {
+        return i < regex.length() && "?*{".indexOf(regex.charAt(i)) >= 0;
+    }
+}
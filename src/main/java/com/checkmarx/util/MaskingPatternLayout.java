@@ -7,20 +7,44 @@ import ch.qos.logback.classic.PatternLayout;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
+/**
+ * A pattern layout which masks the sensitive parts of each log line.
+ * <p>
+ * Each mask pattern is a regular expression whose groups contain the text
+ * to be masked. Most lines contain nothing to mask so, if every pattern
+ * contains a literal run of characters (such as "token="), the lines are
+ * first checked for those keywords and lines without any are returned
+ * untouched. The matcher and the buffer in which the masking is done are
+ * reused by each logging thread.
+ */
 public class MaskingPatternLayout extends PatternLayout {
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
 
     private Pattern multilinePattern;
-    private List<String> maskPatterns = new ArrayList();
+    private List<String> maskPatterns = new ArrayList<>();
+    private List<String> keywords = new ArrayList<>();
+    private KeywordPrefilter prefilter;
+
+    private final ThreadLocal<Matcher> matchers = new ThreadLocal<>();
+    private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[1024]);
 
     public void addMaskPattern(String maskPattern) {
         maskPatterns.add(maskPattern);
         multilinePattern = Pattern.compile(String.join("|", maskPatterns));
+        String keyword = KeywordPrefilter.requiredLiteral(maskPattern);
+        if (keyword == null || keywords == null) {
+            // Without a keyword for every pattern, every line must be matched
+            keywords = null;
+            prefilter = null;
+        } else {
+            keywords.add(keyword);
+            prefilter = new KeywordPrefilter(keywords);
+        }
     }
 
     @Override
@@ -29,18 +53,46 @@ public class MaskingPatternLayout extends PatternLayout {
     }
 
     private String maskMessage(String message) {
-        if (multilinePattern == null) {
+        Pattern pattern = multilinePattern;
+        if (pattern == null) {
             return message;
         }
-        StringBuilder sb = new StringBuilder(message);
-        Matcher matcher = multilinePattern.matcher(sb);
-        while (matcher.find()) {
-            IntStream.rangeClosed(1, matcher.groupCount()).forEach(group -> {
-                if (matcher.group(group) != null) {
-                    IntStream.range(matcher.start(group), matcher.end(group)).forEach(i -> sb.setCharAt(i, '*'));
-                }
-            });
+        KeywordPrefilter keywordPrefilter = prefilter;
+        if (keywordPrefilter != null && !keywordPrefilter.matches(message)) {
+            return message;
+        }
+
+        Matcher matcher = matchers.get();
+        if (matcher == null || matcher.pattern() != pattern) {
+            matcher = pattern.matcher(message);
+            matchers.set(matcher);
+        } else {
+            matcher.reset(message);
+        }
+        if (!matcher.find()) {
+            matcher.reset("");
+            return message;
         }
-        return sb.toString();
+
+        int length = message.length();
+        char[] buffer = buffers.get();
+        if (buffer.length < length) {
+            buffer = new char[length];
+            if (length <= MAX_RETAINED_BUFFER) {
+                buffers.set(buffer);
+            }
+        }
+        message.getChars(0, length, buffer, 0);
+        do {
+            for (int group = 1; group <= matcher.groupCount(); group++) {
+                int start = matcher.start(group);
+                if (start >= 0) {
+                    Arrays.fill(buffer, start, matcher.end(group), '*');
+                }
+            }
+        } while (matcher.find());
+        // Do not keep a reference to the message
+        matcher.reset("");
+        return new String(buffer, 0, length);
     }
 }
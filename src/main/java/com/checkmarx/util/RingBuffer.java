@@ -0,0 +1,97 @@
+package com.checkmarx.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer.
+ * <p>
+ * This is Dmitry Vyukov's bounded queue: each slot has a sequence number
+ * which tells a producer whether the slot is free and the consumer whether
+ * it has been filled, so producers only contend on the tail counter (with
+ * a compare and set) and never block one another.
+ *
+ * @param <E> the type of the elements
+ */
+class RingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head = 0;
+
+    /**
+     * Create a queue.
+     *
+     * @param capacity the capacity (rounded up to a power of two)
+     */
+    RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("%d: the capacity must be positive", capacity));
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element, if there is room (may be called by any thread).
+     *
+     * @param e the element
+     * @return true if the element was added, false if the queue is full
+     */
+    boolean offer(E e) {
+        while (true) {
+            long t = tail.get();
+            int slot = (int) t & mask;
+            long difference = sequences.get(slot) - t;
+            if (difference == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    elements.lazySet(slot, e);
+                    sequences.set(slot, t + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // Otherwise another producer has claimed the slot: try again
+        }
+    }
+
+    /**
+     * Remove the element at the head of the queue (may only be called by
+     * the consumer thread).
+     *
+     * @return the element or null if the queue is empty
+     */
+    E poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        E e = elements.get(slot);
+        elements.lazySet(slot, null);
+        sequences.set(slot, head + mask + 1);
+        head++;
+        return e;
+    }
+
+    /**
+     * Return whether the queue is empty (may only be called by the
+     * consumer thread).
+     *
+     * @return true if the queue is empty
+     */
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
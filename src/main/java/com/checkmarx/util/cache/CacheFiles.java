@@ -0,0 +1,123 @@
+package com.checkmarx.util.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * Helpers for the files in the local cache directory. Files and
+ * directories are created so that only their owner can access them (on
+ * file systems which support POSIX permissions) and files are replaced
+ * atomically so that a concurrent reader never sees a partial file.
+ */
+public class CacheFiles {
+    private static final Set<PosixFilePermission> PRIVATE_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> PRIVATE_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private CacheFiles() {
+    }
+
+    /**
+     * Create a directory (and its parents), accessible only by its owner.
+     *
+     * @param directory the directory
+     * @throws IOException if the directory cannot be created
+     */
+    public static void createPrivateDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        setPermissions(directory, PRIVATE_DIRECTORY);
+    }
+
+    /**
+     * Replace the contents of a file, accessible only by its owner.
+     *
+     * @param file    the file
+     * @param content the new contents
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path tmp = createPrivateTempFile(file);
+        try {
+            Files.write(tmp, content);
+            moveAtomically(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Create a temporary file, accessible only by its owner, in the
+     * directory of the file which it will replace.
+     *
+     * @param file the file which the temporary file will replace
+     * @return the temporary file
+     * @throws IOException if the file cannot be created
+     */
+    public static Path createPrivateTempFile(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        createPrivateDirectory(directory);
+        Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        setPermissions(tmp, PRIVATE_FILE);
+        return tmp;
+    }
+
+    /**
+     * Replace a file with another file in the same directory, atomically
+     * where the file system supports it.
+     *
+     * @param source the replacement file
+     * @param file   the file to be replaced
+     * @throws IOException if the file cannot be replaced
+     */
+    public static void moveAtomically(Path source, Path file) throws IOException {
+        try {
+            Files.move(source, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+            Files.move(source, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Return the hexadecimal SHA-256 digest of the supplied strings, each
+     * terminated by a newline.
+     *
+     * @param parts the strings
+     * @return the digest
+     */
+    public static String sha256(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("SHA-256 is not available", nsae);
+        }
+    }
+
+    private static void setPermissions(Path path, Set<PosixFilePermission> permissions) throws IOException {
+        try {
+            Files.setPosixFilePermissions(path, permissions);
+        } catch (UnsupportedOperationException uoe) {
+            // Not a POSIX file system: rely on the default permissions
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.checkmarx.util.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Configuration of the local metadata cache (cx-util.cache.*)
+ */
+@Component
+@ConfigurationProperties(prefix = "cx-util.cache")
+public class CacheProperties {
+    /**
+     * Whether metadata is persisted between invocations
+     */
+    private boolean enabled = false;
+
+    /**
+     * The directory in which cached data is stored
+     */
+    private String directory = Paths.get(System.getProperty("user.home"), ".cache", "cx-java-util").toString();
+
+    private Duration teamsTtl = Duration.ofHours(1);
+    private Duration customFieldsTtl = Duration.ofHours(1);
+    private Duration rolesTtl = Duration.ofDays(1);
+    private Duration ldapServersTtl = Duration.ofDays(1);
+    private Duration projectsTtl = Duration.ofMinutes(10);
+
+    /**
+     * The maximum total size of the stored scan results
+     */
+    private DataSize resultsMaxSize = DataSize.ofGigabytes(1);
+
+    /**
+     * Whether the access token is persisted between invocations
+     */
+    private boolean persistToken = false;
+
+    /**
+     * How long before its expiry a persisted access token is replaced
+     */
+    private Duration tokenRefreshAhead = Duration.ofMinutes(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectoryPath() {
+        return Paths.get(directory);
+    }
+
+    public Duration getTeamsTtl() {
+        return teamsTtl;
+    }
+
+    public void setTeamsTtl(Duration teamsTtl) {
+        this.teamsTtl = teamsTtl;
+    }
+
+    public Duration getCustomFieldsTtl() {
+        return customFieldsTtl;
+    }
+
+    public void setCustomFieldsTtl(Duration customFieldsTtl) {
+        this.customFieldsTtl = customFieldsTtl;
+    }
+
+    public Duration getRolesTtl() {
+        return rolesTtl;
+    }
+
+    public void setRolesTtl(Duration rolesTtl) {
+        this.rolesTtl = rolesTtl;
+    }
+
+    public Duration getLdapServersTtl() {
+        return ldapServersTtl;
+    }
+
+    public void setLdapServersTtl(Duration ldapServersTtl) {
+        this.ldapServersTtl = ldapServersTtl;
+    }
+
+    public Duration getProjectsTtl() {
+        return projectsTtl;
+    }
+
+    public void setProjectsTtl(Duration projectsTtl) {
+        this.projectsTtl = projectsTtl;
+    }
+
+    public DataSize getResultsMaxSize() {
+        return resultsMaxSize;
+    }
+
+    public void setResultsMaxSize(DataSize resultsMaxSize) {
+        this.resultsMaxSize = resultsMaxSize;
+    }
+
+    public boolean isPersistToken() {
+        return persistToken;
+    }
+
+    public void setPersistToken(boolean persistToken) {
+        this.persistToken = persistToken;
+    }
+
+    public Duration getTokenRefreshAhead() {
+        return tokenRefreshAhead;
+    }
+
+    public void setTokenRefreshAhead(Duration tokenRefreshAhead) {
+        this.tokenRefreshAhead = tokenRefreshAhead;
+    }
+}
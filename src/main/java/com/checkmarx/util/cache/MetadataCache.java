@@ -0,0 +1,408 @@
+package com.checkmarx.util.cache;
+
+import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.dto.cx.CxCustomField;
+import com.checkmarx.sdk.dto.cx.CxProject;
+import com.checkmarx.sdk.dto.cx.CxTeam;
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.sdk.service.CxService;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache of slowly changing Checkmarx metadata: teams, projects, custom
+ * fields, role identifiers and LDAP server identifiers.
+ * <p>
+ * Each kind of metadata has its own time to live. Entries are always
+ * cached in memory and, if cx-util.cache.enabled is set, are also
+ * persisted to a JSON snapshot in the cache directory so that short-lived
+ * invocations can skip the round trips to the server. The snapshot is
+ * keyed by the Checkmarx base URL and user name. Commands which change
+ * the metadata invalidate the affected entries. Changes are only recorded
+ * in memory until {@link #flush()} is called (after each command), so a
+ * command which looks up many names writes the snapshot at most once.
+ */
+@Component
+public class MetadataCache {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(MetadataCache.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final int UNKNOWN_ID = -1;
+
+    /**
+     * How the cache is used by the current command
+     */
+    public enum Mode {
+        /** Use cached entries which have not expired */
+        DEFAULT,
+        /** Neither read nor write cached entries (--no-cache) */
+        DISABLED,
+        /** Ignore the entries cached before the command started (--refresh-cache) */
+        REFRESH
+    }
+
+    /**
+     * A cached team
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Team {
+        public String id;
+        public String fullName;
+
+        public Team() {
+        }
+
+        public Team(String id, String fullName) {
+            this.id = id;
+            this.fullName = fullName;
+        }
+    }
+
+    /**
+     * A cached project (just enough to find the project by name)
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Project {
+        public Integer id;
+        public String teamId;
+        public String name;
+
+        public Project() {
+        }
+
+        public Project(Integer id, String teamId, String name) {
+            this.id = id;
+            this.teamId = teamId;
+            this.name = name;
+        }
+    }
+
+    /**
+     * A cached custom field definition
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class CustomField {
+        public Integer id;
+        public String name;
+
+        public CustomField() {
+        }
+
+        public CustomField(Integer id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /**
+     * A cached value and the time (in milliseconds since the epoch) at
+     * which it was retrieved from the server
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry<T> {
+        public long fetchedAt;
+        public T value;
+
+        public Entry() {
+        }
+
+        Entry(long fetchedAt, T value) {
+            this.fetchedAt = fetchedAt;
+            this.value = value;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Snapshot {
+        public String baseUrl;
+        public String username;
+        public Entry<List<Team>> teams;
+        public Entry<List<Project>> projects;
+        public Entry<List<CustomField>> customFields;
+        public Map<String, Entry<Integer>> roles = new HashMap<>();
+        public Map<String, Entry<Integer>> ldapServers = new HashMap<>();
+    }
+
+    @FunctionalInterface
+    private interface Fetcher<T> {
+        T fetch() throws CheckmarxException;
+    }
+
+    private final CxService cxService;
+    private final CxProperties cxProperties;
+    private final CacheProperties cacheProperties;
+
+    private Snapshot snapshot;
+    private boolean dirty = false;
+    private Mode mode = Mode.DEFAULT;
+    private long validAfter = 0;
+
+    public MetadataCache(@Lazy CxService cxService, CxProperties cxProperties, CacheProperties cacheProperties) {
+        this.cxService = cxService;
+        this.cxProperties = cxProperties;
+        this.cacheProperties = cacheProperties;
+    }
+
+    /**
+     * Set how the cache is used by the command about to be run.
+     *
+     * @param mode the mode
+     */
+    public synchronized void setMode(Mode mode) {
+        log.debug("setMode: {}", mode);
+        this.mode = mode;
+        this.validAfter = mode == Mode.REFRESH ? System.currentTimeMillis() : 0;
+    }
+
+    /**
+     * Return how the cache is used by the current command.
+     *
+     * @return the mode
+     */
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Return the teams.
+     *
+     * @param refresh retrieve the teams from the server even if they are cached
+     * @return the teams and the time at which they were retrieved
+     * @throws CheckmarxException if the teams cannot be retrieved
+     */
+    public Entry<List<Team>> getTeams(boolean refresh) throws CheckmarxException {
+        synchronized (this) {
+            Entry<List<Team>> entry = getSnapshot().teams;
+            if (!refresh && isValid(entry, cacheProperties.getTeamsTtl())) {
+                log.debug("getTeams: using cached teams");
+                return entry;
+            }
+        }
+        Entry<List<Team>> entry = fetch(() -> {
+            List<CxTeam> cxTeams = cxService.getTeams();
+            if (cxTeams == null) {
+                throw new CheckmarxException("Error obtaining teams");
+            }
+            List<Team> teams = new ArrayList<>(cxTeams.size());
+            for (CxTeam cxTeam : cxTeams) {
+                teams.add(new Team(cxTeam.getId(), cxTeam.getFullName()));
+            }
+            return teams;
+        });
+        synchronized (this) {
+            if (mode != Mode.DISABLED) {
+                getSnapshot().teams = entry;
+                dirty = true;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Return the projects.
+     *
+     * @param refresh retrieve the projects from the server even if they are cached
+     * @return the projects and the time at which they were retrieved
+     * @throws CheckmarxException if the projects cannot be retrieved
+     */
+    public Entry<List<Project>> getProjects(boolean refresh) throws CheckmarxException {
+        synchronized (this) {
+            Entry<List<Project>> entry = getSnapshot().projects;
+            if (!refresh && isValid(entry, cacheProperties.getProjectsTtl())) {
+                log.debug("getProjects: using cached projects");
+                return entry;
+            }
+        }
+        Entry<List<Project>> entry = fetch(() -> {
+            List<CxProject> cxProjects = cxService.getProjects();
+            if (cxProjects == null) {
+                throw new CheckmarxException("Error obtaining projects");
+            }
+            List<Project> projects = new ArrayList<>(cxProjects.size());
+            for (CxProject cxProject : cxProjects) {
+                projects.add(new Project(cxProject.getId(), cxProject.getTeamId(), cxProject.getName()));
+            }
+            return projects;
+        });
+        synchronized (this) {
+            if (mode != Mode.DISABLED) {
+                getSnapshot().projects = entry;
+                dirty = true;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Return the custom field definitions.
+     *
+     * @return the custom field definitions
+     * @throws CheckmarxException if the custom fields cannot be retrieved
+     */
+    public List<CustomField> getCustomFields() throws CheckmarxException {
+        synchronized (this) {
+            Entry<List<CustomField>> entry = getSnapshot().customFields;
+            if (isValid(entry, cacheProperties.getCustomFieldsTtl())) {
+                log.debug("getCustomFields: using cached custom fields");
+                return entry.value;
+            }
+        }
+        Entry<List<CustomField>> entry = fetch(() -> {
+            List<CxCustomField> cxCustomFields = cxService.getCustomFields();
+            List<CustomField> customFields = new ArrayList<>();
+            if (cxCustomFields != null) {
+                for (CxCustomField cxCustomField : cxCustomFields) {
+                    customFields.add(new CustomField(cxCustomField.id, cxCustomField.name));
+                }
+            }
+            return customFields;
+        });
+        synchronized (this) {
+            if (mode != Mode.DISABLED) {
+                getSnapshot().customFields = entry;
+                dirty = true;
+            }
+        }
+        return entry.value;
+    }
+
+    /**
+     * Return the identifier of a role.
+     *
+     * @param role the role name
+     * @return the role identifier (-1 if there is no such role)
+     * @throws CheckmarxException if the SDK throws this exception
+     */
+    public Integer getRoleId(String role) throws CheckmarxException {
+        return getId(getSnapshotRoles(), role, cacheProperties.getRolesTtl(), () -> cxService.getRoleId(role));
+    }
+
+    /**
+     * Return the identifier of an LDAP server.
+     *
+     * @param ldapServer the LDAP server name
+     * @return the LDAP server identifier (zero or negative if there is no such server)
+     * @throws CheckmarxException if the SDK throws this exception
+     */
+    public Integer getLdapServerId(String ldapServer) throws CheckmarxException {
+        return getId(getSnapshotLdapServers(), ldapServer, cacheProperties.getLdapServersTtl(),
+                () -> cxService.getLdapServerId(ldapServer));
+    }
+
+    /**
+     * Discard the cached teams (called after a team has been created or deleted).
+     */
+    public synchronized void invalidateTeams() {
+        log.debug("invalidateTeams");
+        getSnapshot().teams = null;
+        dirty = true;
+    }
+
+    private synchronized Map<String, Entry<Integer>> getSnapshotRoles() {
+        return getSnapshot().roles;
+    }
+
+    private synchronized Map<String, Entry<Integer>> getSnapshotLdapServers() {
+        return getSnapshot().ldapServers;
+    }
+
+    /**
+     * Look up an identifier by name. Only identifiers of existing objects
+     * are cached.
+     */
+    private Integer getId(Map<String, Entry<Integer>> ids, String name, Duration ttl, Fetcher<Integer> fetcher)
+            throws CheckmarxException {
+        synchronized (this) {
+            Entry<Integer> entry = ids.get(name);
+            if (isValid(entry, ttl)) {
+                log.debug("getId: {}: using cached identifier {}", name, entry.value);
+                return entry.value;
+            }
+        }
+        Entry<Integer> entry = fetch(fetcher);
+        synchronized (this) {
+            if (mode != Mode.DISABLED && entry.value != null && entry.value > 0) {
+                ids.put(name, entry);
+                dirty = true;
+            }
+        }
+        return entry.value == null ? UNKNOWN_ID : entry.value;
+    }
+
+    private <T> Entry<T> fetch(Fetcher<T> fetcher) throws CheckmarxException {
+        long fetchedAt = System.currentTimeMillis();
+        return new Entry<>(fetchedAt, fetcher.fetch());
+    }
+
+    private boolean isValid(Entry<?> entry, Duration ttl) {
+        if (mode == Mode.DISABLED || entry == null || entry.fetchedAt < validAfter) {
+            return false;
+        }
+        return System.currentTimeMillis() - entry.fetchedAt < ttl.toMillis();
+    }
+
+    private Snapshot getSnapshot() {
+        if (snapshot == null) {
+            snapshot = load();
+        }
+        return snapshot;
+    }
+
+    private Path getSnapshotPath() {
+        String key = CacheFiles.sha256(cxProperties.getBaseUrl(), cxProperties.getUsername());
+        return cacheProperties.getDirectoryPath().resolve("metadata-" + key + ".json");
+    }
+
+    private Snapshot load() {
+        Snapshot loaded = new Snapshot();
+        loaded.baseUrl = cxProperties.getBaseUrl();
+        loaded.username = cxProperties.getUsername();
+        if (!cacheProperties.isEnabled()) {
+            return loaded;
+        }
+        Path path = getSnapshotPath();
+        if (!Files.isRegularFile(path)) {
+            return loaded;
+        }
+        try {
+            Snapshot stored = mapper.readValue(path.toFile(), Snapshot.class);
+            if (loaded.baseUrl != null && loaded.baseUrl.equals(stored.baseUrl)
+                    && loaded.username != null && loaded.username.equals(stored.username)) {
+                log.debug("load: loaded {}", path);
+                return stored;
+            }
+        } catch (IOException ioe) {
+            log.warn("Ignoring unreadable metadata cache {}: {}", path, ioe.getMessage());
+        }
+        return loaded;
+    }
+
+    /**
+     * Write the snapshot, if cx-util.cache.enabled is set and it has
+     * changed since it was last written.
+     */
+    public synchronized void flush() {
+        if (!dirty || !cacheProperties.isEnabled()) {
+            return;
+        }
+        dirty = false;
+        Path path = getSnapshotPath();
+        try {
+            CacheFiles.writeAtomically(path, mapper.writeValueAsBytes(snapshot));
+            log.debug("flush: saved {}", path);
+        } catch (IOException ioe) {
+            log.warn("Error writing metadata cache {}: {}", path, ioe.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.checkmarx.util.cache;
+
+import com.checkmarx.sdk.exception.CheckmarxException;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory index of projects by name (case-insensitively). As project
+ * names are only unique within a team, a name may map to several projects.
+ * <p>
+ * The projects are retrieved on the first lookup (or taken from the
+ * metadata cache). If a lookup misses and the projects were retrieved more
+ * than a minute ago, they are retrieved again in case the project has
+ * been created since.
+ */
+@Component
+public class ProjectIndex {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ProjectIndex.class);
+    private static final long MISS_REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final MetadataCache metadataCache;
+
+    private Map<String, List<MetadataCache.Project>> projectsByName;
+    private long fetchedAt;
+
+    public ProjectIndex(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Return the projects with the specified name.
+     *
+     * @param name the project name
+     * @return the matching projects (which may be empty)
+     * @throws CheckmarxException if the projects cannot be retrieved
+     */
+    public synchronized List<MetadataCache.Project> find(String name) throws CheckmarxException {
+        String key = name.toLowerCase(Locale.ROOT);
+        if (projectsByName == null) {
+            load(false);
+        }
+        List<MetadataCache.Project> projects = projectsByName.get(key);
+        if (projects == null && System.currentTimeMillis() - fetchedAt > MISS_REFRESH_INTERVAL_MILLIS) {
+            log.debug("find: {}: not found, refreshing projects", name);
+            load(true);
+            projects = projectsByName.get(key);
+        }
+        log.debug("find: {}: {} matching projects", name, projects == null ? 0 : projects.size());
+        return projects == null ? Collections.emptyList() : Collections.unmodifiableList(projects);
+    }
+
+    /**
+     * Discard the index so that the projects are retrieved on the next lookup.
+     */
+    public synchronized void invalidate() {
+        projectsByName = null;
+    }
+
+    private void load(boolean refresh) throws CheckmarxException {
+        MetadataCache.Entry<List<MetadataCache.Project>> projects = metadataCache.getProjects(refresh);
+        projectsByName = new HashMap<>(projects.value.size() * 2);
+        for (MetadataCache.Project project : projects.value) {
+            projectsByName.computeIfAbsent(project.name.toLowerCase(Locale.ROOT), k -> new ArrayList<>(1))
+                    .add(project);
+        }
+        fetchedAt = projects.fetchedAt;
+        log.debug("load: indexed {} projects", projects.value.size());
+    }
+}
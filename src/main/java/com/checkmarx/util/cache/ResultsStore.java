@@ -0,0 +1,320 @@
+package com.checkmarx.util.cache;
+
+import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local store of scan results, keyed by scan identifier.
+ * <p>
+ * The results of a completed scan never change so, once retrieved, they
+ * can be served from the store indefinitely. Each scan's results are
+ * stored as gzip compressed JSON in a file named after the SHA-256
+ * digest of its content, which is checked when the file is read. A small
+ * index maps scan identifiers to files and records when each was last
+ * used: when the total size of the stored results exceeds
+ * cx-util.cache.results-max-size, the least recently used results are
+ * evicted.
+ * <p>
+ * Like the metadata cache, the store is only used if
+ * cx-util.cache.enabled is set and is bypassed by --no-cache (and
+ * --refresh-cache causes results to be retrieved again).
+ */
+@Component
+public class ResultsStore {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ResultsStore.class);
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+    private static final String INDEX_FILE = "index.json";
+    private static final String RESULTS_SUFFIX = ".json.gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * An index entry
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry {
+        public String digest;
+        public long size;
+        public long storedAt;
+        public long lastUsedAt;
+    }
+
+    /**
+     * The outcome of pruning the store
+     */
+    public static class PruneResult {
+        public int removed;
+        public long removedBytes;
+        public int remaining;
+        public long remainingBytes;
+    }
+
+    private final CxProperties cxProperties;
+    private final CacheProperties cacheProperties;
+    private final MetadataCache metadataCache;
+
+    private Map<Integer, Entry> index;
+
+    public ResultsStore(CxProperties cxProperties, CacheProperties cacheProperties, MetadataCache metadataCache) {
+        this.cxProperties = cxProperties;
+        this.cacheProperties = cacheProperties;
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Return the stored results of a scan.
+     *
+     * @param scanId the scan identifier
+     * @return the scan results or null if they are not stored (or the store is not in use)
+     */
+    public ScanResults get(Integer scanId) {
+        if (!cacheProperties.isEnabled() || metadataCache.getMode() != MetadataCache.Mode.DEFAULT) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = getIndex().get(scanId);
+        }
+        if (entry == null) {
+            log.debug("get: scan {}: not stored", scanId);
+            return null;
+        }
+        Path file = getDirectory().resolve(entry.digest + RESULTS_SUFFIX);
+        try {
+            ScanResults scanResults = read(file, entry.digest);
+            synchronized (this) {
+                entry.lastUsedAt = System.currentTimeMillis();
+                saveIndex();
+            }
+            log.debug("get: scan {}: using stored results {}", scanId, file);
+            return scanResults;
+        } catch (IOException ioe) {
+            log.warn("Discarding unreadable stored results for scan {}: {}", scanId, ioe.getMessage());
+            synchronized (this) {
+                getIndex().remove(scanId);
+                saveIndex();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Store the results of a scan, evicting the least recently used
+     * results if the store has grown too large.
+     *
+     * @param scanId      the scan identifier
+     * @param scanResults the scan results
+     */
+    public void put(Integer scanId, ScanResults scanResults) {
+        if (!cacheProperties.isEnabled() || metadataCache.getMode() == MetadataCache.Mode.DISABLED) {
+            return;
+        }
+        Path directory = getDirectory();
+        try {
+            Path tmp = CacheFiles.createPrivateTempFile(directory.resolve(scanId + RESULTS_SUFFIX));
+            try {
+                MessageDigest digest = newDigest();
+                try (OutputStream out = new GZIPOutputStream(new DigestOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE), digest), BUFFER_SIZE)) {
+                    mapper.writeValue(out, scanResults);
+                }
+                Entry entry = new Entry();
+                entry.digest = toHex(digest.digest());
+                entry.size = Files.size(tmp);
+                entry.storedAt = System.currentTimeMillis();
+                entry.lastUsedAt = entry.storedAt;
+                CacheFiles.moveAtomically(tmp, directory.resolve(entry.digest + RESULTS_SUFFIX));
+                synchronized (this) {
+                    getIndex().put(scanId, entry);
+                    evict(cacheProperties.getResultsMaxSize().toBytes());
+                    saveIndex();
+                }
+                log.debug("put: scan {}: stored {} bytes", scanId, entry.size);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException ioe) {
+            log.warn("Error storing results for scan {}: {}", scanId, ioe.getMessage());
+        }
+    }
+
+    /**
+     * Evict the least recently used results until the total size of the
+     * store does not exceed the specified size, and remove any files which
+     * are not referenced by the index.
+     *
+     * @param maxSize the maximum total size (in bytes) of the stored results
+     * @return the outcome
+     * @throws IOException if the store cannot be read
+     */
+    public synchronized PruneResult prune(long maxSize) throws IOException {
+        PruneResult result = evict(maxSize);
+        Path directory = getDirectory();
+        if (Files.isDirectory(directory)) {
+            Set<String> referenced = new HashSet<>();
+            for (Entry entry : getIndex().values()) {
+                referenced.add(entry.digest + RESULTS_SUFFIX);
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + RESULTS_SUFFIX)) {
+                for (Path file : files) {
+                    if (!referenced.contains(file.getFileName().toString())) {
+                        result.removedBytes += Files.size(file);
+                        Files.delete(file);
+                        log.debug("prune: removed unreferenced file {}", file);
+                    }
+                }
+            }
+        }
+        saveIndex();
+        for (Entry entry : getIndex().values()) {
+            result.remaining++;
+            result.remainingBytes += entry.size;
+        }
+        return result;
+    }
+
+    private PruneResult evict(long maxSize) {
+        PruneResult result = new PruneResult();
+        Map<Integer, Entry> entries = getIndex();
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.size;
+        }
+        if (total <= maxSize) {
+            return result;
+        }
+        // Sort the scan identifiers, not the map's entries: removing a key from a TreeMap can reuse the
+        // entry of another key
+        List<Integer> byLastUse = new ArrayList<>(entries.keySet());
+        byLastUse.sort(Comparator.comparingLong(scanId -> entries.get(scanId).lastUsedAt));
+        for (Integer scanId : byLastUse) {
+            if (total <= maxSize) {
+                break;
+            }
+            Entry entry = entries.remove(scanId);
+            total -= entry.size;
+            result.removed++;
+            result.removedBytes += entry.size;
+            if (!isReferenced(entry.digest)) {
+                try {
+                    Files.deleteIfExists(getDirectory().resolve(entry.digest + RESULTS_SUFFIX));
+                } catch (IOException ioe) {
+                    log.warn("Error removing stored results for scan {}: {}", scanId, ioe.getMessage());
+                }
+            }
+            log.debug("evict: evicted scan {}", scanId);
+        }
+        return result;
+    }
+
+    private boolean isReferenced(String digest) {
+        for (Entry entry : getIndex().values()) {
+            if (entry.digest.equals(digest)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ScanResults read(Path file, String expectedDigest) throws IOException {
+        MessageDigest digest = newDigest();
+        ScanResults scanResults;
+        try (InputStream in = new DigestInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), digest)) {
+            scanResults = mapper.readValue(new GZIPInputStream(in, BUFFER_SIZE), ScanResults.class);
+            // Digest anything the parser did not consume
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) >= 0) {
+                // Keep reading
+            }
+        }
+        if (!toHex(digest.digest()).equals(expectedDigest)) {
+            throw new IOException(String.format("%s: digest mismatch", file));
+        }
+        return scanResults;
+    }
+
+    private Path getDirectory() {
+        String key = CacheFiles.sha256(cxProperties.getBaseUrl(), cxProperties.getUsername());
+        return cacheProperties.getDirectoryPath().resolve("results-" + key);
+    }
+
+    private Map<Integer, Entry> getIndex() {
+        if (index == null) {
+            index = loadIndex();
+        }
+        return index;
+    }
+
+    private Map<Integer, Entry> loadIndex() {
+        Path path = getDirectory().resolve(INDEX_FILE);
+        if (Files.isRegularFile(path)) {
+            try {
+                Map<Integer, Entry> loaded = mapper.readValue(path.toFile(), new TypeReference<TreeMap<Integer, Entry>>() {
+                });
+                log.debug("loadIndex: loaded {} entries from {}", loaded.size(), path);
+                return loaded;
+            } catch (IOException ioe) {
+                log.warn("Ignoring unreadable results index {}: {}", path, ioe.getMessage());
+            }
+        }
+        return new TreeMap<>();
+    }
+
+    private void saveIndex() {
+        Path path = getDirectory().resolve(INDEX_FILE);
+        try {
+            CacheFiles.writeAtomically(path, mapper.writeValueAsBytes(getIndex()));
+        } catch (IOException ioe) {
+            log.warn("Error writing results index {}: {}", path, ioe.getMessage());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("SHA-256 is not available", nsae);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,295 @@
+package com.checkmarx.util.cache;
+
+import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.exception.CheckmarxException;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory index of the Checkmarx team hierarchy.
+ * <p>
+ * The teams are retrieved once per process (or taken from the metadata
+ * cache) and indexed both by full name (case-insensitively) and as a tree
+ * of path segments with parent/child links. Commands which create or
+ * delete teams update the index in place. If a lookup misses and the teams
+ * were retrieved more than a minute ago, they are retrieved again in case
+ * they were changed by another client.
+ */
+@Component
+public class TeamIndex {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(TeamIndex.class);
+    public static final String UNKNOWN_TEAM_ID = "-1";
+    private static final long MISS_REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final MetadataCache metadataCache;
+    private final CxProperties cxProperties;
+
+    private Team root;
+    private Map<String, Team> teamsByPath;
+    private long fetchedAt;
+
+    /**
+     * A node in the team hierarchy. Intermediate nodes for which the
+     * server did not return a team (for example, teams the user cannot
+     * see) have a null identifier.
+     */
+    public static class Team {
+        private String id;
+        private final String name;
+        private final String fullName;
+        private final Team parent;
+        private final Map<String, Team> children = new LinkedHashMap<>();
+
+        Team(String name, String fullName, Team parent) {
+            this.name = name;
+            this.fullName = fullName;
+            this.parent = parent;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getFullName() {
+            return fullName;
+        }
+
+        public Team getParent() {
+            return parent;
+        }
+
+        public Collection<Team> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+    }
+
+    public TeamIndex(MetadataCache metadataCache, CxProperties cxProperties) {
+        this.metadataCache = metadataCache;
+        this.cxProperties = cxProperties;
+    }
+
+    /**
+     * Return the identifier of a team.
+     *
+     * @param teamPath the full team path (the leading separator is optional)
+     * @return the team identifier or UNKNOWN_TEAM_ID if there is no such team
+     * @throws CheckmarxException if the teams cannot be retrieved
+     */
+    public String getTeamId(String teamPath) throws CheckmarxException {
+        Team team = getTeam(teamPath);
+        if (team == null || team.id == null) {
+            log.debug("getTeamId: {}: no matching team", teamPath);
+            return UNKNOWN_TEAM_ID;
+        }
+        log.debug("getTeamId: found team {} with ID {}", teamPath, team.id);
+        return team.id;
+    }
+
+    /**
+     * Return a team.
+     *
+     * @param teamPath the full team path (the leading separator is optional)
+     * @return the team or null if there is no such team
+     * @throws CheckmarxException if the teams cannot be retrieved
+     */
+    public synchronized Team getTeam(String teamPath) throws CheckmarxException {
+        String key = normalise(teamPath);
+        Team team = getTeamsByPath().get(key);
+        if (team == null && System.currentTimeMillis() - fetchedAt > MISS_REFRESH_INTERVAL_MILLIS) {
+            log.debug("getTeam: {}: not found, refreshing teams", teamPath);
+            load(true);
+            team = teamsByPath.get(key);
+        }
+        return team;
+    }
+
+    /**
+     * Return a team from the current snapshot of the teams. Unlike
+     * getTeam, the teams are not retrieved again if there is no such team,
+     * so this is suitable for checking many teams most of which may not
+     * exist.
+     *
+     * @param teamPath the full team path (the leading separator is optional)
+     * @return the team or null if there is no such team in the snapshot
+     * @throws CheckmarxException if the teams cannot be retrieved
+     */
+    public synchronized Team findTeam(String teamPath) throws CheckmarxException {
+        return getTeamsByPath().get(normalise(teamPath));
+    }
+
+    /**
+     * Return a team and all its descendants, parents before children.
+     *
+     * @param teamPath the full team path (the leading separator is optional)
+     * @return the teams (empty if there is no such team)
+     * @throws CheckmarxException if the teams cannot be retrieved
+     */
+    public synchronized List<Team> getSubtree(String teamPath) throws CheckmarxException {
+        List<Team> subtree = new ArrayList<>();
+        Team team = getTeam(teamPath);
+        if (team != null) {
+            subtree.add(team);
+            for (int i = 0; i < subtree.size(); i++) {
+                subtree.addAll(subtree.get(i).children.values());
+            }
+        }
+        return subtree;
+    }
+
+    /**
+     * Record the creation of a team.
+     *
+     * @param teamPath the full path of the new team
+     * @param teamId   the identifier of the new team
+     */
+    public synchronized void added(String teamPath, String teamId) {
+        metadataCache.invalidateTeams();
+        if (teamsByPath == null) {
+            return;
+        }
+        if (teamId == null || UNKNOWN_TEAM_ID.equals(teamId)) {
+            // The identifier of the new team is not known so start again
+            invalidate();
+            return;
+        }
+        insert(teamId, teamPath);
+    }
+
+    /**
+     * Record the creation of several teams.
+     *
+     * @param teamIds the identifiers of the new teams, keyed by full path
+     *                (parents before children)
+     */
+    public synchronized void added(Map<String, String> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        metadataCache.invalidateTeams();
+        if (teamsByPath == null) {
+            return;
+        }
+        for (Map.Entry<String, String> team : teamIds.entrySet()) {
+            if (team.getValue() == null || UNKNOWN_TEAM_ID.equals(team.getValue())) {
+                invalidate();
+                return;
+            }
+            insert(team.getValue(), team.getKey());
+        }
+    }
+
+    /**
+     * Record the deletion of a team (and, therefore, its descendants).
+     *
+     * @param teamPath the full path of the deleted team
+     */
+    public synchronized void removed(String teamPath) {
+        metadataCache.invalidateTeams();
+        if (teamsByPath == null) {
+            return;
+        }
+        Team team = teamsByPath.get(normalise(teamPath));
+        if (team == null) {
+            return;
+        }
+        List<Team> subtree = new ArrayList<>();
+        subtree.add(team);
+        for (int i = 0; i < subtree.size(); i++) {
+            Team t = subtree.get(i);
+            subtree.addAll(t.children.values());
+            teamsByPath.remove(normalise(t.fullName));
+        }
+        if (team.parent != null) {
+            team.parent.children.remove(team.name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Discard the index so that the teams are retrieved on the next lookup.
+     */
+    public synchronized void invalidate() {
+        root = null;
+        teamsByPath = null;
+    }
+
+    /**
+     * Return the team name (the last segment) of a full team path.
+     *
+     * @param teamPath the full team path
+     * @return the team name
+     */
+    public String getTeamName(String teamPath) {
+        int idx = teamPath.lastIndexOf(cxProperties.getTeamPathSeparator());
+        return teamPath.substring(idx + 1);
+    }
+
+    private Map<String, Team> getTeamsByPath() throws CheckmarxException {
+        if (teamsByPath == null) {
+            load(false);
+        }
+        return teamsByPath;
+    }
+
+    private void load(boolean refresh) throws CheckmarxException {
+        MetadataCache.Entry<List<MetadataCache.Team>> teams = metadataCache.getTeams(refresh);
+        root = new Team("", "", null);
+        teamsByPath = new HashMap<>(teams.value.size() * 2);
+        for (MetadataCache.Team team : teams.value) {
+            insert(team.id, team.fullName);
+        }
+        fetchedAt = teams.fetchedAt;
+        log.debug("load: indexed {} teams", teams.value.size());
+    }
+
+    /**
+     * Insert a team into the tree, creating any missing intermediate nodes.
+     */
+    private void insert(String teamId, String fullName) {
+        String separator = cxProperties.getTeamPathSeparator();
+        String relativePath = fullName.startsWith(separator) ? fullName.substring(separator.length()) : fullName;
+        Team parent = root;
+        for (String name : relativePath.split(Pattern.quote(separator))) {
+            String key = name.toLowerCase(Locale.ROOT);
+            Team child = parent.children.get(key);
+            if (child == null) {
+                child = new Team(name, parent.fullName + separator + name, parent);
+                parent.children.put(key, child);
+                teamsByPath.put(child.fullName.toLowerCase(Locale.ROOT), child);
+            }
+            parent = child;
+        }
+        parent.id = teamId;
+    }
+
+    /**
+     * Normalise a team path for use as a key: ensure it has a leading
+     * separator, remove any trailing separator and convert it to lower
+     * case.
+     */
+    private String normalise(String teamPath) {
+        String separator = cxProperties.getTeamPathSeparator();
+        String path = teamPath;
+        if (!path.startsWith(separator)) {
+            path = separator.concat(path);
+        }
+        while (path.length() > separator.length() && path.endsWith(separator)) {
+            path = path.substring(0, path.length() - separator.length());
+        }
+        return path.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,284 @@
+package com.checkmarx.util.cache;
+
+import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.service.CxAuthClient;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the OAuth access token of the Checkmarx SDK client between
+ * invocations, if cx-util.cache.persist-token is set, so that short-lived
+ * invocations can skip the login.
+ * <p>
+ * The token is stored in an owner-only file in the cache directory, keyed
+ * by the Checkmarx base URL, client id and user name. Before the first
+ * call to the SDK client a stored token which is still valid for longer
+ * than cx-util.cache.token-refresh-ahead is handed to the SDK's
+ * authentication client, which is told that the token expires that long
+ * before it really does, so that it logs in again ahead of the expiry.
+ * After each call a token which the SDK has obtained is stored. If a call
+ * made with the stored token is rejected with a 401 response (an
+ * HttpStatusCodeException anywhere in the chain of causes), the token is
+ * discarded and the call is made once more, after a fresh login. A 401
+ * for a call made with any other token is not retried.
+ * <p>
+ * The SDK has no way of supplying a token, so it is set in the fields of
+ * the authentication client; if those fields are not found the token is
+ * neither restored nor stored. The token itself is never logged.
+ */
+@Component
+public class TokenCache implements MethodInterceptor {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(TokenCache.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String TOKEN_FIELD = "token";
+    private static final String TOKEN_EXPIRES_FIELD = "tokenExpires";
+    private static final int UNAUTHORIZED = 401;
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class StoredToken {
+        public String baseUrl;
+        public String clientId;
+        public String username;
+        public String accessToken;
+        /** The time (in milliseconds since the epoch) at which the token expires */
+        public long expiresAt;
+    }
+
+    private final ObjectProvider<CxAuthClient> authClientProvider;
+    private final CxProperties cxProperties;
+    private final CacheProperties cacheProperties;
+
+    private volatile boolean initialised = false;
+    private CxAuthClient authClient;
+    private Field tokenField;
+    private Field tokenExpiresField;
+    private volatile String restoredToken;
+    private volatile String storedToken;
+
+    public TokenCache(ObjectProvider<CxAuthClient> authClientProvider, CxProperties cxProperties,
+                      CacheProperties cacheProperties) {
+        this.authClientProvider = authClientProvider;
+        this.cxProperties = cxProperties;
+        this.cacheProperties = cacheProperties;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!cacheProperties.isPersistToken() || invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        if (!initialised) {
+            initialise();
+        }
+        if (authClient == null) {
+            return invocation.proceed();
+        }
+
+        // Copy the invocation first, as proceeding consumes it
+        String restored = restoredToken;
+        String used = restored != null ? getToken() : null;
+        MethodInvocation retry = invocation instanceof ProxyMethodInvocation
+                ? ((ProxyMethodInvocation) invocation).invocableClone() : null;
+        try {
+            return invocation.proceed();
+        } catch (Throwable t) {
+            if (retry == null || restored == null || !restored.equals(used) || !isUnauthorized(t)) {
+                throw t;
+            }
+            discard(restored);
+            log.info("The stored access token was rejected, logging in again");
+            return retry.proceed();
+        } finally {
+            store();
+        }
+    }
+
+    private synchronized void initialise() {
+        if (initialised) {
+            return;
+        }
+        try {
+            CxAuthClient client = authClientProvider.getIfUnique();
+            if (client == null) {
+                log.warn("Not persisting the access token: no unique SDK authentication client");
+                return;
+            }
+            Class<?> clientClass = AopUtils.getTargetClass(client);
+            tokenField = ReflectionUtils.findField(clientClass, TOKEN_FIELD, String.class);
+            tokenExpiresField = ReflectionUtils.findField(clientClass, TOKEN_EXPIRES_FIELD, LocalDateTime.class);
+            if (tokenField == null || tokenExpiresField == null) {
+                log.warn("Not persisting the access token: unsupported SDK authentication client {}",
+                        clientClass.getName());
+                return;
+            }
+            ReflectionUtils.makeAccessible(tokenField);
+            ReflectionUtils.makeAccessible(tokenExpiresField);
+            authClient = client;
+            restore();
+        } finally {
+            initialised = true;
+        }
+    }
+
+    private void restore() {
+        StoredToken stored = load();
+        if (stored == null) {
+            return;
+        }
+        long refreshAt = stored.expiresAt - cacheProperties.getTokenRefreshAhead().toMillis();
+        long remaining = refreshAt - System.currentTimeMillis();
+        if (remaining <= 0) {
+            log.debug("restore: stored token is due to be refreshed");
+            return;
+        }
+        synchronized (authClient) {
+            ReflectionUtils.setField(tokenField, authClient, stored.accessToken);
+            ReflectionUtils.setField(tokenExpiresField, authClient,
+                    LocalDateTime.now().plusSeconds(TimeUnit.MILLISECONDS.toSeconds(remaining)));
+        }
+        restoredToken = stored.accessToken;
+        storedToken = stored.accessToken;
+        log.debug("restore: using stored token, valid for {}s before refresh", TimeUnit.MILLISECONDS.toSeconds(remaining));
+    }
+
+    /**
+     * Discard a rejected token, unless the SDK has already replaced it.
+     *
+     * @param rejected the rejected token
+     */
+    private void discard(String rejected) {
+        synchronized (authClient) {
+            if (rejected.equals(ReflectionUtils.getField(tokenField, authClient))) {
+                ReflectionUtils.setField(tokenField, authClient, null);
+                ReflectionUtils.setField(tokenExpiresField, authClient, null);
+            }
+        }
+        restoredToken = null;
+        try {
+            Files.deleteIfExists(getTokenPath());
+        } catch (IOException ioe) {
+            log.warn("Error deleting stored access token {}: {}", getTokenPath(), ioe.getMessage());
+        }
+    }
+
+    private String getToken() {
+        synchronized (authClient) {
+            return (String) ReflectionUtils.getField(tokenField, authClient);
+        }
+    }
+
+    private void store() {
+        String token = authClient.getCurrentToken();
+        if (token == null || token.equals(storedToken)) {
+            return;
+        }
+        synchronized (this) {
+            if (token.equals(storedToken)) {
+                return;
+            }
+            storedToken = token;
+            long expiresAt = getExpiry(token);
+            if (expiresAt <= System.currentTimeMillis()) {
+                log.debug("store: token has no usable expiry, not stored");
+                return;
+            }
+            StoredToken stored = new StoredToken();
+            stored.baseUrl = cxProperties.getBaseUrl();
+            stored.clientId = cxProperties.getClientId();
+            stored.username = cxProperties.getUsername();
+            stored.accessToken = token;
+            stored.expiresAt = expiresAt;
+            Path path = getTokenPath();
+            try {
+                CacheFiles.writeAtomically(path, mapper.writeValueAsBytes(stored));
+                log.debug("store: saved {}", path);
+            } catch (IOException ioe) {
+                log.warn("Error writing stored access token {}: {}", path, ioe.getMessage());
+            }
+        }
+    }
+
+    private StoredToken load() {
+        Path path = getTokenPath();
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            StoredToken stored = mapper.readValue(path.toFile(), StoredToken.class);
+            if (stored.accessToken != null && Objects.equals(cxProperties.getBaseUrl(), stored.baseUrl)
+                    && Objects.equals(cxProperties.getClientId(), stored.clientId)
+                    && Objects.equals(cxProperties.getUsername(), stored.username)) {
+                return stored;
+            }
+        } catch (IOException ioe) {
+            log.warn("Ignoring unreadable stored access token {}: {}", path, ioe.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Return the expiry of a token: the exp claim if the token is a JWT,
+     * otherwise the (early) expiry recorded by the SDK.
+     *
+     * @param token the token
+     * @return the expiry in milliseconds since the epoch (0 if unknown)
+     */
+    private long getExpiry(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length == 3) {
+            try {
+                JsonNode claims = mapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+                if (claims.path("exp").canConvertToLong()) {
+                    return TimeUnit.SECONDS.toMillis(claims.path("exp").asLong());
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                log.debug("getExpiry: token is not a JWT: {}", e.getMessage());
+            }
+        }
+        synchronized (authClient) {
+            LocalDateTime expires = (LocalDateTime) ReflectionUtils.getField(tokenExpiresField, authClient);
+            if (expires == null) {
+                return 0;
+            }
+            return System.currentTimeMillis() + Duration.between(LocalDateTime.now(), expires).toMillis();
+        }
+    }
+
+    private Path getTokenPath() {
+        String key = CacheFiles.sha256(cxProperties.getBaseUrl(), cxProperties.getClientId(), cxProperties.getUsername());
+        return cacheProperties.getDirectoryPath().resolve("token-" + key + ".json");
+    }
+
+    private static boolean isUnauthorized(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusCodeException
+                    && ((HttpStatusCodeException) cause).getRawStatusCode() == UNAUTHORIZED) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,152 @@
+package com.checkmarx.util.cmd;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tasks of a bulk operation on a fixed number of threads.
+ * <p>
+ * The number of outstanding tasks is bounded so that a large input (a
+ * manifest with thousands of rows, for example) is consumed at the rate
+ * it is processed rather than being queued in memory up front. Tasks
+ * which must not overlap (updates to the same project, for example) can
+ * be submitted with a key: they run one after another, in the order in
+ * which they were submitted. Closing the executor waits for all
+ * submitted tasks to complete.
+ */
+public class BulkExecutor implements AutoCloseable {
+    public static final int DEFAULT_THREADS = 4;
+
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
+    private final ExecutorService executor;
+    private final Semaphore outstanding;
+    private final Map<Object, Deque<Runnable>> keyedQueues = new HashMap<>();
+
+    /**
+     * Create an executor.
+     *
+     * @param threads the number of tasks to run concurrently
+     */
+    public BulkExecutor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("%d: the number of threads must be positive", threads));
+        }
+        String prefix = String.format("bulk-%d-", poolNumber.incrementAndGet());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.outstanding = new Semaphore(threads * 2);
+    }
+
+    /**
+     * Submit a task, blocking while the maximum number of tasks are
+     * outstanding.
+     *
+     * @param task the task
+     * @param <T>  the type of the task's result
+     * @return a future which completes with the result of the task
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        outstanding.acquireUninterruptibly();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    outstanding.release();
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            outstanding.release();
+            throw ree;
+        }
+        return future;
+    }
+
+    /**
+     * Submit a task which runs after, and never at the same time as, the
+     * tasks previously submitted with the same key. Tasks with different
+     * keys run concurrently. While a task with the same key is running or
+     * waiting, the task is queued behind it without blocking.
+     *
+     * @param key  the key (compared with equals)
+     * @param task the task
+     * @param <T>  the type of the task's result
+     * @return a future which completes with the result of the task
+     */
+    public <T> CompletableFuture<T> submit(Object key, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable run = () -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        };
+        synchronized (keyedQueues) {
+            Deque<Runnable> queue = keyedQueues.get(key);
+            if (queue != null) {
+                queue.add(run);
+                return future;
+            }
+            keyedQueues.put(key, new ArrayDeque<>());
+        }
+        submit(() -> {
+            runKeyed(key, run);
+            return null;
+        });
+        return future;
+    }
+
+    /**
+     * Run a keyed task and then those queued behind it.
+     */
+    private void runKeyed(Object key, Runnable first) {
+        Runnable run = first;
+        while (run != null) {
+            run.run();
+            synchronized (keyedQueues) {
+                run = keyedQueues.get(key).poll();
+                if (run == null) {
+                    keyedQueues.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for all submitted tasks to complete and release the threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,8 +1,21 @@
 package com.checkmarx.util.cmd;
 
 import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.exception.CheckmarxException;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 public class CmdUtil {
+    /**
+     * The pathname which stands for standard input
+     */
+    public static final String STANDARD_INPUT = "-";
 
     public static String addTeamPathSeparatorPrefix(CxProperties cxProperties, String team) {
         if (!team.startsWith(cxProperties.getTeamPathSeparator())) {
@@ -11,4 +24,37 @@ public class CmdUtil {
 
         return team;
     }
+
+    /**
+     * Check the value of a --threads option.
+     *
+     * @param threads the number of threads
+     * @throws CheckmarxException if the number of threads is not positive
+     */
+    public static void checkThreads(int threads) throws CheckmarxException {
+        if (threads < 1) {
+            throw new CheckmarxException(String.format("%d: the number of threads must be positive", threads));
+        }
+    }
+
+    /**
+     * Open a file, or standard input, for reading as UTF-8. Closing the
+     * reader of standard input leaves standard input open, so that later
+     * commands run in the same process can read it too.
+     *
+     * @param pathname the pathname ("-" for standard input)
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    public static BufferedReader openInput(String pathname) throws IOException {
+        if (STANDARD_INPUT.equals(pathname)) {
+            return new BufferedReader(new InputStreamReader(new FilterInputStream(System.in) {
+                @Override
+                public void close() {
+                    // Leave standard input open
+                }
+            }, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Paths.get(pathname), StandardCharsets.UTF_8);
+    }
 }
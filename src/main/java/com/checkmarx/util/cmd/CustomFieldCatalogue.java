@@ -0,0 +1,39 @@
+package com.checkmarx.util.cmd;
+
+import com.checkmarx.util.cache.MetadataCache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The custom fields defined on the Checkmarx server, indexed by name.
+ * Custom field names are matched case-insensitively.
+ */
+public class CustomFieldCatalogue {
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    public CustomFieldCatalogue(List<MetadataCache.CustomField> customFields) {
+        if (customFields != null) {
+            for (MetadataCache.CustomField ccf : customFields) {
+                // If names collide, the first definition wins
+                ids.putIfAbsent(ccf.name.toLowerCase(Locale.ROOT), ccf.id);
+            }
+        }
+    }
+
+    /**
+     * Return the identifier of the named custom field.
+     *
+     * @param name the custom field name
+     * @return the custom field identifier (or null if there is no such custom field)
+     */
+    public Integer getId(String name) {
+        return ids.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
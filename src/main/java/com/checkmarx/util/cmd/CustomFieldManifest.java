@@ -0,0 +1,252 @@
+package com.checkmarx.util.cmd;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A manifest of project custom field assignments, read one row at a time.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ *     <li>CSV: the first line is a header naming the columns. The
+ *     {@code project} and {@code team} columns identify the project, every
+ *     other column is a custom field. Empty cells are ignored. Quoted
+ *     values may not span lines.</li>
+ *     <li>NDJSON: one JSON object per line of the form
+ *     {@code {"project": "...", "team": "...", "fields": {"name": "value"}}}.
+ *     Fields whose value is null are ignored.</li>
+ * </ul>
+ * The format is taken from the file extension ({@code .csv}, {@code .ndjson},
+ * {@code .jsonl} or {@code .json}) and otherwise from the first character of
+ * the manifest. Blank lines and lines starting with {@code #} are skipped.
+ */
+public class CustomFieldManifest implements Closeable {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String PROJECT_COLUMN = "project";
+    private static final String TEAM_COLUMN = "team";
+    private static final String FIELDS_PROPERTY = "fields";
+    private static final int SNIFF_LIMIT = 64 * 1024;
+
+    private enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * A row of the manifest. If the row could not be parsed, the error
+     * field describes the problem.
+     */
+    public static class Row {
+        private final int number;
+        private String project;
+        private String team;
+        private final Map<String, String> fields = new LinkedHashMap<>();
+        private String error;
+
+        Row(int number) {
+            this.number = number;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public String getProject() {
+            return project;
+        }
+
+        public String getTeam() {
+            return team;
+        }
+
+        public Map<String, String> getFields() {
+            return fields;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private List<String> header;
+    private int lineNumber = 0;
+
+    private CustomFieldManifest(BufferedReader reader, Format format) {
+        this.reader = reader;
+        this.format = format;
+    }
+
+    /**
+     * Open a manifest.
+     *
+     * @param pathname the manifest pathname ("-" for standard input)
+     * @return the manifest
+     * @throws IOException if the manifest cannot be opened
+     */
+    public static CustomFieldManifest open(String pathname) throws IOException {
+        BufferedReader reader = CmdUtil.openInput(pathname);
+        String lower = pathname.toLowerCase(Locale.ROOT);
+        Format format;
+        if (lower.endsWith(".csv")) {
+            format = Format.CSV;
+        } else if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.endsWith(".json")) {
+            format = Format.NDJSON;
+        } else {
+            format = sniff(reader);
+        }
+        return new CustomFieldManifest(reader, format);
+    }
+
+    private static Format sniff(BufferedReader reader) throws IOException {
+        reader.mark(SNIFF_LIMIT);
+        try {
+            boolean comment = false;
+            int c;
+            for (int read = 0; read < SNIFF_LIMIT && (c = reader.read()) >= 0; read++) {
+                if (comment) {
+                    comment = c != '\n';
+                } else if (c == '#') {
+                    comment = true;
+                } else if (!Character.isWhitespace(c)) {
+                    return c == '{' ? Format.NDJSON : Format.CSV;
+                }
+            }
+            return Format.CSV;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * Read the next row.
+     *
+     * @return the row or null at the end of the manifest
+     * @throws IOException if the manifest cannot be read
+     */
+    public Row next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = new ArrayList<>();
+                for (String column : parseCsvLine(line)) {
+                    header.add(column.trim());
+                }
+                continue;
+            }
+            Row row = new Row(lineNumber);
+            try {
+                if (format == Format.CSV) {
+                    parseCsvRow(line, row);
+                } else {
+                    parseNdjsonRow(line, row);
+                }
+                if (row.project == null || row.project.isEmpty()) {
+                    row.error = "no project specified";
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                row.error = e.getMessage();
+            }
+            return row;
+        }
+        return null;
+    }
+
+    private void parseCsvRow(String line, Row row) {
+        List<String> values = parseCsvLine(line);
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException(String.format("expected at most %d columns (found %d)",
+                    header.size(), values.size()));
+        }
+        for (int i = 0; i < values.size(); i++) {
+            String column = header.get(i);
+            String value = values.get(i);
+            if (PROJECT_COLUMN.equalsIgnoreCase(column)) {
+                row.project = value.trim();
+            } else if (TEAM_COLUMN.equalsIgnoreCase(column)) {
+                row.team = value.trim().isEmpty() ? null : value.trim();
+            } else if (!value.isEmpty()) {
+                row.fields.put(column, value);
+            }
+        }
+    }
+
+    private void parseNdjsonRow(String line, Row row) throws IOException {
+        JsonNode node = mapper.readTree(line);
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        row.project = node.path(PROJECT_COLUMN).asText(null);
+        row.team = node.path(TEAM_COLUMN).asText(null);
+        Iterator<Map.Entry<String, JsonNode>> fields = node.path(FIELDS_PROPERTY).fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isContainerNode()) {
+                throw new IllegalArgumentException(String.format("%s: expected a value", field.getKey()));
+            }
+            if (!value.isNull()) {
+                row.fields.put(field.getKey(), value.asText());
+            }
+        }
+    }
+
+    /**
+     * Split a line of CSV into its values. Values may be quoted with double
+     * quotes, within which a doubled double quote represents a single
+     * double quote.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted value");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,189 @@
+package com.checkmarx.util.cmd;
+
+import com.checkmarx.sdk.dto.cx.CxProject;
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.sdk.service.CxService;
+import com.checkmarx.util.cache.MetadataCache;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.slf4j.Logger;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static com.checkmarx.util.cmd.CmdUtil.checkThreads;
+
+/**
+ * Command for exporting an inventory of the Checkmarx server
+ */
+@Component
+@Command(name = "inventory")
+public class InventoryCommand implements Callable<Integer> {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(InventoryCommand.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final CxService cxService;
+    private final MetadataCache metadataCache;
+
+    @Spec
+    private CommandSpec spec;
+
+    /**
+     * InventoryCommand Constructor for exporting an inventory of Checkmarx
+     *
+     * @param cxService     the SDK client
+     * @param metadataCache the metadata cache
+     */
+    public InventoryCommand(@Lazy CxService cxService, MetadataCache metadataCache) {
+        this.cxService = cxService;
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Dummy implementation of the call method to implement the Callable
+     * interface.
+     *
+     * @return CommandLine.ExitCode.USAGE
+     */
+    public Integer call() throws Exception {
+        log.info("Calling inventory command");
+
+        spec.commandLine().usage(spec.commandLine().getErr());
+        return CommandLine.ExitCode.USAGE;
+    }
+
+    /**
+     * Export every team and project as gzip compressed newline delimited
+     * JSON. The teams are written first, then a record for each project,
+     * with its custom fields (by name) and the date of its last scan, as
+     * soon as the date has been retrieved. The last scan dates are
+     * retrieved concurrently and only a bounded number of project records
+     * are in progress at any time.
+     *
+     * @param output  the pathname of the file to which the inventory is written
+     * @param threads the number of last scan dates retrieved concurrently
+     * @return the exit status (non-zero if any project could not be exported)
+     * @throws CheckmarxException if the teams, projects or custom fields cannot be retrieved or the output cannot be written
+     */
+    @Command(name = "export", description = "Export the teams and projects as gzip compressed newline delimited JSON")
+    private int export(
+            @Option(names = {"-o", "--output"}, required = true, paramLabel = "<file>",
+                    description = "The file to which the inventory is written") String output,
+            @Option(names = {"--threads"}, defaultValue = "4",
+                    description = "The number of last scan dates retrieved concurrently (default: ${DEFAULT-VALUE})") int threads
+    ) throws CheckmarxException {
+        log.info("Calling inventory export command");
+        checkThreads(threads);
+
+        List<MetadataCache.Team> teams = metadataCache.getTeams(false).value;
+        Map<String, String> teamNames = new HashMap<>();
+        for (MetadataCache.Team team : teams) {
+            teamNames.put(team.id, team.fullName);
+        }
+        Map<Integer, String> customFieldNames = new HashMap<>();
+        for (MetadataCache.CustomField customField : metadataCache.getCustomFields()) {
+            customFieldNames.put(customField.id, customField.name);
+        }
+        List<CxProject> projects = cxService.getProjects();
+        if (projects == null) {
+            throw new CheckmarxException("export: error obtaining projects");
+        }
+
+        AtomicInteger errorCount = new AtomicInteger();
+        try (OutputStream out = Files.newOutputStream(Paths.get(output));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(out, BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            NdjsonWriter records = new NdjsonWriter(writer);
+            for (MetadataCache.Team team : teams) {
+                records.write(new TeamRecord(team));
+            }
+            try (BulkExecutor executor = new BulkExecutor(threads)) {
+                for (CxProject cxProject : projects) {
+                    ProjectRecord record = new ProjectRecord(cxProject, teamNames, customFieldNames);
+                    executor.submit(() -> {
+                        try {
+                            LocalDateTime lastScanDate = cxService.getLastScanDate(record.id);
+                            record.lastScanDate = lastScanDate != null ? lastScanDate.toString() : null;
+                        } catch (Exception e) {
+                            log.debug("export: {}: {}", record.id, e.getMessage(), e);
+                            errorCount.incrementAndGet();
+                            record.error = e.getMessage();
+                        }
+                        records.write(record);
+                        return null;
+                    });
+                }
+            }
+            records.checkFailure();
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("export: %s: error writing inventory: %s",
+                    output, ioe.getMessage()));
+        }
+
+        log.info("export: exported {} teams and {} projects ({} errors)", teams.size(), projects.size(),
+                errorCount.get());
+        return errorCount.get() == 0 ? CommandLine.ExitCode.OK : CommandLine.ExitCode.SOFTWARE;
+    }
+
+    /**
+     * A team in the inventory
+     */
+    static class TeamRecord {
+        public final String type = "team";
+        public final String id;
+        public final String name;
+
+        TeamRecord(MetadataCache.Team team) {
+            this.id = team.id;
+            this.name = team.fullName;
+        }
+    }
+
+    /**
+     * A project in the inventory. A record with an error records a project
+     * whose last scan date could not be retrieved.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class ProjectRecord {
+        public final String type = "project";
+        public final Integer id;
+        public final String name;
+        public final String teamId;
+        public final String team;
+        public final Map<String, String> customFields = new LinkedHashMap<>();
+        public String lastScanDate;
+        public String error;
+
+        ProjectRecord(CxProject cxProject, Map<String, String> teamNames, Map<Integer, String> customFieldNames) {
+            this.id = cxProject.getId();
+            this.name = cxProject.getName();
+            this.teamId = cxProject.getTeamId();
+            this.team = teamNames.get(cxProject.getTeamId());
+            if (cxProject.customFields != null) {
+                for (CxProject.CustomField cf : cxProject.customFields) {
+                    String name = customFieldNames.getOrDefault(cf.id, cf.name);
+                    customFields.put(name != null ? name : String.valueOf(cf.id), cf.value);
+                }
+            }
+        }
+    }
+}
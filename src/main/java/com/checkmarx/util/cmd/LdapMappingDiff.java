@@ -0,0 +1,243 @@
+package com.checkmarx.util.cmd;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The changes needed to bring the LDAP group mappings of a set of teams
+ * (or roles) from their current state to a desired state.
+ * <p>
+ * Only the teams (or roles) named in the desired state are considered:
+ * the mappings of any others on the same LDAP server are left alone.
+ * Group DNs are compared ignoring case and surrounding white space.
+ */
+public class LdapMappingDiff {
+
+    /**
+     * A mapping of an LDAP group to a team (or role)
+     */
+    public static class Mapping {
+        private final Integer ldapServerId;
+        private final String targetId;
+        private final String dn;
+
+        public Mapping(Integer ldapServerId, String targetId, String dn) {
+            this.ldapServerId = ldapServerId;
+            this.targetId = targetId;
+            this.dn = dn;
+        }
+
+        public Integer getLdapServerId() {
+            return ldapServerId;
+        }
+
+        public String getTargetId() {
+            return targetId;
+        }
+
+        public String getDn() {
+            return dn;
+        }
+
+        private String scope() {
+            return ldapServerId + "\u0000" + targetId;
+        }
+
+        private String key() {
+            return scope() + "\u0000" + dn.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * An operation which adds or removes a mapping
+     */
+    @FunctionalInterface
+    public interface MappingAction {
+        void apply(Mapping mapping) throws Exception;
+    }
+
+    /**
+     * The outcome of a change to a mapping
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Change {
+        static final String ADD = "add";
+        static final String REMOVE = "remove";
+        static final String PLANNED = "planned";
+        static final String APPLIED = "applied";
+        static final String FAILED = "failed";
+
+        public String action;
+        public String ldapServer;
+        public String team;
+        public String role;
+        public String dn;
+        public String status;
+        public String message;
+    }
+
+    private final List<Mapping> additions = new ArrayList<>();
+    private final List<Mapping> removals = new ArrayList<>();
+    private int unchanged = 0;
+
+    /**
+     * Compute the changes.
+     *
+     * @param current the current mappings (of any teams or roles)
+     * @param desired the desired group DNs, keyed by LDAP server identifier
+     *                and then by team (or role) identifier
+     */
+    public LdapMappingDiff(Collection<Mapping> current, Map<Integer, Map<String, List<String>>> desired) {
+        Set<String> scopes = new HashSet<>();
+        Map<String, Mapping> wanted = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Map<String, List<String>>> server : desired.entrySet()) {
+            for (Map.Entry<String, List<String>> target : server.getValue().entrySet()) {
+                for (String dn : target.getValue()) {
+                    Mapping mapping = new Mapping(server.getKey(), target.getKey(), dn.trim());
+                    wanted.putIfAbsent(mapping.key(), mapping);
+                }
+                scopes.add(new Mapping(server.getKey(), target.getKey(), "").scope());
+            }
+        }
+
+        Set<String> seen = new HashSet<>();
+        for (Mapping mapping : current) {
+            if (!scopes.contains(mapping.scope()) || !seen.add(mapping.key())) {
+                continue;
+            }
+            if (wanted.remove(mapping.key()) != null) {
+                unchanged++;
+            } else {
+                removals.add(mapping);
+            }
+        }
+        additions.addAll(wanted.values());
+    }
+
+    /**
+     * @return the mappings to add
+     */
+    public List<Mapping> getAdditions() {
+        return additions;
+    }
+
+    /**
+     * @return the mappings to remove (with the group DNs as the server has them)
+     */
+    public List<Mapping> getRemovals() {
+        return removals;
+    }
+
+    /**
+     * @return the number of desired mappings which already exist
+     */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return true if no changes are needed
+     */
+    public boolean isEmpty() {
+        return additions.isEmpty() && removals.isEmpty();
+    }
+
+    /**
+     * Apply the changes, or only describe them for a dry run. The changes
+     * to each team (or role) are applied in order, the removals first, by
+     * a single task; the changes to different teams (or roles) are applied
+     * concurrently. A record describing each change is written as it
+     * completes and a change which fails does not stop the others.
+     *
+     * @param threads  the number of teams (or roles) changed concurrently
+     * @param dryRun   describe the changes without applying them
+     * @param results  where the change records are written
+     * @param describe creates the record of a change to a mapping (the
+     *                 action and the status are filled in)
+     * @param add      adds a mapping
+     * @param remove   removes a mapping
+     * @return the number of changes which failed
+     * @throws IOException if a change record cannot be written
+     */
+    public int apply(int threads, boolean dryRun, NdjsonWriter results, Function<Mapping, Change> describe,
+                     MappingAction add, MappingAction remove) throws IOException {
+        if (dryRun) {
+            for (Mapping mapping : removals) {
+                results.write(change(describe, Change.REMOVE, mapping, Change.PLANNED, null));
+            }
+            for (Mapping mapping : additions) {
+                results.write(change(describe, Change.ADD, mapping, Change.PLANNED, null));
+            }
+            return 0;
+        }
+
+        Map<String, List<Mapping>> removalsByTarget = groupByTarget(removals);
+        Map<String, List<Mapping>> additionsByTarget = groupByTarget(additions);
+        Set<String> targets = new LinkedHashSet<>(removalsByTarget.keySet());
+        targets.addAll(additionsByTarget.keySet());
+        AtomicInteger failures = new AtomicInteger();
+        try (BulkExecutor executor = new BulkExecutor(threads)) {
+            for (String target : targets) {
+                List<Mapping> targetRemovals = removalsByTarget.getOrDefault(target, Collections.emptyList());
+                List<Mapping> targetAdditions = additionsByTarget.getOrDefault(target, Collections.emptyList());
+                executor.submit(() -> {
+                    for (Mapping mapping : targetRemovals) {
+                        applyChange(describe, Change.REMOVE, mapping, remove, results, failures);
+                    }
+                    for (Mapping mapping : targetAdditions) {
+                        applyChange(describe, Change.ADD, mapping, add, results, failures);
+                    }
+                    return null;
+                });
+            }
+        }
+        results.checkFailure();
+        return failures.get();
+    }
+
+    private static Map<String, List<Mapping>> groupByTarget(List<Mapping> mappings) {
+        Map<String, List<Mapping>> byTarget = new LinkedHashMap<>();
+        for (Mapping mapping : mappings) {
+            byTarget.computeIfAbsent(mapping.getTargetId(), k -> new ArrayList<>()).add(mapping);
+        }
+        return byTarget;
+    }
+
+    private static Void applyChange(Function<Mapping, Change> describe, String action, Mapping mapping,
+                                    MappingAction operation, NdjsonWriter results, AtomicInteger failures)
+            throws IOException {
+        Change change;
+        try {
+            operation.apply(mapping);
+            change = change(describe, action, mapping, Change.APPLIED, null);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            change = change(describe, action, mapping, Change.FAILED, e.getMessage());
+        }
+        results.write(change);
+        return null;
+    }
+
+    private static Change change(Function<Mapping, Change> describe, String action, Mapping mapping,
+                                 String status, String message) {
+        Change change = describe.apply(mapping);
+        change.action = action;
+        change.dn = mapping.getDn();
+        change.status = status;
+        change.message = message;
+        return change;
+    }
+}
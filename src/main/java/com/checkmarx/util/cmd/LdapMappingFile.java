@@ -0,0 +1,92 @@
+package com.checkmarx.util.cmd;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The desired LDAP group mappings of teams or roles, read from a YAML (or
+ * JSON) file of the form:
+ * <pre>
+ * ldap-server-name:
+ *   team-or-role:
+ *     - CN=Group,DC=example,DC=com
+ * </pre>
+ * Each LDAP server maps the name of a team (or role) to the distinguished
+ * names of the groups which should be mapped to it. An empty list means
+ * that the team (or role) should have no mappings on that server.
+ */
+public class LdapMappingFile {
+
+    private LdapMappingFile() {
+    }
+
+    /**
+     * Read a desired state file.
+     *
+     * @param pathname the pathname ("-" for standard input)
+     * @return the group DNs, keyed by LDAP server name and then by team (or role)
+     * @throws IOException if the file cannot be read or is not in the expected form
+     */
+    public static Map<String, Map<String, List<String>>> read(String pathname) throws IOException {
+        Object document;
+        try (Reader reader = CmdUtil.openInput(pathname)) {
+            document = new Yaml(new SafeConstructor()).load(reader);
+        } catch (YAMLException ye) {
+            throw new IOException(String.format("%s: %s", pathname, ye.getMessage()), ye);
+        }
+        if (document == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Map<String, List<String>>> mappings = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> server : asMap(pathname, document, "the document").entrySet()) {
+            String ldapServer = String.valueOf(server.getKey());
+            Map<String, List<String>> targets = new LinkedHashMap<>();
+            if (server.getValue() != null) {
+                for (Map.Entry<?, ?> target : asMap(pathname, server.getValue(), ldapServer).entrySet()) {
+                    targets.put(String.valueOf(target.getKey()),
+                            asDnList(pathname, target.getValue(), ldapServer + ": " + target.getKey()));
+                }
+            }
+            mappings.put(ldapServer, targets);
+        }
+        return mappings;
+    }
+
+    private static Map<?, ?> asMap(String pathname, Object value, String location) throws IOException {
+        if (!(value instanceof Map)) {
+            throw new IOException(String.format("%s: %s: expected a mapping", pathname, location));
+        }
+        return (Map<?, ?>) value;
+    }
+
+    private static List<String> asDnList(String pathname, Object value, String location) throws IOException {
+        List<String> dns = new ArrayList<>();
+        if (value == null) {
+            return dns;
+        }
+        if (value instanceof String) {
+            dns.add((String) value);
+            return dns;
+        }
+        if (!(value instanceof List)) {
+            throw new IOException(String.format("%s: %s: expected a list of group DNs", pathname, location));
+        }
+        for (Object dn : (List<?>) value) {
+            if (!(dn instanceof String) || ((String) dn).trim().isEmpty()) {
+                throw new IOException(String.format("%s: %s: %s: invalid group DN", pathname, location, dn));
+            }
+            dns.add((String) dn);
+        }
+        return dns;
+    }
+}
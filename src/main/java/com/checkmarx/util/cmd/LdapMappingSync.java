@@ -0,0 +1,168 @@
+package com.checkmarx.util.cmd;
+
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.util.cache.MetadataCache;
+import org.slf4j.Logger;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Makes the LDAP group mappings of the teams (or roles) named in a desired
+ * state file match it. This is the flow shared by the team and role
+ * sync-ldap commands, which supply the way a team (or role) is resolved,
+ * its current mappings are read and a mapping is added or removed.
+ * <p>
+ * The LDAP servers and teams (or roles) are resolved once, the current
+ * mappings are read once for each LDAP server and only the mappings which
+ * differ are added or removed (see {@link LdapMappingDiff}). A record
+ * describing each change is written as newline delimited JSON.
+ */
+class LdapMappingSync {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(LdapMappingSync.class);
+
+    /**
+     * A team (or role) named in the desired state
+     */
+    static class Target {
+        final String id;
+        final String name;
+
+        /**
+         * @param id   the identifier of the team (or role)
+         * @param name the name recorded in the change records and passed to the actions
+         */
+        Target(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Resolves the name of a team (or role) in the desired state
+     */
+    @FunctionalInterface
+    interface TargetResolver {
+        /**
+         * @param name the name in the desired state
+         * @return the team (or role)
+         * @throws CheckmarxException if there is no such team (or role)
+         */
+        Target resolve(String name) throws CheckmarxException;
+    }
+
+    /**
+     * Reads the current mappings of every team (or role) on an LDAP server
+     */
+    @FunctionalInterface
+    interface MappingReader {
+        List<LdapMappingDiff.Mapping> read(Integer ldapServerId) throws CheckmarxException;
+    }
+
+    /**
+     * Adds or removes a mapping of a team (or role)
+     */
+    @FunctionalInterface
+    interface TargetAction {
+        void apply(LdapMappingDiff.Mapping mapping, String targetName) throws Exception;
+    }
+
+    private final MetadataCache metadataCache;
+    private final TargetResolver resolver;
+    private final MappingReader reader;
+    private final BiConsumer<LdapMappingDiff.Change, String> label;
+    private final TargetAction add;
+    private final TargetAction remove;
+
+    /**
+     * @param metadataCache the metadata cache (used to resolve the LDAP servers)
+     * @param resolver      resolves the teams (or roles)
+     * @param reader        reads the current mappings on an LDAP server
+     * @param label         records the name of the team (or role) in a change record
+     * @param add           adds a mapping
+     * @param remove        removes a mapping
+     */
+    LdapMappingSync(MetadataCache metadataCache, TargetResolver resolver, MappingReader reader,
+                    BiConsumer<LdapMappingDiff.Change, String> label, TargetAction add, TargetAction remove) {
+        this.metadataCache = metadataCache;
+        this.resolver = resolver;
+        this.reader = reader;
+        this.label = label;
+        this.add = add;
+        this.remove = remove;
+    }
+
+    /**
+     * Make the mappings match a desired state file.
+     *
+     * @param file    the desired state file ("-" for standard input)
+     * @param dryRun  describe the changes without making them
+     * @param threads the number of teams (or roles) changed concurrently
+     * @param out     where the change records are written
+     * @return the exit status (non-zero if any change failed)
+     * @throws CheckmarxException if the file cannot be read, names an unknown team, role or LDAP server, or the SDK throws this exception
+     */
+    int sync(String file, boolean dryRun, int threads, PrintWriter out) throws CheckmarxException {
+        Map<String, Map<String, List<String>>> desiredState;
+        try {
+            desiredState = LdapMappingFile.read(file);
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("syncLdapMappings: error reading desired state: %s",
+                    ioe.getMessage()));
+        }
+
+        Map<Integer, String> serverNames = new HashMap<>();
+        Map<String, String> targetNames = new HashMap<>();
+        Map<Integer, Map<String, List<String>>> desired = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, List<String>>> server : desiredState.entrySet()) {
+            Integer serverId = metadataCache.getLdapServerId(server.getKey());
+            if (serverId == null || serverId <= 0) {
+                log.error("LDAP Server {} not found ", server.getKey());
+                throw new CheckmarxException(String.format("%s: LDAP Server not found", server.getKey()));
+            }
+            serverNames.put(serverId, server.getKey());
+            Map<String, List<String>> targets = desired.computeIfAbsent(serverId, k -> new LinkedHashMap<>());
+            for (Map.Entry<String, List<String>> entry : server.getValue().entrySet()) {
+                Target target = resolver.resolve(entry.getKey());
+                targetNames.put(target.id, target.name);
+                targets.computeIfAbsent(target.id, k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+        }
+
+        List<LdapMappingDiff.Mapping> current = new ArrayList<>();
+        for (Integer serverId : desired.keySet()) {
+            current.addAll(reader.read(serverId));
+        }
+        LdapMappingDiff diff = new LdapMappingDiff(current, desired);
+        log.info("syncLdapMappings: {} mappings to add, {} to remove, {} unchanged",
+                diff.getAdditions().size(), diff.getRemovals().size(), diff.getUnchanged());
+
+        int failures;
+        try {
+            failures = diff.apply(threads, dryRun, new NdjsonWriter(out),
+                    mapping -> {
+                        LdapMappingDiff.Change change = new LdapMappingDiff.Change();
+                        change.ldapServer = serverNames.get(mapping.getLdapServerId());
+                        label.accept(change, targetNames.get(mapping.getTargetId()));
+                        return change;
+                    },
+                    mapping -> add.apply(mapping, targetNames.get(mapping.getTargetId())),
+                    mapping -> remove.apply(mapping, targetNames.get(mapping.getTargetId())));
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("syncLdapMappings: error writing changes: %s",
+                    ioe.getMessage()));
+        }
+        if (failures > 0) {
+            log.error("syncLdapMappings: {} changes failed", failures);
+            return CommandLine.ExitCode.SOFTWARE;
+        }
+        return CommandLine.ExitCode.OK;
+    }
+}
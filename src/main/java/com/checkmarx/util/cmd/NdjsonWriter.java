@@ -0,0 +1,64 @@
+package com.checkmarx.util.cmd;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes records as newline delimited JSON (one JSON document per line).
+ * <p>
+ * Each record is flushed as soon as it has been written and writes are
+ * serialised so that one writer can be shared by concurrent tasks. The
+ * first write which fails is remembered, so that a command whose tasks
+ * write the records can fail once the tasks have completed (see
+ * {@link #checkFailure()}).
+ */
+public class NdjsonWriter implements Flushable {
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    private final Writer writer;
+    private IOException failure;
+
+    public NdjsonWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write a record.
+     *
+     * @param record the record (any object that Jackson can serialise)
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void write(Object record) throws IOException {
+        try {
+            writer.write(mapper.writeValueAsString(record));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException ioe) {
+            if (failure == null) {
+                failure = ioe;
+            }
+            throw ioe;
+        }
+    }
+
+    /**
+     * Throw the exception thrown by the first write which failed, if any.
+     *
+     * @throws IOException if a record could not be written
+     */
+    public synchronized void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+}
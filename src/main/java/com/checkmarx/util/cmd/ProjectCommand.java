@@ -1,12 +1,14 @@
 package com.checkmarx.util.cmd;
 
 import com.checkmarx.sdk.config.CxProperties;
-import com.checkmarx.sdk.dto.cx.CxCustomField;
 import com.checkmarx.sdk.dto.cx.CxProject;
-import com.checkmarx.sdk.dto.cx.CxTeam;
 import com.checkmarx.sdk.exception.CheckmarxException;
 import com.checkmarx.sdk.service.CxService;
+import com.checkmarx.util.cache.MetadataCache;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.slf4j.Logger;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import picocli.CommandLine;
@@ -16,13 +18,21 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Spec;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.checkmarx.util.cmd.CmdUtil.addTeamPathSeparatorPrefix;
+import static com.checkmarx.util.cmd.CmdUtil.checkThreads;
+import static com.checkmarx.util.cmd.CmdUtil.openInput;
 
 /**
  * Command for project based operations within Checkmarx
@@ -33,10 +43,8 @@ public class ProjectCommand implements Callable<Integer> {
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(ProjectCommand.class);
     private final CxService cxService;
     private final CxProperties cxProperties;
-
-    // In some cases the SDK returns an integer, in others a string ...
-    private final static int UNKNOWN_INT = -1;
-    private final static String UNKNOWN_STR = "-1";
+    private final MetadataCache metadataCache;
+    private final ProjectResolver projectResolver;
 
     @Spec
     private CommandSpec spec;
@@ -58,12 +66,17 @@ public class ProjectCommand implements Callable<Integer> {
     /**
      * TeamCommand Constructor for team based operations against Checkmarx
      *
-     * @param cxService    the SDK client
-     * @param cxProperties the SDK configuration
+     * @param cxService       the SDK client
+     * @param cxProperties    the SDK configuration
+     * @param metadataCache   the metadata cache
+     * @param projectResolver the project resolver
      */
-    public ProjectCommand(CxService cxService, CxProperties cxProperties) {
+    public ProjectCommand(@Lazy CxService cxService, CxProperties cxProperties, MetadataCache metadataCache,
+                                ProjectResolver projectResolver) {
         this.cxService = cxService;
         this.cxProperties = cxProperties;
+        this.metadataCache = metadataCache;
+        this.projectResolver = projectResolver;
     }
 
     /**
@@ -75,72 +88,225 @@ public class ProjectCommand implements Callable<Integer> {
     public Integer call() throws Exception {
         log.info("Calling role command");
 
-        CommandLine.usage(spec, System.err);
+        spec.commandLine().usage(spec.commandLine().getErr());
         return CommandLine.ExitCode.USAGE;
     }
 
     /**
-     * Set a project's custom fields
+     * Set a project's custom fields, or those of every project in a manifest
      *
-     * @param strict  fail if an unrecognized custom field is supplied
-     * @param team    the team to which the project belongs
-     * @param project the project
-     * @throws CheckmarxException
+     * @param strict       fail if an unrecognized custom field is supplied
+     * @param team         the team to which the project belongs
+     * @param manifest     the manifest of projects and custom fields
+     * @param threads      the number of concurrent updates when processing a manifest
+     * @param project      the project
+     * @param customFields the custom fields as name=value pairs
+     * @return the exit status
+     * @throws CheckmarxException if the project cannot be updated
      */
     @Command(name = "set-custom-fields", description = "Set a project's custom fields")
-    private void setCustomFields(
+    private int setCustomFields(
             @Option(names = {"-s", "--strict"}, description = "Fail if unrecognised custom field specified") Boolean strict,
             @Option(names = {"-t", "--team"}, description = "The team to which the project belongs") String team,
-            @Parameters(paramLabel = "Project", description = "The project name, optionally qualified by the team") String project,
-            @Parameters(paramLabel = "Custom fields", arity = "1..*", description = "One or more name=value pairs") String[] customFields
+            @Option(names = {"--from"}, paramLabel = "<file>",
+                    description = "Read project, team and custom field rows from a CSV or NDJSON manifest (\"-\" for standard input)") String manifest,
+            @Option(names = {"--threads"}, defaultValue = "4",
+                    description = "The number of concurrent updates when using --from (default: ${DEFAULT-VALUE})") int threads,
+            @Parameters(paramLabel = "Project", arity = "0..1", description = "The project name, optionally qualified by the team") String project,
+            @Parameters(paramLabel = "Custom fields", arity = "0..*", description = "One or more name=value pairs") String[] customFields
     ) throws CheckmarxException {
         log.info("Calling project set-custom-fields command");
-        log.debug("setCustomFields: strict: {}, team: {}, project: {}, customFields: {}",
-                strict, team, project, customFields);
+        checkThreads(threads);
+        log.debug("setCustomFields: strict: {}, team: {}, manifest: {}, threads: {}, project: {}, customFields: {}",
+                strict, team, manifest, threads, project, customFields);
+        boolean isStrict = strict != null && strict;
 
-        CxProject cxProject = getCxProject(project, team);
+        if (manifest != null) {
+            if (project != null) {
+                throw new CheckmarxException("setCustomFields: a project cannot be specified with --from");
+            }
+            return setCustomFieldsFromManifest(manifest, team, isStrict, threads);
+        }
+        if (project == null || customFields == null || customFields.length == 0) {
+            throw new CheckmarxException("setCustomFields: a project and at least one custom field must be specified");
+        }
 
-        List<CxCustomField> cxCustomFields = cxService.getCustomFields();
-        log.debug("setCustomFields: cxCustomFields: {}", cxCustomFields);
-        List<CxProject.CustomField> customFieldList = new ArrayList<>();
+        Map<String, String> fields = new LinkedHashMap<>();
         for (String customField : customFields) {
             String[] parts = customField.split("=", 2);
-            String customFieldName = parts[0];
-            String customFieldValue = parts[1];
-            CxProject.CustomField cf = new CxProject.CustomField();
-            for (CxCustomField ccf : cxCustomFields) {
-                if (ccf.name.equalsIgnoreCase(customFieldName)) {
-                    cf.id = ccf.id;
-                    break;
-                }
+            if (parts.length != 2) {
+                throw new CheckmarxException(String.format("%s: expected name=value", customField));
+            }
+            fields.put(parts[0], parts[1]);
+        }
+
+        CxProject cxProject = getCxProject(project, team);
+
+        CustomFieldCatalogue catalogue = new CustomFieldCatalogue(metadataCache.getCustomFields());
+        log.debug("setCustomFields: {} custom fields defined", catalogue.size());
+        if (!updateCustomFields(cxProject, fields, catalogue, isStrict)) {
+            log.info("No valid custom fields provided");
+        }
+        return CommandLine.ExitCode.OK;
+    }
+
+    /**
+     * Set the custom fields of every project in a manifest. The custom field
+     * catalogue and the team identifiers are retrieved once, the updates are
+     * run concurrently and an NDJSON record describing the outcome of each
+     * row is written to standard output. Rows for the same project are
+     * applied one after another, in manifest order, so the last row wins.
+     * A row which fails does not stop the processing of the remaining rows.
+     *
+     * @param manifest    the manifest pathname
+     * @param defaultTeam the team used for rows which do not specify one
+     * @param strict      fail a row if it specifies an unrecognised custom field
+     * @param threads     the number of concurrent updates
+     * @return the exit status (non-zero if any row failed)
+     * @throws CheckmarxException if the manifest cannot be read or the SDK throws this exception
+     */
+    private int setCustomFieldsFromManifest(String manifest, String defaultTeam, boolean strict, int threads)
+            throws CheckmarxException {
+        CustomFieldCatalogue catalogue = new CustomFieldCatalogue(metadataCache.getCustomFields());
+        log.debug("setCustomFieldsFromManifest: {} custom fields defined", catalogue.size());
+        NdjsonWriter results = new NdjsonWriter(spec.commandLine().getOut());
+        AtomicInteger rowCount = new AtomicInteger();
+        AtomicInteger failureCount = new AtomicInteger();
+
+        try (CustomFieldManifest rows = CustomFieldManifest.open(manifest);
+             BulkExecutor executor = new BulkExecutor(threads)) {
+            CustomFieldManifest.Row row;
+            while ((row = rows.next()) != null) {
+                CustomFieldManifest.Row r = row;
+                rowCount.incrementAndGet();
+                executor.submit(getProjectKey(r.getProject(), r.getTeam() != null ? r.getTeam() : defaultTeam), () -> {
+                    RowResult result = setCustomFields(r, defaultTeam, strict, catalogue);
+                    if (RowResult.FAILED.equals(result.status)) {
+                        failureCount.incrementAndGet();
+                    }
+                    results.write(result);
+                    return null;
+                });
+            }
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("setCustomFields: %s: error reading manifest: %s",
+                    manifest, ioe.getMessage()));
+        }
+        try {
+            results.checkFailure();
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("setCustomFields: error writing results: %s",
+                    ioe.getMessage()));
+        }
+
+        log.info("setCustomFields: processed {} rows ({} failed)", rowCount.get(), failureCount.get());
+        return failureCount.get() == 0 ? CommandLine.ExitCode.OK : CommandLine.ExitCode.SOFTWARE;
+    }
+
+    /**
+     * Return a key for the project named by a manifest row, splitting and
+     * qualifying the name as the project resolver does, so that rows which
+     * name a project in slightly different ways are still applied in order.
+     */
+    private List<String> getProjectKey(String project, String team) {
+        if (project != null) {
+            String separator = cxProperties.getTeamPathSeparator();
+            int index = project.lastIndexOf(separator);
+            if (index >= 0) {
+                team = project.substring(0, index);
+                project = project.substring(index + separator.length());
             }
+        }
+        return Arrays.asList(team != null ? addTeamPathSeparatorPrefix(cxProperties, team) : null, project);
+    }
+
+    private RowResult setCustomFields(CustomFieldManifest.Row row, String defaultTeam, boolean strict,
+                                      CustomFieldCatalogue catalogue) {
+        RowResult result = new RowResult();
+        result.row = row.getNumber();
+        result.project = row.getProject();
+        result.team = row.getTeam() != null ? row.getTeam() : defaultTeam;
+        if (row.getError() != null) {
+            result.status = RowResult.FAILED;
+            result.message = row.getError();
+            return result;
+        }
+        try {
+            CxProject cxProject = getCxProject(result.project, result.team);
+            result.status = updateCustomFields(cxProject, row.getFields(), catalogue, strict)
+                    ? RowResult.UPDATED : RowResult.SKIPPED;
+        } catch (Exception e) {
+            log.debug("setCustomFields: row {}: {}", row.getNumber(), e.getMessage(), e);
+            result.status = RowResult.FAILED;
+            result.message = e.getMessage();
+        }
+        return result;
+    }
+
+    /**
+     * Update a project's custom fields.
+     *
+     * @param cxProject the project
+     * @param fields    the custom field values, keyed by custom field name
+     * @param catalogue the custom fields defined on the server
+     * @param strict    fail if an unrecognised custom field is supplied
+     * @return true if the project was updated, false if there were no valid custom fields
+     * @throws CheckmarxException if an unrecognised field is supplied in strict mode or the SDK throws this exception
+     */
+    private boolean updateCustomFields(CxProject cxProject, Map<String, String> fields,
+                                       CustomFieldCatalogue catalogue, boolean strict) throws CheckmarxException {
+        List<CxProject.CustomField> customFieldList = new ArrayList<>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            String customFieldName = field.getKey();
+            CxProject.CustomField cf = new CxProject.CustomField();
+            cf.id = catalogue.getId(customFieldName);
             if (cf.id == null) {
-                if (strict != null && strict) {
+                if (strict) {
                     throw new CheckmarxException(String.format("%s: unrecognised custom field", customFieldName));
                 } else {
                     log.warn("{}: skipping unrecognised custom field", customFieldName);
                     continue;
                 }
             }
-            cf.value = customFieldValue;
+            cf.value = field.getValue();
             customFieldList.add(cf);
         }
 
-        if (!customFieldList.isEmpty()) {
-            cxProject.customFields = customFieldList;
-            cxService.updateProjectCustomFields(cxProject);
-        } else {
-            log.info("No valid custom fields provided");
+        if (customFieldList.isEmpty()) {
+            return false;
         }
+        cxProject.customFields = customFieldList;
+        cxService.updateProjectCustomFields(cxProject);
+        return true;
     }
 
     /**
-     * Check whether a full scan should be forced for the specified project.
+     * The outcome of processing a row of a custom field manifest
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class RowResult {
+        static final String UPDATED = "updated";
+        static final String SKIPPED = "skipped";
+        static final String FAILED = "failed";
+
+        public int row;
+        public String project;
+        public String team;
+        public String status;
+        public String message;
+    }
+
+    /**
+     * Check whether a full scan should be forced for the specified project
+     * or, with --projects, for each of a list of projects.
      *
      * @param duration the maximum amount of elapsed time since the last full scan
      * @param team     the team to which the project belongs
      * @param units    the units by which the duration is measured (if null, days are used)
+     * @param projects the pathname of a file listing the projects, one per line ("-" for standard input)
+     * @param threads  the number of projects evaluated concurrently when using --projects
      * @param project  the project
+     * @return the exit status
      * @throws CheckmarxException if more than one matching project is found
      */
     @Command(name = "force-full-scan", description = "Indicate if a full scan is required")
@@ -148,51 +314,168 @@ public class ProjectCommand implements Callable<Integer> {
             @Option(names = {"-d", "--duration"}, description = "The duration since the last full scan") Integer duration,
             @Option(names = {"-t", "--team"}, description = "The team to which the project belongs") String team,
             @Option(names = {"-u", "--units"}, description = "The duration units (default is days)") String units,
-            @Parameters(paramLabel = "Project") String project
+            @Option(names = {"-P", "--projects"}, paramLabel = "<file>",
+                    description = "Evaluate each project listed in the file, one per line (\"-\" for standard input)") String projects,
+            @Option(names = {"--threads"}, defaultValue = "4",
+                    description = "The number of projects evaluated concurrently when using --projects (default: ${DEFAULT-VALUE})") int threads,
+            @Parameters(paramLabel = "Project", arity = "0..1") String project
     ) throws CheckmarxException {
         log.info("Calling project force-full-scan command");
+        checkThreads(threads);
         // Currently, duration must be specified but, maybe, in the future,
         // we will want to add other criteria for forcing a full scan which
         // is why it is an option and not a parameter.
         if (duration == null) {
             throw new CheckmarxException("forceFullScan: duration must be specified");
         }
-        List<CxProject> cxProjects = getCxProjects(project, team);
-        CxProject cxProject = null;
-        switch (cxProjects.size()) {
+        if ((project == null) == (projects == null)) {
+            throw new CheckmarxException("forceFullScan: either a project or --projects must be specified");
+        }
+        ChronoUnit chronoUnit = ChronoUnit.DAYS;
+        if (units != null) {
+            chronoUnit = ChronoUnit.valueOf(units.toUpperCase());
+        }
+        log.debug("forceFullScan: chronoUnit: {}", chronoUnit);
+
+        if (projects != null) {
+            return forceFullScan(projects, team, duration, chronoUnit, threads);
+        }
+        return evaluateFullScan(project, team, duration, chronoUnit).status.getExitStatus();
+    }
+
+    /**
+     * Check whether a full scan should be forced for each of a list of
+     * projects. The projects are evaluated concurrently and a line of JSON
+     * describing the decision for each project is written to standard
+     * output as soon as it is made.
+     *
+     * @param projects    the pathname of the file listing the projects ("-" for standard input)
+     * @param defaultTeam the team used for projects which are not qualified by a team
+     * @param duration    the maximum amount of elapsed time since the last full scan
+     * @param chronoUnit  the units by which the duration is measured
+     * @param threads     the number of projects evaluated concurrently
+     * @return the exit status (non-zero if any project could not be evaluated)
+     * @throws CheckmarxException if the list of projects cannot be read
+     */
+    private int forceFullScan(String projects, String defaultTeam, int duration, ChronoUnit chronoUnit, int threads)
+            throws CheckmarxException {
+        NdjsonWriter decisions = new NdjsonWriter(spec.commandLine().getOut());
+        AtomicInteger projectCount = new AtomicInteger();
+        AtomicInteger errorCount = new AtomicInteger();
+
+        try (BufferedReader reader = openInput(projects);
+             BulkExecutor executor = new BulkExecutor(threads)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String project = line.trim();
+                if (project.isEmpty() || project.startsWith("#")) {
+                    continue;
+                }
+                projectCount.incrementAndGet();
+                executor.submit(() -> {
+                    FullScanDecision decision;
+                    try {
+                        decision = evaluateFullScan(project, defaultTeam, duration, chronoUnit);
+                    } catch (Exception e) {
+                        log.debug("forceFullScan: {}: {}", project, e.getMessage(), e);
+                        errorCount.incrementAndGet();
+                        decision = new FullScanDecision(project, null, null, e.getMessage());
+                    }
+                    decisions.write(decision);
+                    return null;
+                });
+            }
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("forceFullScan: %s: error reading projects: %s",
+                    projects, ioe.getMessage()));
+        }
+        try {
+            decisions.checkFailure();
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("forceFullScan: error writing decisions: %s",
+                    ioe.getMessage()));
+        }
+
+        log.info("forceFullScan: evaluated {} projects ({} errors)", projectCount.get(), errorCount.get());
+        return errorCount.get() == 0 ? CommandLine.ExitCode.OK : CommandLine.ExitCode.SOFTWARE;
+    }
+
+    /**
+     * Decide whether a full scan should be forced for a project.
+     *
+     * @param project    the project name (possibly qualified by the team name)
+     * @param team       the team name
+     * @param duration   the maximum amount of elapsed time since the last full scan
+     * @param chronoUnit the units by which the duration is measured
+     * @return the decision
+     * @throws CheckmarxException if more than one matching project is found
+     */
+    private FullScanDecision evaluateFullScan(String project, String team, int duration, ChronoUnit chronoUnit)
+            throws CheckmarxException {
+        List<Integer> projectIds = projectResolver.getProjectIds(project, team);
+        Integer projectId = null;
+        switch (projectIds.size()) {
             case 0:
                 // The assumption is that this program is being called as part of
                 // a larger process that will create the project if it does not
                 // exist in which case, by definition, it will not hae been scanned
                 // and so a full scan will be required.
                 log.info("forceFullScan: project not found: full scan required");
-                return ExitStatus.FULL_SCAN_REQUIRED.getExitStatus();
+                return new FullScanDecision(project, ExitStatus.FULL_SCAN_REQUIRED, null, "project not found");
             case 1:
-                cxProject = cxProjects.get(0);
+                projectId = projectIds.get(0);
                 break;
             default:
-                throw new CheckmarxException(String.format("Expected zero or one matches for \"%s\" (found %d)", project, cxProjects.size()));
-        }
-        ChronoUnit chronoUnit = ChronoUnit.DAYS;
-        if (units != null) {
-            chronoUnit = ChronoUnit.valueOf(units.toUpperCase());
+                throw new CheckmarxException(String.format("Expected zero or one matches for \"%s\" (found %d)", project, projectIds.size()));
         }
-        log.debug("forceFullScan: chronoUnit: {}", chronoUnit);
-        LocalDateTime lastScanDate = cxService.getLastScanDate(cxProject.id);
+        LocalDateTime lastScanDate = cxService.getLastScanDate(projectId);
         log.info("forceFullScan: Last scan date: {}", lastScanDate);
         if (lastScanDate == null) {
             log.info("forceFullScan: no last scan date: full scan required");
-            return ExitStatus.FULL_SCAN_REQUIRED.getExitStatus();
+            return new FullScanDecision(project, ExitStatus.FULL_SCAN_REQUIRED, null, "no previous full scan");
         }
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime then = now.minus(duration, chronoUnit);
         log.debug("forceFullScan: comparing last scan date with {}", then);
+        String period = String.format("%d %s", duration, chronoUnit.toString().toLowerCase());
         if (then.isAfter(lastScanDate)) {
             log.info("forceFullScan: full scan required");
-            return ExitStatus.FULL_SCAN_REQUIRED.getExitStatus();
+            return new FullScanDecision(project, ExitStatus.FULL_SCAN_REQUIRED, lastScanDate,
+                    String.format("last full scan more than %s ago", period));
         } else {
             log.info("forceFullScan: full scan not required");
-            return ExitStatus.FULL_SCAN_NOT_REQUIRED.getExitStatus();
+            return new FullScanDecision(project, ExitStatus.FULL_SCAN_NOT_REQUIRED, lastScanDate,
+                    String.format("last full scan within %s", period));
+        }
+    }
+
+    /**
+     * The decision whether to force a full scan of a project. A decision
+     * without a status records an error.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class FullScanDecision {
+        @JsonIgnore
+        final ExitStatus status;
+        public final String project;
+        public final String scan;
+        public final String lastFullScan;
+        public final String reason;
+        public final String error;
+
+        FullScanDecision(String project, ExitStatus status, LocalDateTime lastFullScan, String reason) {
+            this.project = project;
+            this.status = status;
+            this.lastFullScan = lastFullScan != null ? lastFullScan.toString() : null;
+            if (status == null) {
+                this.scan = null;
+                this.reason = null;
+                this.error = reason;
+            } else {
+                this.scan = status == ExitStatus.FULL_SCAN_REQUIRED ? "full" : "incremental";
+                this.reason = reason;
+                this.error = null;
+            }
         }
     }
 
@@ -207,12 +490,15 @@ public class ProjectCommand implements Callable<Integer> {
     private CxProject getCxProject(String project, String team) throws CheckmarxException {
         log.debug("getCxProject: project: {}, team: {}", project, team);
         CxProject cxProject = null;
-        List<CxProject> projects = getCxProjects(project, team);
-        switch (projects.size()) {
+        List<Integer> projectIds = projectResolver.getProjectIds(project, team);
+        switch (projectIds.size()) {
             case 0:
                 throw new CheckmarxException(String.format("getCxProject: %s: no matching project", project));
             case 1:
-                cxProject = projects.get(0);
+                cxProject = cxService.getProject(projectIds.get(0));
+                if (cxProject == null) {
+                    throw new CheckmarxException(String.format("getCxProject: %s: no matching project", project));
+                }
                 break;
             default:
                 throw new CheckmarxException(String.format("getCxProject: %s: project name is not unique", project));
@@ -221,68 +507,4 @@ public class ProjectCommand implements Callable<Integer> {
         log.debug("getCxProject: project with id {} found", cxProject.getId());
         return cxProject;
     }
-
-    /**
-     * Given a project name and an optional team name, return a list of
-     * matching projects.
-     *
-     * @param project the project name (possibly qualified by the team name)
-     * @param team    the team name
-     * @return the list of projects (which may be empty)
-     * @throws CheckmarxException if the underlying SDK throws this exception
-     */
-    private List<CxProject> getCxProjects(String project, String team) throws CheckmarxException {
-        log.debug("getCxProjects: project: {}, team: {}", project, team);
-        CxProject cxProject = null;
-
-        // If the project has been provided as <team>/<project>, split it.
-        int index = project.lastIndexOf(cxProperties.getTeamPathSeparator());
-        if (index >= 0) {
-            team = project.substring(0, index);
-            project = project.substring(index + 1);
-        }
-        log.debug("getCxProjects: project: {}, team: {}", project, team);
-
-        List<CxProject> cxProjects;
-        if (team != null) {
-            team = addTeamPathSeparatorPrefix(cxProperties, team);
-            String teamId = getTeamId(team);
-            if (UNKNOWN_STR.equals(teamId)) {
-                throw new CheckmarxException(String.format("getCxProjects: %s: no matching team", team));
-            }
-            cxProjects = new ArrayList<>();
-            Integer projectId = cxService.getProjectId(teamId, project);
-            if (UNKNOWN_INT != projectId) {
-                cxProject = cxService.getProject(projectId);
-                if (cxProject != null) {
-                    cxProjects.add(cxProject);
-                }
-            }
-        } else {
-            cxProjects = cxService.getProjects();
-        }
-
-        log.debug("getCxProjects: found {} matching projects", cxProjects.size());
-        return cxProjects;
-    }
-
-    private String getTeamId(String teamPath) throws CheckmarxException {
-        try {
-            List<CxTeam> teams = cxService.getTeams();
-            if (teams == null) {
-                throw new CheckmarxException("Error obtaining Team Id");
-            }
-            for (CxTeam team : teams) {
-                if (team.getFullName().equalsIgnoreCase(teamPath)) {
-                    log.debug("getTeamId: found team {} with ID {}", teamPath, team.getId());
-                    return team.getId();
-                }
-            }
-        } catch (Exception e) {
-            log.error("getTeamId: error retrieving teams", e);
-        }
-        log.info("No team was found for {}", teamPath);
-        return UNKNOWN_STR;
-
-    }
 }
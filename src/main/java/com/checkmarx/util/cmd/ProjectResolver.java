@@ -0,0 +1,102 @@
+package com.checkmarx.util.cmd;
+
+import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.sdk.service.CxService;
+import com.checkmarx.util.cache.MetadataCache;
+import com.checkmarx.util.cache.ProjectIndex;
+import com.checkmarx.util.cache.TeamIndex;
+import org.slf4j.Logger;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.checkmarx.util.cmd.CmdUtil.addTeamPathSeparatorPrefix;
+
+/**
+ * Resolves project names (optionally qualified by a team) to project
+ * identifiers for the commands which accept a project.
+ */
+@Component
+public class ProjectResolver {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ProjectResolver.class);
+    private static final int UNKNOWN_INT = -1;
+
+    private final CxService cxService;
+    private final CxProperties cxProperties;
+    private final TeamIndex teamIndex;
+    private final ProjectIndex projectIndex;
+
+    public ProjectResolver(@Lazy CxService cxService, CxProperties cxProperties, TeamIndex teamIndex,
+                                 ProjectIndex projectIndex) {
+        this.cxService = cxService;
+        this.cxProperties = cxProperties;
+        this.teamIndex = teamIndex;
+        this.projectIndex = projectIndex;
+    }
+
+    /**
+     * Given a project name and an optional team name, return the
+     * identifiers of the matching projects. If no team is specified, the
+     * project is looked up by name in the project index.
+     *
+     * @param project the project name (possibly qualified by the team name)
+     * @param team    the team name
+     * @return the list of project identifiers (which may be empty)
+     * @throws CheckmarxException if the team does not exist or the underlying SDK throws this exception
+     */
+    public List<Integer> getProjectIds(String project, String team) throws CheckmarxException {
+        log.debug("getProjectIds: project: {}, team: {}", project, team);
+
+        // If the project has been provided as <team>/<project>, split it.
+        int index = project.lastIndexOf(cxProperties.getTeamPathSeparator());
+        if (index >= 0) {
+            team = project.substring(0, index);
+            project = project.substring(index + 1);
+        }
+        log.debug("getProjectIds: project: {}, team: {}", project, team);
+
+        List<Integer> projectIds = new ArrayList<>();
+        if (team != null) {
+            team = addTeamPathSeparatorPrefix(cxProperties, team);
+            String teamId = teamIndex.getTeamId(team);
+            if (TeamIndex.UNKNOWN_TEAM_ID.equals(teamId)) {
+                throw new CheckmarxException(String.format("getProjectIds: %s: no matching team", team));
+            }
+            Integer projectId = cxService.getProjectId(teamId, project);
+            if (projectId != null && UNKNOWN_INT != projectId) {
+                projectIds.add(projectId);
+            }
+        } else {
+            for (MetadataCache.Project match : projectIndex.find(project)) {
+                projectIds.add(match.id);
+            }
+        }
+
+        log.debug("getProjectIds: found {} matching projects", projectIds.size());
+        return projectIds;
+    }
+
+    /**
+     * Given a project name and an optional team name, return the identifier
+     * of the single matching project.
+     *
+     * @param project the project name (possibly qualified by the team name)
+     * @param team    the team name
+     * @return the project identifier
+     * @throws CheckmarxException if there is no matching project or the project name is not unique
+     */
+    public Integer getProjectId(String project, String team) throws CheckmarxException {
+        List<Integer> projectIds = getProjectIds(project, team);
+        switch (projectIds.size()) {
+            case 0:
+                throw new CheckmarxException(String.format("getProjectId: %s: no matching project", project));
+            case 1:
+                return projectIds.get(0);
+            default:
+                throw new CheckmarxException(String.format("getProjectId: %s: project name is not unique", project));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.checkmarx.util.cmd;
+
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.util.cache.CacheProperties;
+import com.checkmarx.util.cache.ResultsStore;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Command for managing the local store of scan results (a subcommand of
+ * the results command)
+ */
+@Component
+@Command(name = "cache", description = "Manage the local store of scan results")
+public class ResultsCacheCommand implements Callable<Integer> {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ResultsCacheCommand.class);
+    private final ResultsStore resultsStore;
+    private final CacheProperties cacheProperties;
+
+    @Spec
+    private CommandSpec spec;
+
+    /**
+     * ResultsCacheCommand Constructor for managing the local results store
+     *
+     * @param resultsStore    the results store
+     * @param cacheProperties the cache configuration
+     */
+    public ResultsCacheCommand(ResultsStore resultsStore, CacheProperties cacheProperties) {
+        this.resultsStore = resultsStore;
+        this.cacheProperties = cacheProperties;
+    }
+
+    /**
+     * Dummy implementation of the call method to implement the Callable
+     * interface.
+     *
+     * @return CommandLine.ExitCode.USAGE
+     */
+    public Integer call() {
+        log.info("Calling results cache command");
+
+        spec.commandLine().usage(spec.commandLine().getErr());
+        return CommandLine.ExitCode.USAGE;
+    }
+
+    /**
+     * Remove the least recently used results until the store is no larger
+     * than the specified size.
+     *
+     * @param maxSize the maximum size of the store (default is cx-util.cache.results-max-size)
+     * @param all     remove all the stored results
+     * @throws CheckmarxException if the size is invalid or the store cannot be pruned
+     */
+    @Command(name = "prune", description = "Remove the least recently used results from the local store")
+    private void prune(
+            @Option(names = {"--max-size"}, description = "The maximum size of the store (for example, 500MB)") String maxSize,
+            @Option(names = {"--all"}, description = "Remove all the stored results") boolean all
+    ) throws CheckmarxException {
+        log.info("Calling results cache prune command");
+        long maxBytes;
+        if (all) {
+            maxBytes = 0;
+        } else if (maxSize != null) {
+            try {
+                maxBytes = DataSize.parse(maxSize).toBytes();
+            } catch (IllegalArgumentException iae) {
+                throw new CheckmarxException(String.format("prune: %s: invalid size", maxSize));
+            }
+        } else {
+            maxBytes = cacheProperties.getResultsMaxSize().toBytes();
+        }
+
+        try {
+            ResultsStore.PruneResult result = resultsStore.prune(maxBytes);
+            spec.commandLine().getOut().printf("Removed %d scans (%d bytes), %d scans (%d bytes) remain%n",
+                    result.removed, result.removedBytes, result.remaining, result.remainingBytes);
+            spec.commandLine().getOut().flush();
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("prune: error pruning results store: %s", ioe.getMessage()));
+        }
+    }
+}
@@ -4,11 +4,25 @@ import com.checkmarx.sdk.config.CxProperties;
 import com.checkmarx.sdk.dto.ScanResults;
 import com.checkmarx.sdk.exception.CheckmarxException;
 import com.checkmarx.sdk.service.CxService;
+import com.checkmarx.util.cache.MetadataCache;
+import com.checkmarx.util.cache.ResultsStore;
+import com.checkmarx.util.cache.TeamIndex;
+import com.checkmarx.util.results.CsvResultsWriter;
+import com.checkmarx.util.results.FingerprintSet;
+import com.checkmarx.util.results.JsonResultsWriter;
+import com.checkmarx.util.results.NdjsonResultsWriter;
+import com.checkmarx.util.results.ReportGenerator;
+import com.checkmarx.util.results.ResultsOutput;
+import com.checkmarx.util.results.ResultsSummary;
+import com.checkmarx.util.results.ResultsWriter;
+import com.checkmarx.util.results.ResultsWriterFactory;
+import com.checkmarx.util.results.SarifResultsWriter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.slf4j.Logger;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
@@ -16,11 +30,26 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Spec;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.checkmarx.util.cmd.CmdUtil.checkThreads;
+import static com.checkmarx.util.cmd.CmdUtil.openInput;
 
 /**
  * Command for results based operations within Checkmarx
@@ -31,23 +60,67 @@ public class ResultsCommand {
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(ResultsCommand.class);
     private final CxService cxService;
     private final CxProperties cxProperties;
+    private final ProjectResolver projectResolver;
+    private final ResultsStore resultsStore;
+    private final MetadataCache metadataCache;
+    private final TeamIndex teamIndex;
+    private final ReportGenerator reportGenerator;
 
     public enum OutputFormat {
+        JSON("json", JsonResultsWriter::new),
+        NDJSON("ndjson", NdjsonResultsWriter::new),
+        CSV("csv", CsvResultsWriter::new),
+        SARIF("sarif", SarifResultsWriter::new);
+
+        private final String extension;
+        private final ResultsWriterFactory factory;
+
+        OutputFormat(String extension, ResultsWriterFactory factory) {
+            this.extension = extension;
+            this.factory = factory;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public ResultsWriter newWriter(Writer writer) throws IOException {
+            return factory.create(writer);
+        }
+    }
+
+    public enum SummaryFormat {
+        TABLE,
         JSON
     }
 
+    public enum SummaryGrouping {
+        TEAM,
+        PROJECT
+    }
+
     @Spec
     private CommandSpec spec;
 
     /**
      * ResultsCommand Constructor for results operations against Checkmarx
      *
-     * @param cxService    the SDK client
-     * @param cxProperties the SDK configuration
+     * @param cxService       the SDK client
+     * @param cxProperties    the SDK configuration
+     * @param projectResolver the project resolver
+     * @param resultsStore    the local store of scan results
+     * @param metadataCache   the metadata cache
+     * @param teamIndex       the team index
      */
-    public ResultsCommand(CxService cxService, CxProperties cxProperties) {
+    public ResultsCommand(@Lazy CxService cxService, CxProperties cxProperties, ProjectResolver projectResolver,
+                                ResultsStore resultsStore, MetadataCache metadataCache, TeamIndex teamIndex) {
         this.cxService = cxService;
         this.cxProperties = cxProperties;
+        this.projectResolver = projectResolver;
+        this.resultsStore = resultsStore;
+        this.metadataCache = metadataCache;
+        this.teamIndex = teamIndex;
+        this.reportGenerator = new ReportGenerator(cxService);
     }
 
     /**
@@ -60,66 +133,479 @@ public class ResultsCommand {
     public Integer call() throws Exception {
         log.info("Calling results command");
 
-        CommandLine.usage(spec, System.err);
+        spec.commandLine().usage(spec.commandLine().getErr());
         return CommandLine.ExitCode.USAGE;
     }
 
 
     /**
-     * Retrieve a report
+     * Retrieve the results of a scan. The scan is identified by a report,
+     * a scan or a project (in which case its latest scan is used). For
+     * scans and projects, a report is generated and polled until it is
+     * ready.
+     * <p>
+     * With more than one scan identifier (or --scan-ids), the results of
+     * the scans are retrieved concurrently and written to one file per scan
+     * in the directory named by --output-pathname. A line of JSON
+     * describing the outcome for each scan is written to standard output.
      *
-     * @param reportId the report identifier
-     * @throws CheckmarxException if the SDK throws an exception
+     * @param outputFormat   the output format (default is JSON)
+     * @param outputPathname the output pathname (the output directory for multiple scans)
+     * @param gzip           compress the output
+     * @param projectName    the project name
+     * @param team           the team to which the project belongs
+     * @param reportId       the report identifier
+     * @param scanIds        the scan identifiers
+     * @param scanIdsFile    the pathname of a file listing scan identifiers, one per line ("-" for standard input)
+     * @param threads        the number of scans processed concurrently
+     * @param timeout        the maximum number of seconds to wait for a report to be generated
+     * @return the exit status
+     * @throws CheckmarxException if the SDK throws an exception or the results cannot be written
      */
     @Command(name = "get", description = "Get results")
-    private void getResults(
-            @Option(names = {"-f", "--format"}, description = "The output format") OutputFormat outputFormat,
-            @Option(names = {"-o", "--output-pathname"}, description = "The output pathname") String outputPathname,
+    private int getResults(
+            @Option(names = {"-f", "--format"},
+                    description = "The output format (one of ${COMPLETION-CANDIDATES}, default is JSON)") OutputFormat outputFormat,
+            @Option(names = {"-o", "--output-pathname"},
+                    description = "The output pathname (the output directory for multiple scans)") String outputPathname,
+            @Option(names = {"-z", "--gzip"}, description = "Compress the output (implied by a .gz output pathname)") boolean gzip,
             @Option(names = {"-p", "--project"}, description = "The project name") String projectName,
+            @Option(names = {"-t", "--team"}, description = "The team to which the project belongs") String team,
             @Option(names = {"-r", "--report-id"}, description = "The report identifier") Integer reportId,
-            @Option(names = {"-s", "--scan-id"}, description = "The scan identifier") Integer scanId
+            @Option(names = {"-s", "--scan-id"}, description = "The scan identifier (may be repeated)") List<Integer> scanIds,
+            @Option(names = {"-S", "--scan-ids"}, paramLabel = "<file>",
+                    description = "Get the results of each scan listed in the file, one per line (\"-\" for standard input)") String scanIdsFile,
+            @Option(names = {"--threads"}, defaultValue = "4",
+                    description = "The number of scans processed concurrently (default: ${DEFAULT-VALUE})") int threads,
+            @Option(names = {"--timeout"}, defaultValue = "600",
+                    description = "The maximum number of seconds to wait for a report (default: ${DEFAULT-VALUE})") int timeout
     ) throws CheckmarxException {
         log.info("Calling results get command");
-        log.debug("getReport: outputFormat: {}, projectName: {}, reportId: {}, scanId: {}",
-                outputFormat, projectName, reportId, scanId);
+        checkThreads(threads);
+        log.debug("getResults: outputFormat: {}, projectName: {}, team: {}, reportId: {}, scanIds: {}, scanIdsFile: {}",
+                outputFormat, projectName, team, reportId, scanIds, scanIdsFile);
 
         if (outputFormat == null) {
             outputFormat = OutputFormat.JSON;
         }
+        Duration reportTimeout = Duration.ofSeconds(timeout);
 
-        if (projectName == null && reportId == null && scanId == null) {
-            log.error("Either the project or the report or the scan must be specified");
-            return;
+        List<Integer> allScanIds = new ArrayList<>();
+        if (scanIds != null) {
+            allScanIds.addAll(scanIds);
+        }
+        if (scanIdsFile != null) {
+            allScanIds.addAll(readScanIds(scanIdsFile));
+        }
+        int sources = (projectName != null ? 1 : 0) + (reportId != null ? 1 : 0)
+                + (scanIds != null || scanIdsFile != null ? 1 : 0);
+        if (sources != 1) {
+            throw new CheckmarxException("getResults: exactly one of a project, a report or scans must be specified");
         }
 
-        Writer writer;
-        if (outputPathname != null) {
-            File outputFile = new File(outputPathname);
-            try {
-                writer = new FileWriter(outputFile);
-            } catch (IOException ioe) {
-                log.error("Error opening {} for writing: {}", outputPathname, ioe.getMessage(), ioe);
-                return;
-            }
+        if (scanIdsFile != null || allScanIds.size() > 1) {
+            return getResults(allScanIds, outputFormat, outputPathname, gzip, threads, reportTimeout);
+        }
+
+        ScanResults scanResults;
+        if (reportId != null) {
+            scanResults = reportGenerator.getReportContent(reportId, reportTimeout);
         } else {
-            writer = new OutputStreamWriter(System.out);
+            Integer scanId = allScanIds.isEmpty() ? getLastScanId(projectName, team) : allScanIds.get(0);
+            scanResults = getScanResults(scanId, reportTimeout);
         }
-        ScanResults scanResults = cxService.getReportContent(reportId, null);
         log.debug("scanResults: {}", scanResults);
-        switch (outputFormat) {
-            case JSON:
-                printJsonResults(scanResults, writer);
-                break;
+        try {
+            writeResults(scanResults, outputFormat, outputPathname, gzip);
+        } catch (IOException ioe) {
+            log.error("Error writing results: {}", ioe.getMessage(), ioe);
+            throw new CheckmarxException(String.format("Error writing results: %s", ioe.getMessage()));
         }
+        return CommandLine.ExitCode.OK;
     }
 
-    private void printJsonResults(ScanResults scanResults, Writer writer) {
-        log.debug("printJsonResults");
-        ObjectMapper mapper = new ObjectMapper();
+    /**
+     * Retrieve the results of several scans concurrently, writing the
+     * results of each scan to a file named after the scan in the output
+     * directory.
+     */
+    private int getResults(List<Integer> scanIds, OutputFormat outputFormat, String outputDirectory, boolean gzip,
+                           int threads, Duration timeout) throws CheckmarxException {
+        Path directory = Paths.get(outputDirectory != null ? outputDirectory : ".");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("getResults: %s: error creating output directory: %s",
+                    directory, ioe.getMessage()));
+        }
+        String suffix = "." + outputFormat.getExtension() + (gzip ? ".gz" : "");
+        NdjsonWriter exports = new NdjsonWriter(spec.commandLine().getOut());
+        AtomicInteger errorCount = new AtomicInteger();
+
+        try (BulkExecutor executor = new BulkExecutor(threads)) {
+            for (Integer scanId : scanIds) {
+                executor.submit(() -> {
+                    ScanExport export = new ScanExport(scanId);
+                    try {
+                        ScanResults scanResults = getScanResults(scanId, timeout);
+                        export.pathname = directory.resolve(scanId + suffix).toString();
+                        writeResults(scanResults, outputFormat, export.pathname, gzip);
+                        export.status = ScanExport.WRITTEN;
+                    } catch (Exception e) {
+                        log.debug("getResults: scan {}: {}", scanId, e.getMessage(), e);
+                        errorCount.incrementAndGet();
+                        export.status = ScanExport.FAILED;
+                        export.error = e.getMessage();
+                    }
+                    exports.write(export);
+                    return null;
+                });
+            }
+        }
         try {
-            mapper.writeValue(writer, scanResults);
+            exports.checkFailure();
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("getResults: error writing exports: %s", ioe.getMessage()));
+        }
+
+        log.info("getResults: processed {} scans ({} errors)", scanIds.size(), errorCount.get());
+        return errorCount.get() == 0 ? CommandLine.ExitCode.OK : CommandLine.ExitCode.SOFTWARE;
+    }
+
+    /**
+     * Compare the results of two scans and write the findings which are
+     * new in the head scan or have been resolved since the base scan, one
+     * per line, followed by a summary line with the number of new, resolved
+     * and unchanged results. Each result of a finding is matched on its
+     * own, by fingerprint (the query, the file and the result's code
+     * snippet rather than its line, so that moved code is unchanged), and
+     * a finding is written with just its new or resolved results.
+     *
+     * @param baseScanId     the base scan identifier
+     * @param headScanId     the head scan identifier
+     * @param outputPathname the output pathname
+     * @param gzip           compress the output
+     * @param summaryOnly    only write the summary
+     * @param timeout        the maximum number of seconds to wait for a report to be generated
+     * @throws CheckmarxException if the SDK throws an exception or the differences cannot be written
+     */
+    @Command(name = "diff", description = "Write the findings which differ between two scans")
+    private void diffResults(
+            @Option(names = {"-b", "--base"}, required = true, description = "The base scan identifier") Integer baseScanId,
+            @Option(names = {"-H", "--head"}, required = true, description = "The head scan identifier") Integer headScanId,
+            @Option(names = {"-o", "--output-pathname"}, description = "The output pathname") String outputPathname,
+            @Option(names = {"-z", "--gzip"}, description = "Compress the output (implied by a .gz output pathname)") boolean gzip,
+            @Option(names = {"--summary"}, description = "Only write the summary") boolean summaryOnly,
+            @Option(names = {"--timeout"}, defaultValue = "600",
+                    description = "The maximum number of seconds to wait for a report (default: ${DEFAULT-VALUE})") int timeout
+    ) throws CheckmarxException {
+        log.info("Calling results diff command");
+        log.debug("diffResults: baseScanId: {}, headScanId: {}", baseScanId, headScanId);
+        Duration reportTimeout = Duration.ofSeconds(timeout);
+
+        // Generate the two reports concurrently
+        ScanResults base;
+        ScanResults head;
+        try (BulkExecutor executor = new BulkExecutor(2)) {
+            CompletableFuture<ScanResults> baseFuture = executor.submit(
+                    () -> getScanResults(baseScanId, reportTimeout));
+            CompletableFuture<ScanResults> headFuture = executor.submit(
+                    () -> getScanResults(headScanId, reportTimeout));
+            base = join(baseFuture);
+            head = join(headFuture);
+        }
+
+        List<ScanResults.XIssue> baseIssues = base.getXIssues() != null ? base.getXIssues() : Collections.emptyList();
+        List<ScanResults.XIssue> headIssues = head.getXIssues() != null ? head.getXIssues() : Collections.emptyList();
+        FingerprintSet baseFingerprints = FingerprintSet.of(baseIssues);
+        FingerprintSet headFingerprints = FingerprintSet.of(headIssues);
+        DiffSummary summary = new DiffSummary(baseScanId, headScanId);
+
+        try (Writer writer = ResultsOutput.open(outputPathname, gzip, spec.commandLine().getOut());
+             NdjsonResultsWriter resultsWriter = new NdjsonResultsWriter(writer)) {
+            resultsWriter.writeHeader(head);
+            for (ScanResults.XIssue xIssue : headIssues) {
+                List<Integer> lines = FingerprintSet.getLines(xIssue);
+                long[] fingerprints = FingerprintSet.fingerprints(xIssue);
+                List<Integer> added = new ArrayList<>();
+                for (int i = 0; i < fingerprints.length; i++) {
+                    if (baseFingerprints.contains(fingerprints[i])) {
+                        summary.unchanged++;
+                    } else {
+                        added.add(lines.get(i));
+                    }
+                }
+                summary.added += added.size();
+                if (!summaryOnly && !added.isEmpty()) {
+                    resultsWriter.writeFinding(xIssue, DiffSummary.NEW, added);
+                }
+            }
+            for (ScanResults.XIssue xIssue : baseIssues) {
+                List<Integer> lines = FingerprintSet.getLines(xIssue);
+                long[] fingerprints = FingerprintSet.fingerprints(xIssue);
+                List<Integer> resolved = new ArrayList<>();
+                for (int i = 0; i < fingerprints.length; i++) {
+                    if (!headFingerprints.contains(fingerprints[i])) {
+                        resolved.add(lines.get(i));
+                    }
+                }
+                summary.resolved += resolved.size();
+                if (!summaryOnly && !resolved.isEmpty()) {
+                    resultsWriter.writeFinding(xIssue, DiffSummary.RESOLVED, resolved);
+                }
+            }
+            resultsWriter.writeRecord(summary);
         } catch (IOException ioe) {
-            log.error("Error writing JSON results: {}", ioe.getMessage(), ioe);
+            log.error("Error writing differences: {}", ioe.getMessage(), ioe);
+            throw new CheckmarxException(String.format("Error writing differences: %s", ioe.getMessage()));
+        }
+        log.info("diffResults: {} new, {} resolved, {} unchanged", summary.added, summary.resolved, summary.unchanged);
+    }
+
+    /**
+     * Count the findings of the latest scan of every project in a team
+     * (and its descendants) or in a list of projects, by team (or project),
+     * severity, state and query. The results of the scans are retrieved
+     * concurrently and each scan's findings are counted, and then
+     * discarded, as soon as they have been retrieved.
+     *
+     * @param team     the team whose projects (and those of its descendants) are summarised
+     * @param projects the pathname of a file listing the projects, one per line ("-" for standard input)
+     * @param grouping whether the findings are counted by team or by project
+     * @param format   the output format (default is a table)
+     * @param threads  the number of scans processed concurrently
+     * @param timeout  the maximum number of seconds to wait for a report to be generated
+     * @return the exit status (non-zero if the results of any project could not be retrieved)
+     * @throws CheckmarxException if the projects cannot be determined or the summary cannot be written
+     */
+    @Command(name = "summarize", description = "Count the findings of the latest scans of many projects")
+    private int summarizeResults(
+            @Option(names = {"-t", "--team"}, description = "Summarise the projects of the team and its descendants") String team,
+            @Option(names = {"-P", "--projects"}, paramLabel = "<file>",
+                    description = "Summarise each project listed in the file, one per line (\"-\" for standard input)") String projects,
+            @Option(names = {"--by"},
+                    description = "Count the findings by (one of ${COMPLETION-CANDIDATES}, default is TEAM)") SummaryGrouping grouping,
+            @Option(names = {"-f", "--format"},
+                    description = "The output format (one of ${COMPLETION-CANDIDATES}, default is TABLE)") SummaryFormat format,
+            @Option(names = {"--threads"}, defaultValue = "4",
+                    description = "The number of scans processed concurrently (default: ${DEFAULT-VALUE})") int threads,
+            @Option(names = {"--timeout"}, defaultValue = "600",
+                    description = "The maximum number of seconds to wait for a report (default: ${DEFAULT-VALUE})") int timeout
+    ) throws CheckmarxException {
+        log.info("Calling results summarize command");
+        checkThreads(threads);
+        log.debug("summarizeResults: team: {}, projects: {}, grouping: {}", team, projects, grouping);
+        if ((team == null) == (projects == null)) {
+            throw new CheckmarxException("summarizeResults: either a team or --projects must be specified");
+        }
+        boolean byProject = grouping == SummaryGrouping.PROJECT;
+        Duration reportTimeout = Duration.ofSeconds(timeout);
+
+        Map<String, String> teamNames = new HashMap<>();
+        for (MetadataCache.Team cachedTeam : metadataCache.getTeams(false).value) {
+            teamNames.put(cachedTeam.id, cachedTeam.fullName);
+        }
+        Map<Integer, MetadataCache.Project> projectsById = new HashMap<>();
+        for (MetadataCache.Project project : metadataCache.getProjects(false).value) {
+            projectsById.put(project.id, project);
+        }
+
+        ResultsSummary summary = new ResultsSummary();
+        try (BulkExecutor executor = new BulkExecutor(threads)) {
+            if (team != null) {
+                Set<String> teamIds = new HashSet<>();
+                for (TeamIndex.Team subtreeTeam : teamIndex.getSubtree(team)) {
+                    teamIds.add(subtreeTeam.getId());
+                }
+                if (teamIds.isEmpty()) {
+                    throw new CheckmarxException(String.format("summarizeResults: %s: no matching team", team));
+                }
+                for (MetadataCache.Project project : projectsById.values()) {
+                    if (teamIds.contains(project.teamId)) {
+                        String group = getGroup(project, byProject, teamNames);
+                        executor.submit(() -> summarize(summary, group, project.id, reportTimeout));
+                    }
+                }
+            } else {
+                for (String project : readProjects(projects)) {
+                    executor.submit(() -> {
+                        List<Integer> projectIds;
+                        try {
+                            projectIds = projectResolver.getProjectIds(project, null);
+                        } catch (Exception e) {
+                            log.warn("summarizeResults: {}: {}", project, e.getMessage());
+                            summary.addFailed(project);
+                            return null;
+                        }
+                        if (projectIds.isEmpty()) {
+                            log.warn("summarizeResults: {}: no matching project", project);
+                            summary.addFailed(project);
+                        }
+                        for (Integer projectId : projectIds) {
+                            MetadataCache.Project cached = projectsById.get(projectId);
+                            String group = cached != null ? getGroup(cached, byProject, teamNames) : project;
+                            summarize(summary, group, projectId, reportTimeout);
+                        }
+                        return null;
+                    });
+                }
+            }
+        }
+
+        try {
+            if (format == SummaryFormat.JSON) {
+                summary.writeJson(spec.commandLine().getOut());
+            } else {
+                summary.writeTable(spec.commandLine().getOut());
+            }
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("Error writing summary: %s", ioe.getMessage()));
+        }
+        int failed = summary.getFailed();
+        log.info("summarizeResults: {} projects could not be summarised", failed);
+        return failed == 0 ? CommandLine.ExitCode.OK : CommandLine.ExitCode.SOFTWARE;
+    }
+
+    /**
+     * Add the findings of the latest scan of a project to a summary. The
+     * results store is bypassed because the state of a finding changes
+     * when it is triaged after the scan.
+     */
+    private Void summarize(ResultsSummary summary, String group, Integer projectId, Duration timeout) {
+        try {
+            Integer scanId = cxService.getLastScanId(projectId);
+            if (scanId == null || scanId <= 0) {
+                summary.addUnscanned(group);
+                return null;
+            }
+            summary.add(group, reportGenerator.getScanResults(scanId, timeout));
+        } catch (Exception e) {
+            log.warn("summarizeResults: project {}: {}", projectId, e.getMessage());
+            log.debug("summarizeResults: project {}", projectId, e);
+            summary.addFailed(group);
+        }
+        return null;
+    }
+
+    private String getGroup(MetadataCache.Project project, boolean byProject, Map<String, String> teamNames) {
+        String teamName = teamNames.getOrDefault(project.teamId, project.teamId);
+        return byProject ? teamName + cxProperties.getTeamPathSeparator() + project.name : teamName;
+    }
+
+    private List<String> readProjects(String projectsFile) throws CheckmarxException {
+        List<String> projects = new ArrayList<>();
+        try (BufferedReader reader = openInput(projectsFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                projects.add(line);
+            }
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("summarizeResults: %s: error reading projects: %s",
+                    projectsFile, ioe.getMessage()));
+        }
+        return projects;
+    }
+
+    private ScanResults join(CompletableFuture<ScanResults> future) throws CheckmarxException {
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            if (ce.getCause() instanceof CheckmarxException) {
+                throw (CheckmarxException) ce.getCause();
+            }
+            throw new CheckmarxException(String.format("Error retrieving results: %s", ce.getCause().getMessage()));
+        }
+    }
+
+    /**
+     * Return the results of a scan from the local store or, if they are not
+     * stored, by generating a report (and then store them).
+     */
+    private ScanResults getScanResults(Integer scanId, Duration timeout) throws CheckmarxException {
+        ScanResults scanResults = resultsStore.get(scanId);
+        if (scanResults == null) {
+            scanResults = reportGenerator.getScanResults(scanId, timeout);
+            resultsStore.put(scanId, scanResults);
+        }
+        return scanResults;
+    }
+
+    private void writeResults(ScanResults scanResults, OutputFormat outputFormat, String outputPathname, boolean gzip)
+            throws IOException {
+        try (Writer writer = ResultsOutput.open(outputPathname, gzip, spec.commandLine().getOut());
+             ResultsWriter resultsWriter = outputFormat.newWriter(writer)) {
+            resultsWriter.write(scanResults);
+        }
+    }
+
+    private Integer getLastScanId(String projectName, String team) throws CheckmarxException {
+        Integer projectId = projectResolver.getProjectId(projectName, team);
+        Integer scanId = cxService.getLastScanId(projectId);
+        if (scanId == null || scanId <= 0) {
+            throw new CheckmarxException(String.format("getResults: %s: project has no completed scans", projectName));
+        }
+        log.debug("getLastScanId: project {}: last scan {}", projectId, scanId);
+        return scanId;
+    }
+
+    private List<Integer> readScanIds(String scanIdsFile) throws CheckmarxException {
+        List<Integer> scanIds = new ArrayList<>();
+        try (BufferedReader reader = openInput(scanIdsFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                scanIds.add(Integer.valueOf(line));
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new CheckmarxException(String.format("getResults: %s: error reading scan identifiers: %s",
+                    scanIdsFile, e.getMessage()));
+        }
+        return scanIds;
+    }
+
+    /**
+     * The outcome of retrieving the results of one of several scans
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class ScanExport {
+        static final String WRITTEN = "written";
+        static final String FAILED = "failed";
+
+        public final int scanId;
+        public String status;
+        public String pathname;
+        public String error;
+
+        ScanExport(int scanId) {
+            this.scanId = scanId;
+        }
+    }
+
+    /**
+     * The summary of the differences between two scans
+     */
+    static class DiffSummary {
+        static final String NEW = "new";
+        static final String RESOLVED = "resolved";
+
+        public final String change = "summary";
+        public final int base;
+        public final int head;
+        @JsonProperty("new")
+        public int added;
+        public int resolved;
+        public int unchanged;
+
+        DiffSummary(int base, int head) {
+            this.base = base;
+            this.head = head;
         }
     }
 }
@@ -1,20 +1,28 @@
 package com.checkmarx.util.cmd;
 
 import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.dto.cx.CxRoleLdap;
 import com.checkmarx.sdk.exception.CheckmarxException;
 import com.checkmarx.sdk.service.CxService;
+import com.checkmarx.util.cache.MetadataCache;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Spec;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
+import static com.checkmarx.util.cmd.CmdUtil.checkThreads;
+
 
 /**
  * Command for role LDAP mapping based operations within Checkmarx
@@ -26,6 +34,7 @@ public class RoleCommand implements Callable<Integer> {
     private final CxService cxService;
     @SuppressWarnings("unused")
     private final CxProperties cxProperties;
+    private final MetadataCache metadataCache;
 
     @Spec
     private CommandSpec spec;
@@ -33,12 +42,14 @@ public class RoleCommand implements Callable<Integer> {
     /**
      * TeamCommand Constructor for team based operations against Checkmarx
      *
-     * @param cxService    the SDK client
-     * @param cxProperties the SDK configuration
+     * @param cxService     the SDK client
+     * @param cxProperties  the SDK configuration
+     * @param metadataCache the metadata cache
      */
-    public RoleCommand(CxService cxService, CxProperties cxProperties) {
+    public RoleCommand(@Lazy CxService cxService, CxProperties cxProperties, MetadataCache metadataCache) {
         this.cxService = cxService;
         this.cxProperties = cxProperties;
+        this.metadataCache = metadataCache;
     }
 
     /**
@@ -50,7 +61,7 @@ public class RoleCommand implements Callable<Integer> {
     public Integer call() throws Exception {
         log.info("Calling role command");
 
-        CommandLine.usage(spec, System.err);
+        spec.commandLine().usage(spec.commandLine().getErr());
         return CommandLine.ExitCode.USAGE;
     }
 
@@ -66,13 +77,13 @@ public class RoleCommand implements Callable<Integer> {
             @Parameters(paramLabel = "Mapping") String ldapDn
     ) throws CheckmarxException {
         log.info("Calling role add-ldap command");
-        Integer roleId = cxService.getRoleId(role);
+        Integer roleId = metadataCache.getRoleId(role);
         if (roleId.equals(-1)) {
             log.error("Could not find role {}", role);
             throw new CheckmarxException("Could not find role ".concat(role));
         }
         if (StringUtils.isNotEmpty(ldapServer)) {
-            Integer serverId = cxService.getLdapServerId(ldapServer);
+            Integer serverId = metadataCache.getLdapServerId(ldapServer);
             if (serverId > 0) {
                 cxService.mapRoleLdap(serverId, roleId, ldapDn);
                 log.info("LDAP mapping {} has been added to role {}", ldapDn, role);
@@ -98,13 +109,13 @@ public class RoleCommand implements Callable<Integer> {
             @Parameters(paramLabel = "Mapping") String ldapDn
     ) throws CheckmarxException {
         log.info("Calling role remove-ldap command");
-        Integer roleId = cxService.getRoleId(role);
+        Integer roleId = metadataCache.getRoleId(role);
         if (roleId.equals(-1)) {
             log.error("Could not find role {}", role);
             throw new CheckmarxException("Could not find role ".concat(role));
         }
         if (StringUtils.isNotEmpty(ldapServer)) {
-            Integer serverId = cxService.getLdapServerId(ldapServer);
+            Integer serverId = metadataCache.getLdapServerId(ldapServer);
             if (serverId > 0) {
                 cxService.removeRoleLdap(serverId, roleId, ldapDn);
                 log.info("LDAP mapping {} has been removed from role {}", ldapDn, role);
@@ -117,4 +128,52 @@ public class RoleCommand implements Callable<Integer> {
             throw new CheckmarxException("LDAP Server not provided");
         }
     }
+
+    /**
+     * Make the LDAP group mappings of the roles named in a desired state
+     * file match it (see {@link LdapMappingSync}). An NDJSON record
+     * describing each change is written to standard output.
+     *
+     * @param dryRun  describe the changes without making them
+     * @param threads the number of roles changed concurrently
+     * @param file    the desired state file
+     * @return the exit status (non-zero if any change failed)
+     * @throws CheckmarxException if the file cannot be read, names an unknown role or LDAP server, or the SDK throws this exception
+     */
+    @Command(name = "sync-ldap", description = "Make roles' LDAP mappings match a desired state file")
+    private int syncLdapMappings(
+            @Option(names = {"--dry-run"}, description = "Show the changes without making them") boolean dryRun,
+            @Option(names = {"--threads"}, defaultValue = "4",
+                    description = "The number of roles changed concurrently (default: ${DEFAULT-VALUE})") int threads,
+            @Parameters(paramLabel = "File", description = "The desired state as YAML (\"-\" for standard input)") String file
+    ) throws CheckmarxException {
+        log.info("Calling role sync-ldap command");
+        checkThreads(threads);
+        return new LdapMappingSync(metadataCache,
+                name -> {
+                    Integer roleId = metadataCache.getRoleId(name);
+                    if (roleId == null || roleId.equals(-1)) {
+                        log.error("Could not find role {}", name);
+                        throw new CheckmarxException("Could not find role ".concat(name));
+                    }
+                    return new LdapMappingSync.Target(roleId.toString(), name);
+                },
+                serverId -> {
+                    List<LdapMappingDiff.Mapping> current = new ArrayList<>();
+                    List<CxRoleLdap> roleLdaps = cxService.getRoleLdap(serverId);
+                    if (roleLdaps != null) {
+                        for (CxRoleLdap roleLdap : roleLdaps) {
+                            current.add(new LdapMappingDiff.Mapping(serverId, String.valueOf(roleLdap.getRoleId()),
+                                    roleLdap.getLdapGroupDn()));
+                        }
+                    }
+                    return current;
+                },
+                (change, role) -> change.role = role,
+                (mapping, role) -> cxService.mapRoleLdap(mapping.getLdapServerId(),
+                        Integer.valueOf(mapping.getTargetId()), mapping.getDn()),
+                (mapping, role) -> cxService.removeRoleLdap(mapping.getLdapServerId(),
+                        Integer.valueOf(mapping.getTargetId()), mapping.getDn()))
+                .sync(file, dryRun, threads, spec.commandLine().getOut());
+    }
 }
@@ -1,10 +1,15 @@
 package com.checkmarx.util.cmd;
 
 import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.dto.cx.CxTeamLdap;
 import com.checkmarx.sdk.exception.CheckmarxException;
 import com.checkmarx.sdk.service.CxService;
+import com.checkmarx.util.cache.MetadataCache;
+import com.checkmarx.util.cache.TeamIndex;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import picocli.CommandLine;
@@ -14,9 +19,21 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Spec;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import static com.checkmarx.util.cmd.CmdUtil.addTeamPathSeparatorPrefix;
+import static com.checkmarx.util.cmd.CmdUtil.checkThreads;
+import static com.checkmarx.util.cmd.CmdUtil.openInput;
 
 /**
  * Command for Team based operations within Checkmarx
@@ -27,6 +44,8 @@ public class TeamCommand implements Callable<Integer> {
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(TeamCommand.class);
     private final CxService cxService;
     private final CxProperties cxProperties;
+    private final TeamIndex teamIndex;
+    private final MetadataCache metadataCache;
 
     @Spec
     private CommandSpec spec;
@@ -34,12 +53,17 @@ public class TeamCommand implements Callable<Integer> {
     /**
      * TeamCommand Constructor for team based operations against Checkmarx
      *
-     * @param cxService    the SDK client
-     * @param cxProperties the SDK configuration
+     * @param cxService     the SDK client
+     * @param cxProperties  the SDK configuration
+     * @param teamIndex     the team index
+     * @param metadataCache the metadata cache
      */
-    public TeamCommand(CxService cxService, CxProperties cxProperties) {
+    public TeamCommand(@Lazy CxService cxService, CxProperties cxProperties, TeamIndex teamIndex,
+                             MetadataCache metadataCache) {
         this.cxService = cxService;
         this.cxProperties = cxProperties;
+        this.teamIndex = teamIndex;
+        this.metadataCache = metadataCache;
     }
 
     /**
@@ -51,7 +75,7 @@ public class TeamCommand implements Callable<Integer> {
     public Integer call() {
         log.info("Calling team command");
 
-        CommandLine.usage(spec, System.err);
+        spec.commandLine().usage(spec.commandLine().getErr());
         return CommandLine.ExitCode.USAGE;
     }
 
@@ -70,18 +94,18 @@ public class TeamCommand implements Callable<Integer> {
             @Parameters(paramLabel = "LDAP Mapping") String addLdapDn
     ) throws CheckmarxException {
         log.info("Calling team add-ldap command");
-        if (create) {
+        if (Boolean.TRUE.equals(create)) {
             log.info("Creating team if it does not exits.");
             createTeam(team);
         }
-        String teamId = cxService.getTeamId(team);
-        String teamName = getTeamName(team);
-        if (teamId.equals("-1")) {
+        String teamId = teamIndex.getTeamId(team);
+        String teamName = teamIndex.getTeamName(team);
+        if (teamId.equals(TeamIndex.UNKNOWN_TEAM_ID)) {
             log.error("Could not find team {}", team);
             throw new CheckmarxException("Could not find team ".concat(team));
         }
         if (StringUtils.isNotEmpty(ldapServer)) {
-            Integer serverId = cxService.getLdapServerId(ldapServer);
+            Integer serverId = metadataCache.getLdapServerId(ldapServer);
             if (serverId > 0) {
                 cxService.mapTeamLdapWS(serverId, teamId, teamName, addLdapDn);
                 log.info("LDAP mapping {} has been added to team {}", addLdapDn, team);
@@ -107,15 +131,15 @@ public class TeamCommand implements Callable<Integer> {
             @Parameters(paramLabel = "LDAP Mapping") String addLdapDn
     ) throws CheckmarxException {
         log.info("Calling team remove-ldap command");
-        addTeamPathSeparatorPrefix(cxProperties, team);
-        String teamId = cxService.getTeamId(team);
-        String teamName = getTeamName(team);
-        if (teamId.equals("-1")) {
+        team = addTeamPathSeparatorPrefix(cxProperties, team);
+        String teamId = teamIndex.getTeamId(team);
+        String teamName = teamIndex.getTeamName(team);
+        if (teamId.equals(TeamIndex.UNKNOWN_TEAM_ID)) {
             log.error("Could not find team {}", team);
             throw new CheckmarxException("Could not find team ".concat(team));
         }
         if (StringUtils.isNotEmpty(ldapServer)) {
-            Integer serverId = cxService.getLdapServerId(ldapServer);
+            Integer serverId = metadataCache.getLdapServerId(ldapServer);
             if (serverId > 0) {
                 cxService.removeTeamLdapWS(serverId, teamId, teamName, addLdapDn);
                 log.info("LDAP mapping {} has been removed from team {}", addLdapDn, team);
@@ -130,29 +154,253 @@ public class TeamCommand implements Callable<Integer> {
     }
 
     /**
-     * Create a team (if it doesn't exist)
+     * Make the LDAP group mappings of the teams named in a desired state
+     * file match it (see {@link LdapMappingSync}). An NDJSON record
+     * describing each change is written to standard output.
      *
-     * @throws CheckmarxException
+     * @param dryRun  describe the changes without making them
+     * @param threads the number of teams changed concurrently
+     * @param file    the desired state file
+     * @return the exit status (non-zero if any change failed)
+     * @throws CheckmarxException if the file cannot be read, names an unknown team or LDAP server, or the SDK throws this exception
+     */
+    @Command(name = "sync-ldap", description = "Make teams' LDAP mappings match a desired state file")
+    private int syncLdapMappings(
+            @Option(names = {"--dry-run"}, description = "Show the changes without making them") boolean dryRun,
+            @Option(names = {"--threads"}, defaultValue = "4",
+                    description = "The number of teams changed concurrently (default: ${DEFAULT-VALUE})") int threads,
+            @Parameters(paramLabel = "File", description = "The desired state as YAML (\"-\" for standard input)") String file
+    ) throws CheckmarxException {
+        log.info("Calling team sync-ldap command");
+        checkThreads(threads);
+        return new LdapMappingSync(metadataCache,
+                name -> {
+                    String teamPath = addTeamPathSeparatorPrefix(cxProperties, name);
+                    String teamId = teamIndex.getTeamId(teamPath);
+                    if (teamId.equals(TeamIndex.UNKNOWN_TEAM_ID)) {
+                        log.error("Could not find team {}", teamPath);
+                        throw new CheckmarxException("Could not find team ".concat(teamPath));
+                    }
+                    return new LdapMappingSync.Target(teamId, teamPath);
+                },
+                serverId -> {
+                    List<LdapMappingDiff.Mapping> current = new ArrayList<>();
+                    List<CxTeamLdap> teamLdaps = cxService.getTeamLdap(serverId);
+                    if (teamLdaps != null) {
+                        for (CxTeamLdap teamLdap : teamLdaps) {
+                            current.add(new LdapMappingDiff.Mapping(serverId, teamLdap.getTeamId(),
+                                    teamLdap.getLdapGroupDn()));
+                        }
+                    }
+                    return current;
+                },
+                (change, teamPath) -> change.team = teamPath,
+                (mapping, teamPath) -> cxService.mapTeamLdapWS(mapping.getLdapServerId(), mapping.getTargetId(),
+                        teamIndex.getTeamName(teamPath), mapping.getDn()),
+                (mapping, teamPath) -> cxService.removeTeamLdapWS(mapping.getLdapServerId(), mapping.getTargetId(),
+                        teamIndex.getTeamName(teamPath), mapping.getDn()))
+                .sync(file, dryRun, threads, spec.commandLine().getOut());
+    }
+
+    /**
+     * Create a team (if it doesn't exist) or, with --from, every team
+     * listed in a file
+     *
+     * @param teams   the pathname of a file listing the teams, one per line ("-" for standard input)
+     * @param threads the number of teams created concurrently when using --from
+     * @param team    the team
+     * @return the exit status
+     * @throws CheckmarxException if the team cannot be created
      */
     @Command(name = "create")
-    private void createTeam(
-            @Parameters(paramLabel = "Team") String team
+    private int createTeams(
+            @Option(names = {"--from"}, paramLabel = "<file>",
+                    description = "Create every team listed in a file, one full team path per line (\"-\" for standard input)") String teams,
+            @Option(names = {"--threads"}, defaultValue = "4",
+                    description = "The number of teams created concurrently when using --from (default: ${DEFAULT-VALUE})") int threads,
+            @Parameters(paramLabel = "Team", arity = "0..1") String team
     ) throws CheckmarxException {
+        checkThreads(threads);
+        if (teams != null) {
+            if (team != null) {
+                throw new CheckmarxException("createTeams: a team cannot be specified with --from");
+            }
+            return createTeams(teams, threads);
+        }
+        if (team == null) {
+            throw new CheckmarxException("createTeams: a team or --from must be specified");
+        }
+        createTeam(team);
+        return CommandLine.ExitCode.OK;
+    }
+
+    /**
+     * Create a team (if it doesn't exist)
+     *
+     * @throws CheckmarxException
+     */
+    private void createTeam(String team) throws CheckmarxException {
         log.info("Calling team create command");
-        addTeamPathSeparatorPrefix(cxProperties, team);
+        team = addTeamPathSeparatorPrefix(cxProperties, team);
         //check if the team exists
-        if (!cxService.getTeamId(team).equals("-1")) {
+        if (!teamIndex.getTeamId(team).equals(TeamIndex.UNKNOWN_TEAM_ID)) {
             log.warn("Team already exists...");
             return;
         }
         //get the parent and create the team
         int idx = team.lastIndexOf(this.cxProperties.getTeamPathSeparator());
         String parentPath = team.substring(0, idx);
-        String teamName = getTeamName(team);
+        String teamName = teamIndex.getTeamName(team);
         log.info("Parent path: {}", parentPath);
-        String parentId = cxService.getTeamId(parentPath);
-        log.info(parentId);
-        cxService.createTeam(parentId, teamName);
+        String parentId = teamIndex.getTeamId(parentPath);
+        if (parentId.equals(TeamIndex.UNKNOWN_TEAM_ID)) {
+            log.error("Could not find parent team {}", parentPath);
+            throw new CheckmarxException("Could not find parent team ".concat(parentPath));
+        }
+        String teamId = cxService.createTeam(parentId, teamName);
+        teamIndex.added(team, teamId);
+    }
+
+    /**
+     * Create every team listed in a file, along with any missing
+     * intermediate teams. The listed teams are arranged into a tree in
+     * memory and compared with a single snapshot of the existing teams.
+     * The missing teams are then created breadth first: the teams at each
+     * level are created concurrently once the level above is complete. A
+     * line of JSON describing the outcome is written to standard output for
+     * each listed team which exists and each team which had to be created.
+     *
+     * @param teams   the pathname of the file listing the teams ("-" for standard input)
+     * @param threads the number of teams created concurrently
+     * @return the exit status (non-zero if any team could not be created)
+     * @throws CheckmarxException if the list of teams cannot be read or the teams cannot be retrieved
+     */
+    private int createTeams(String teams, int threads) throws CheckmarxException {
+        log.info("Calling team create --from command");
+        String separator = cxProperties.getTeamPathSeparator();
+
+        // Build the tree of listed teams, one map of nodes per level
+        List<Map<String, TeamNode>> levels = new ArrayList<>();
+        try (BufferedReader reader = openInput(teams)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String team = line.trim();
+                if (team.isEmpty() || team.startsWith("#")) {
+                    continue;
+                }
+                String relativePath = team.startsWith(separator) ? team.substring(separator.length()) : team;
+                TeamNode parent = null;
+                String[] names = relativePath.split(Pattern.quote(separator));
+                for (int depth = 0; depth < names.length; depth++) {
+                    String path = (parent == null ? "" : parent.path) + separator + names[depth];
+                    if (levels.size() == depth) {
+                        levels.add(new LinkedHashMap<>());
+                    }
+                    String key = path.toLowerCase(Locale.ROOT);
+                    TeamNode node = levels.get(depth).get(key);
+                    if (node == null) {
+                        node = new TeamNode(path, names[depth], parent);
+                        levels.get(depth).put(key, node);
+                    }
+                    parent = node;
+                }
+                if (parent != null) {
+                    parent.listed = true;
+                }
+            }
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("createTeams: %s: error reading teams: %s",
+                    teams, ioe.getMessage()));
+        }
+
+        NdjsonWriter results = new NdjsonWriter(spec.commandLine().getOut());
+        AtomicInteger createdCount = new AtomicInteger();
+        AtomicInteger failureCount = new AtomicInteger();
+        try {
+            for (Map<String, TeamNode> level : levels) {
+                Map<String, String> created = Collections.synchronizedMap(new LinkedHashMap<>());
+                try (BulkExecutor executor = new BulkExecutor(threads)) {
+                    for (TeamNode node : level.values()) {
+                        TeamIndex.Team existing = teamIndex.findTeam(node.path);
+                        if (existing != null && existing.getId() != null) {
+                            node.id = existing.getId();
+                            if (node.listed) {
+                                results.write(new TeamResult(node.path, TeamResult.EXISTS, node.id, null));
+                            }
+                        } else if (node.parent == null || node.parent.id == null) {
+                            failureCount.incrementAndGet();
+                            results.write(new TeamResult(node.path, TeamResult.FAILED, null,
+                                    node.parent == null ? "top level team not found" : "parent team not available"));
+                        } else {
+                            executor.submit(() -> {
+                                TeamResult result;
+                                try {
+                                    String teamId = cxService.createTeam(node.parent.id, node.name);
+                                    createdCount.incrementAndGet();
+                                    if (teamId != null && !teamId.equals(TeamIndex.UNKNOWN_TEAM_ID)) {
+                                        node.id = teamId;
+                                    }
+                                    created.put(node.path, teamId);
+                                    result = new TeamResult(node.path, TeamResult.CREATED, teamId, null);
+                                } catch (Exception e) {
+                                    log.debug("createTeams: {}: {}", node.path, e.getMessage(), e);
+                                    failureCount.incrementAndGet();
+                                    result = new TeamResult(node.path, TeamResult.FAILED, null, e.getMessage());
+                                }
+                                results.write(result);
+                                return null;
+                            });
+                        }
+                    }
+                }
+                teamIndex.added(created);
+            }
+            results.checkFailure();
+        } catch (IOException ioe) {
+            throw new CheckmarxException(String.format("createTeams: error writing results: %s", ioe.getMessage()));
+        }
+
+        log.info("createTeams: created {} teams ({} failed)", createdCount.get(), failureCount.get());
+        return failureCount.get() == 0 ? CommandLine.ExitCode.OK : CommandLine.ExitCode.SOFTWARE;
+    }
+
+    /**
+     * A team in the tree of teams to be created
+     */
+    private static class TeamNode {
+        private final String path;
+        private final String name;
+        private final TeamNode parent;
+        private boolean listed = false;
+        private volatile String id;
+
+        TeamNode(String path, String name, TeamNode parent) {
+            this.path = path;
+            this.name = name;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * The outcome of creating a team listed in a file
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class TeamResult {
+        static final String EXISTS = "exists";
+        static final String CREATED = "created";
+        static final String FAILED = "failed";
+
+        public String team;
+        public String status;
+        public String id;
+        public String message;
+
+        TeamResult(String team, String status, String id, String message) {
+            this.team = team;
+            this.status = status;
+            this.id = id;
+            this.message = message;
+        }
     }
 
     /**
@@ -165,23 +413,14 @@ public class TeamCommand implements Callable<Integer> {
             @Parameters(paramLabel = "Team") String team
     ) throws CheckmarxException {
         log.info("Calling team delete command");
-        addTeamPathSeparatorPrefix(cxProperties, team);
-        String teamId = cxService.getTeamId(team);
-        if (teamId.equals("-1")) {
+        team = addTeamPathSeparatorPrefix(cxProperties, team);
+        String teamId = teamIndex.getTeamId(team);
+        if (teamId.equals(TeamIndex.UNKNOWN_TEAM_ID)) {
             log.warn("Could not find team {}", team);
         } else {
             log.info("Deleting team {} with Id {}", team, teamId);
             cxService.deleteTeam(teamId);
+            teamIndex.removed(team);
         }
     }
-
-    /**
-     * Get the teamname from the full path
-     *
-     * @return
-     */
-    private String getTeamName(String team) {
-        int idx = team.lastIndexOf(this.cxProperties.getTeamPathSeparator());
-        return team.substring(idx + 1);
-    }
 }
@@ -0,0 +1,103 @@
+package com.checkmarx.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies, recorded in microseconds.
+ * <p>
+ * Values below 8 have a bucket each; above that each power of two is
+ * divided into 8 buckets, so a quantile is accurate to within 12.5%
+ * whatever the magnitude of the latencies and recording a value costs a
+ * few atomic increments.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency.
+     *
+     * @param micros the latency in microseconds
+     */
+    void record(long micros) {
+        long value = Math.max(0, micros);
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of the recorded latencies in microseconds
+     */
+    long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return the largest recorded latency in microseconds
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Return an estimate of a quantile of the recorded latencies.
+     *
+     * @param quantile the quantile (between 0 and 1)
+     * @return the estimate in microseconds (0 if nothing has been recorded)
+     */
+    long getQuantile(double quantile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // The middle of the bucket, but never more than the maximum
+                long lower = lowerBound(i);
+                long width = i < SUB_BUCKETS ? 1 : 1L << (i / SUB_BUCKETS - 1);
+                return Math.min(lower + width / 2, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int mantissa = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + mantissa) << (exponent - SUB_BUCKET_BITS);
+    }
+}
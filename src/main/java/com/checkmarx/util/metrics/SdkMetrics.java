@@ -0,0 +1,161 @@
+package com.checkmarx.util.metrics;
+
+import com.checkmarx.util.cache.CacheFiles;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The number of calls, the number of errors and the latencies of the
+ * calls to each method of the Checkmarx SDK client since the application
+ * started, along with the number of calls which shared the result of an
+ * identical call in progress (and so did not reach the server).
+ */
+@Component
+public class SdkMetrics {
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    private static class MethodMetrics {
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+    }
+
+    /**
+     * Record a call.
+     *
+     * @param method the name of the SDK method
+     * @param nanos  the duration of the call in nanoseconds
+     * @param error  whether the call threw an exception
+     */
+    public void record(String method, long nanos, boolean error) {
+        MethodMetrics metrics = methods.computeIfAbsent(method, k -> new MethodMetrics());
+        metrics.latencies.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (error) {
+            metrics.errors.increment();
+        }
+    }
+
+    /**
+     * Record a call which shared the result of an identical call in
+     * progress.
+     *
+     * @param method the name of the SDK method
+     */
+    public void recordCoalesced(String method) {
+        methods.computeIfAbsent(method, k -> new MethodMetrics()).coalesced.increment();
+    }
+
+    /**
+     * Write a table summarising the calls to each method.
+     *
+     * @param writer the writer
+     */
+    public void writeSummary(PrintWriter writer) {
+        Map<String, MethodMetrics> sorted = new TreeMap<>(methods);
+        writer.printf("%-32s %8s %8s %8s %10s %10s %10s %10s %12s%n",
+                "SDK method", "calls", "errors", "shared", "p50 ms", "p95 ms", "p99 ms", "max ms", "total ms");
+        if (sorted.isEmpty()) {
+            writer.println("(no calls)");
+        }
+        for (Map.Entry<String, MethodMetrics> entry : sorted.entrySet()) {
+            LatencyHistogram latencies = entry.getValue().latencies;
+            writer.printf(Locale.ROOT, "%-32s %8d %8d %8d %10.1f %10.1f %10.1f %10.1f %12.1f%n",
+                    entry.getKey(), latencies.getCount(), entry.getValue().errors.sum(),
+                    entry.getValue().coalesced.sum(),
+                    millis(latencies.getQuantile(0.5)), millis(latencies.getQuantile(0.95)),
+                    millis(latencies.getQuantile(0.99)), millis(latencies.getMax()), millis(latencies.getSum()));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Return the metrics in the Prometheus text exposition format.
+     *
+     * @return the metrics
+     */
+    public String toPrometheusText() {
+        Map<String, MethodMetrics> sorted = new TreeMap<>(methods);
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP cx_util_sdk_calls_total Calls to the Checkmarx SDK client.\n");
+        text.append("# TYPE cx_util_sdk_calls_total counter\n");
+        for (Map.Entry<String, MethodMetrics> entry : sorted.entrySet()) {
+            sample(text, "cx_util_sdk_calls_total", entry.getKey(), null,
+                    Long.toString(entry.getValue().latencies.getCount()));
+        }
+        text.append("# HELP cx_util_sdk_errors_total Calls to the Checkmarx SDK client which threw an exception.\n");
+        text.append("# TYPE cx_util_sdk_errors_total counter\n");
+        for (Map.Entry<String, MethodMetrics> entry : sorted.entrySet()) {
+            sample(text, "cx_util_sdk_errors_total", entry.getKey(), null,
+                    Long.toString(entry.getValue().errors.sum()));
+        }
+        text.append("# HELP cx_util_sdk_coalesced_total Calls which shared the result of an identical call in progress.\n");
+        text.append("# TYPE cx_util_sdk_coalesced_total counter\n");
+        for (Map.Entry<String, MethodMetrics> entry : sorted.entrySet()) {
+            sample(text, "cx_util_sdk_coalesced_total", entry.getKey(), null,
+                    Long.toString(entry.getValue().coalesced.sum()));
+        }
+        text.append("# HELP cx_util_sdk_call_duration_seconds The duration of calls to the Checkmarx SDK client.\n");
+        text.append("# TYPE cx_util_sdk_call_duration_seconds summary\n");
+        for (Map.Entry<String, MethodMetrics> entry : sorted.entrySet()) {
+            LatencyHistogram latencies = entry.getValue().latencies;
+            for (double quantile : QUANTILES) {
+                sample(text, "cx_util_sdk_call_duration_seconds", entry.getKey(), Double.toString(quantile),
+                        seconds(latencies.getQuantile(quantile)));
+            }
+            sample(text, "cx_util_sdk_call_duration_seconds_sum", entry.getKey(), null,
+                    seconds(latencies.getSum()));
+            sample(text, "cx_util_sdk_call_duration_seconds_count", entry.getKey(), null,
+                    Long.toString(latencies.getCount()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Write the metrics, in the Prometheus text exposition format, to a
+     * file. The file is replaced atomically so that a scraper never sees
+     * a partial file. Unlike the cache files, it is created with the
+     * default permissions so that it can be read by a metrics collector.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void writePrometheusText(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(tmp, toPrometheusText().getBytes(StandardCharsets.UTF_8));
+            CacheFiles.moveAtomically(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void sample(StringBuilder text, String name, String method, String quantile, String value) {
+        text.append(name).append("{method=\"").append(method).append('"');
+        if (quantile != null) {
+            text.append(",quantile=\"").append(quantile).append('"');
+        }
+        text.append("} ").append(value).append('\n');
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+}
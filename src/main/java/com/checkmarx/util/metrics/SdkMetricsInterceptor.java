@@ -0,0 +1,31 @@
+package com.checkmarx.util.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Times each call to the SDK client and records it in the SDK metrics.
+ */
+public class SdkMetricsInterceptor implements MethodInterceptor {
+    private final SdkMetrics metrics;
+
+    public SdkMetricsInterceptor(SdkMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            Object result = invocation.proceed();
+            error = false;
+            return result;
+        } finally {
+            metrics.record(invocation.getMethod().getName(), System.nanoTime() - start, error);
+        }
+    }
+}
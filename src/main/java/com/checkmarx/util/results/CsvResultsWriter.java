@@ -0,0 +1,87 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Writes scan results as CSV: a header line followed by one line per
+ * finding. Values are quoted as described in RFC 4180 and the line
+ * numbers of a finding are separated by semicolons.
+ */
+public class CsvResultsWriter implements ResultsWriter {
+    private static final String[] COLUMNS = {
+            "project_id", "project", "team", "query", "severity", "status", "cwe", "language",
+            "file", "lines", "similarity_id", "link"
+    };
+
+    private final Writer writer;
+    private String projectId;
+    private String project;
+    private String team;
+
+    public CsvResultsWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void writeHeader(ScanResults scanResults) throws IOException {
+        projectId = scanResults.getProjectId();
+        project = scanResults.getProject();
+        team = scanResults.getTeam();
+        writeRecord((Object[]) COLUMNS);
+    }
+
+    @Override
+    public void writeFinding(ScanResults.XIssue xIssue) throws IOException {
+        writeRecord(projectId, project, team, xIssue.getVulnerability(), xIssue.getSeverity(),
+                xIssue.getVulnerabilityStatus(), xIssue.getCwe(), xIssue.getLanguage(), xIssue.getFilename(),
+                getLines(xIssue.getDetails()), xIssue.getSimilarityId(), xIssue.getLink());
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private static String getLines(Map<Integer, ?> details) {
+        if (details == null) {
+            return null;
+        }
+        StringJoiner lines = new StringJoiner(";");
+        for (Integer line : details.keySet()) {
+            lines.add(String.valueOf(line));
+        }
+        return lines.toString();
+    }
+
+    private void writeRecord(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writeValue(values[i].toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeValue(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,188 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of finding fingerprints.
+ * <p>
+ * A finding (an XIssue) groups the results of a query in a file, one for
+ * each line on which the query matched, so each result has its own
+ * fingerprint: a 64-bit hash of the query, the file and the result's code
+ * snippet (with the number of earlier results of the finding with the same
+ * snippet, so that repeated code is not merged). The line number is not
+ * part of the fingerprint, so that a result which has only moved (because
+ * lines were added or removed above it) is unchanged; it is used only for
+ * a result without a snippet. The SDK only reports a similarity identifier
+ * for the finding as a whole, so it is used only for a finding which has
+ * no results. The fingerprints are held in an open addressing table of
+ * primitive longs, so a set of a hundred thousand results takes a few
+ * megabytes.
+ */
+public class FingerprintSet {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long EMPTY = 0;
+    private static final long ZERO_SUBSTITUTE = 1;
+
+    private final long[] table;
+    private final int mask;
+    private int size = 0;
+
+    /**
+     * Create a set large enough to hold the specified number of fingerprints.
+     *
+     * @param expectedSize the expected number of fingerprints
+     */
+    public FingerprintSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Create a set of the fingerprints of the results of some findings.
+     *
+     * @param xIssues the findings (may be null)
+     * @return the set
+     */
+    public static FingerprintSet of(Collection<ScanResults.XIssue> xIssues) {
+        int results = 0;
+        if (xIssues != null) {
+            for (ScanResults.XIssue xIssue : xIssues) {
+                results += getLines(xIssue).size();
+            }
+        }
+        FingerprintSet set = new FingerprintSet(results);
+        if (xIssues != null) {
+            for (ScanResults.XIssue xIssue : xIssues) {
+                for (long fingerprint : fingerprints(xIssue)) {
+                    set.add(fingerprint);
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Return the lines of the results of a finding, in ascending order.
+     *
+     * @param xIssue the finding
+     * @return the lines, or a single null if the finding has no results
+     */
+    public static List<Integer> getLines(ScanResults.XIssue xIssue) {
+        if (xIssue.getDetails() == null || xIssue.getDetails().isEmpty()) {
+            return Collections.singletonList(null);
+        }
+        List<Integer> lines = new ArrayList<>(xIssue.getDetails().keySet());
+        lines.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+        return lines;
+    }
+
+    /**
+     * Return the fingerprints of the results of a finding.
+     *
+     * @param xIssue the finding
+     * @return the fingerprints, in the order of the lines returned by {@link #getLines}
+     */
+    public static long[] fingerprints(ScanResults.XIssue xIssue) {
+        List<Integer> lines = getLines(xIssue);
+        long[] fingerprints = new long[lines.size()];
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < fingerprints.length; i++) {
+            Integer line = lines.get(i);
+            long hash = FNV_OFFSET_BASIS;
+            hash = hash(hash, xIssue.getVulnerability());
+            hash = hash(hash, xIssue.getFilename());
+            String snippet = line != null ? getSnippet(xIssue.getDetails().get(line)) : null;
+            if (snippet != null) {
+                hash = hash(hash, snippet);
+                hash = hash(hash, String.valueOf(occurrences.merge(snippet, 1, Integer::sum)));
+            } else if (line != null) {
+                hash = hash(hash, String.valueOf(line));
+            } else {
+                hash = hash(hash, xIssue.getSimilarityId());
+            }
+            fingerprints[i] = hash;
+        }
+        return fingerprints;
+    }
+
+    private static String getSnippet(ScanResults.IssueDetails issueDetails) {
+        if (issueDetails == null || issueDetails.getCodeSnippet() == null) {
+            return null;
+        }
+        // Ignore a change of indentation
+        String snippet = issueDetails.getCodeSnippet().trim();
+        return snippet.isEmpty() ? null : snippet;
+    }
+
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+                hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+            }
+        }
+        // Separate the values so that ("ab", "c") and ("a", "bc") differ
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+
+    /**
+     * Add a fingerprint.
+     *
+     * @param fingerprint the fingerprint
+     * @return true if the fingerprint was not already in the set
+     */
+    public boolean add(long fingerprint) {
+        long key = fingerprint == EMPTY ? ZERO_SUBSTITUTE : fingerprint;
+        if (size * 2 >= table.length) {
+            throw new IllegalStateException("fingerprint set is full");
+        }
+        int slot = index(key);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+        size++;
+        return true;
+    }
+
+    /**
+     * Return whether the set contains a fingerprint.
+     *
+     * @param fingerprint the fingerprint
+     * @return true if the set contains the fingerprint
+     */
+    public boolean contains(long fingerprint) {
+        long key = fingerprint == EMPTY ? ZERO_SUBSTITUTE : fingerprint;
+        int slot = index(key);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int index(long key) {
+        // The low bits of an FNV hash are well mixed but fold in the high bits anyway
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,127 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes scan results as a single JSON document, streaming the findings.
+ * <p>
+ * The document has the same properties as the serialised ScanResults
+ * object but the findings are written last, one at a time, rather than
+ * the whole document being built before it is written. Closing the
+ * writer completes the document and closes the underlying writer.
+ */
+public class JsonResultsWriter implements ResultsWriter {
+    private static final String FINDINGS_GETTER = "getXIssues";
+    private static final String FINDINGS_FIELD = "xIssues";
+
+    /** Serialises findings (and anything else) */
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    /** Serialises a ScanResults object without its findings */
+    private static final ObjectMapper envelopeMapper = new ObjectMapper();
+
+    static {
+        envelopeMapper.registerModule(new SimpleModule().setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                             List<BeanPropertyWriter> beanProperties) {
+                if (ScanResults.class.isAssignableFrom(beanDesc.getBeanClass())) {
+                    beanProperties.removeIf(writer -> isFindings(writer.getMember()));
+                }
+                return beanProperties;
+            }
+        }));
+    }
+
+    private final JsonGenerator generator;
+    /** The name of the findings property (as Jackson serialises it) */
+    private final String findingsProperty;
+    private boolean started = false;
+
+    public JsonResultsWriter(Writer writer) throws IOException {
+        this.findingsProperty = getFindingsProperty(mapper.getSerializationConfig());
+        this.generator = mapper.getFactory().createGenerator(writer);
+    }
+
+    /**
+     * Start the document, writing all the properties of the scan results
+     * except for the findings.
+     *
+     * @param scanResults the scan results
+     * @throws IOException if the properties cannot be written
+     */
+    @Override
+    public void writeHeader(ScanResults scanResults) throws IOException {
+        JsonNode envelope = envelopeMapper.valueToTree(scanResults);
+        generator.writeStartObject();
+        Iterator<Map.Entry<String, JsonNode>> fields = envelope.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            generator.writeFieldName(field.getKey());
+            mapper.writeTree(generator, field.getValue());
+        }
+        generator.writeArrayFieldStart(findingsProperty);
+        started = true;
+    }
+
+    /**
+     * Write a finding.
+     *
+     * @param xIssue the finding
+     * @throws IOException if the finding cannot be written
+     */
+    @Override
+    public void writeFinding(ScanResults.XIssue xIssue) throws IOException {
+        mapper.writeValue(generator, xIssue);
+    }
+
+    /**
+     * Complete the document and close the underlying writer.
+     *
+     * @throws IOException if the document cannot be completed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (started) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.flush();
+        } finally {
+            generator.close();
+        }
+    }
+
+    private static String getFindingsProperty(SerializationConfig config) {
+        BeanDescription beanDesc = config.introspect(config.constructType(ScanResults.class));
+        for (BeanPropertyDefinition property : beanDesc.findProperties()) {
+            if (property.couldSerialize() && isFindings(property.getAccessor())) {
+                return property.getName();
+            }
+        }
+        throw new IllegalStateException("ScanResults has no findings property");
+    }
+
+    private static boolean isFindings(AnnotatedMember member) {
+        return member != null && (FINDINGS_GETTER.equals(member.getName()) || FINDINGS_FIELD.equals(member.getName()));
+    }
+}
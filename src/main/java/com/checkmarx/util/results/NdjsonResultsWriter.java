@@ -0,0 +1,120 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes scan results as newline delimited JSON: one finding per line.
+ * <p>
+ * Each line is self-contained (it includes the project and team as well
+ * as the properties of the finding) so that the lines can be processed
+ * independently, and in parallel, by downstream consumers.
+ */
+public class NdjsonResultsWriter implements ResultsWriter {
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, true);
+
+    private final JsonGenerator generator;
+    private String projectId;
+    private String project;
+    private String team;
+
+    public NdjsonResultsWriter(Writer writer) throws IOException {
+        this.generator = mapper.getFactory().createGenerator(writer);
+        // The lines are separated by newlines, not the default root value separator (a space), and the
+        // generator's buffer is only flushed when it fills or the writer is closed
+        this.generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void writeHeader(ScanResults scanResults) throws IOException {
+        projectId = scanResults.getProjectId();
+        project = scanResults.getProject();
+        team = scanResults.getTeam();
+    }
+
+    @Override
+    public void writeFinding(ScanResults.XIssue xIssue) throws IOException {
+        writeFinding(xIssue, null);
+    }
+
+    /**
+     * Write a finding, labelled with the way in which it has changed.
+     *
+     * @param xIssue the finding
+     * @param change the change (for example, "new" or "resolved"), written as the first field if not null
+     * @throws IOException if the output cannot be written
+     */
+    public void writeFinding(ScanResults.XIssue xIssue, String change) throws IOException {
+        writeFinding(xIssue, change, null);
+    }
+
+    /**
+     * Write some of the results of a finding, labelled with the way in
+     * which they have changed.
+     *
+     * @param xIssue the finding
+     * @param change the change (for example, "new" or "resolved"), written as the first field if not null
+     * @param lines  the lines of the results to be written (null for all the results)
+     * @throws IOException if the output cannot be written
+     */
+    public void writeFinding(ScanResults.XIssue xIssue, String change, Collection<Integer> lines)
+            throws IOException {
+        JsonNode finding = mapper.valueToTree(xIssue);
+        if (lines != null && finding.path("details").isObject()) {
+            Set<String> keys = new HashSet<>();
+            for (Integer line : lines) {
+                keys.add(String.valueOf(line));
+            }
+            ((ObjectNode) finding.get("details")).retain(keys);
+        }
+        generator.writeStartObject();
+        if (change != null) {
+            generator.writeStringField("change", change);
+        }
+        generator.writeStringField("projectId", projectId);
+        generator.writeStringField("project", project);
+        generator.writeStringField("team", team);
+        Iterator<Map.Entry<String, JsonNode>> fields = finding.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            generator.writeFieldName(field.getKey());
+            mapper.writeTree(generator, field.getValue());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Write a record other than a finding (a summary, for example).
+     *
+     * @param record the record (any object that Jackson can serialise)
+     * @throws IOException if the output cannot be written
+     */
+    public void writeRecord(Object record) throws IOException {
+        mapper.writeValue(generator, record);
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            generator.flush();
+        } finally {
+            generator.close();
+        }
+    }
+}
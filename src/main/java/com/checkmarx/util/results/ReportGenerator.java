@@ -0,0 +1,91 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.sdk.service.CxService;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates scan reports and retrieves their content.
+ * <p>
+ * Report generation is asynchronous on the server: a report is requested
+ * and its status is polled until it is finished. The interval between
+ * polls starts short (most reports are ready within a few seconds) and
+ * doubles up to a maximum, with some jitter so that concurrent
+ * generations do not poll in lock step.
+ */
+public class ReportGenerator {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ReportGenerator.class);
+
+    private static final int REPORT_STATUS_FINISHED = 2;
+    private static final int REPORT_STATUS_FAILED = 3;
+    private static final long INITIAL_POLL_INTERVAL_MILLIS = 500;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 15_000;
+
+    private final CxService cxService;
+
+    public ReportGenerator(CxService cxService) {
+        this.cxService = cxService;
+    }
+
+    /**
+     * Generate the report for a scan and return its content.
+     *
+     * @param scanId  the scan identifier
+     * @param timeout the maximum time to wait for the report to be generated
+     * @return the scan results
+     * @throws CheckmarxException if the report cannot be generated in time or the SDK throws this exception
+     */
+    public ScanResults getScanResults(Integer scanId, Duration timeout) throws CheckmarxException {
+        Integer reportId = cxService.createScanReport(scanId);
+        if (reportId == null || reportId <= 0) {
+            throw new CheckmarxException(String.format("getScanResults: %d: error creating report", scanId));
+        }
+        log.debug("getScanResults: scan {}: report {} requested", scanId, reportId);
+        return getReportContent(reportId, timeout);
+    }
+
+    /**
+     * Wait for a report to be generated and return its content.
+     *
+     * @param reportId the report identifier
+     * @param timeout  the maximum time to wait for the report to be generated
+     * @return the scan results
+     * @throws CheckmarxException if the report cannot be generated in time or the SDK throws this exception
+     */
+    public ScanResults getReportContent(Integer reportId, Duration timeout) throws CheckmarxException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        long interval = INITIAL_POLL_INTERVAL_MILLIS;
+        while (true) {
+            Integer status = cxService.getReportStatus(reportId);
+            log.debug("getReportContent: report {}: status {}", reportId, status);
+            if (status != null && status == REPORT_STATUS_FINISHED) {
+                break;
+            }
+            if (status != null && status == REPORT_STATUS_FAILED) {
+                throw new CheckmarxException(String.format("getReportContent: %d: report generation failed", reportId));
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new CheckmarxException(String.format("getReportContent: %d: report not generated within %d seconds",
+                        reportId, timeout.getSeconds()));
+            }
+            long jitter = ThreadLocalRandom.current().nextLong(interval / 4 + 1);
+            sleep(Math.min(interval + jitter, remaining));
+            interval = Math.min(interval * 2, MAX_POLL_INTERVAL_MILLIS);
+        }
+        return cxService.getReportContent(reportId, null);
+    }
+
+    private void sleep(long millis) throws CheckmarxException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new CheckmarxException("Interrupted while waiting for a report");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.checkmarx.util.results;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens the destination of a results export.
+ * <p>
+ * Files are written through a buffered file channel and, optionally,
+ * gzip compressed. Closing the returned writer flushes it and, for
+ * files, closes the file. Standard output is flushed but never closed.
+ */
+public class ResultsOutput {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private ResultsOutput() {
+    }
+
+    /**
+     * Open the destination of a results export.
+     *
+     * @param pathname the output pathname (if null, standard output is used)
+     * @param gzip     compress the output (implied if the pathname ends with .gz)
+     * @param stdout   the writer for standard output
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    public static Writer open(String pathname, boolean gzip, Writer stdout) throws IOException {
+        if (pathname == null) {
+            if (gzip) {
+                throw new IOException("compressed output requires an output pathname");
+            }
+            return new FilterWriter(stdout) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        FileChannel channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        if (gzip || pathname.endsWith(GZIP_SUFFIX)) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,201 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Counts the findings of many scans by group (a team or a project),
+ * severity, state and query.
+ * <p>
+ * The findings of each scan are folded into the counts as soon as the
+ * scan's results are available and are not kept, so the memory used
+ * depends on the number of distinct groups, severities, states and
+ * queries rather than on the number of findings. Each result (each line
+ * of each file reported for a query) is a finding, as in the results
+ * diff, and its state is the vulnerability status reported with it (for
+ * example, "To Verify" or "Not Exploitable").
+ */
+public class ResultsSummary {
+    private static final String UNKNOWN = "Unknown";
+    private static final List<String> SEVERITY_ORDER = Arrays.asList("high", "medium", "low", "info", "information");
+    private static final Comparator<String> SEVERITIES = Comparator
+            .comparing((String severity) -> {
+                int index = SEVERITY_ORDER.indexOf(severity.toLowerCase(Locale.ROOT));
+                return index >= 0 ? index : SEVERITY_ORDER.size();
+            })
+            .thenComparing(Comparator.naturalOrder());
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<String, Group> groups = new TreeMap<>();
+
+    /**
+     * The counts for a group. The counts of findings are indexed by
+     * severity, then state, then query.
+     */
+    public static class Group {
+        public final String group;
+        public int projects;
+        public int unscanned;
+        public int failed;
+        public long findings;
+        public final Map<String, Map<String, Map<String, Long>>> counts = new TreeMap<>(SEVERITIES);
+
+        Group(String group) {
+            this.group = group;
+        }
+    }
+
+    /**
+     * Add the findings of a project's latest scan to a group.
+     *
+     * @param group       the group
+     * @param scanResults the results of the scan
+     */
+    public void add(String group, ScanResults scanResults) {
+        // Count the scan's findings before taking the lock
+        Map<List<String>, Long> scanCounts = new HashMap<>();
+        List<ScanResults.XIssue> xIssues = scanResults.getXIssues();
+        if (xIssues != null) {
+            for (ScanResults.XIssue xIssue : xIssues) {
+                List<String> key = Arrays.asList(orUnknown(xIssue.getSeverity()),
+                        orUnknown(xIssue.getVulnerabilityStatus()), orUnknown(xIssue.getVulnerability()));
+                scanCounts.merge(key, (long) FingerprintSet.getLines(xIssue).size(), Long::sum);
+            }
+        }
+
+        synchronized (this) {
+            Group counts = getGroup(group);
+            counts.projects++;
+            for (Map.Entry<List<String>, Long> entry : scanCounts.entrySet()) {
+                List<String> key = entry.getKey();
+                counts.counts.computeIfAbsent(key.get(0), k -> new TreeMap<>())
+                        .computeIfAbsent(key.get(1), k -> new TreeMap<>())
+                        .merge(key.get(2), entry.getValue(), Long::sum);
+                counts.findings += entry.getValue();
+            }
+        }
+    }
+
+    /**
+     * Record a project in a group which has not been scanned.
+     *
+     * @param group the group
+     */
+    public synchronized void addUnscanned(String group) {
+        getGroup(group).unscanned++;
+    }
+
+    /**
+     * Record a project in a group whose results could not be retrieved.
+     *
+     * @param group the group
+     */
+    public synchronized void addFailed(String group) {
+        getGroup(group).failed++;
+    }
+
+    /**
+     * Write a table with a row for each group and state and a column for
+     * each severity (summing the queries).
+     *
+     * @param writer the writer
+     */
+    public synchronized void writeTable(PrintWriter writer) {
+        TreeSet<String> severities = new TreeSet<>(SEVERITIES);
+        int groupWidth = "Group".length();
+        int stateWidth = "State".length();
+        for (Group counts : groups.values()) {
+            groupWidth = Math.max(groupWidth, counts.group.length());
+            severities.addAll(counts.counts.keySet());
+            for (Map<String, Map<String, Long>> states : counts.counts.values()) {
+                for (String state : states.keySet()) {
+                    stateWidth = Math.max(stateWidth, state.length());
+                }
+            }
+        }
+
+        String rowFormat = "%-" + groupWidth + "s  %-" + stateWidth + "s";
+        StringBuilder heading = new StringBuilder(String.format(rowFormat, "Group", "State"));
+        for (String severity : severities) {
+            heading.append(String.format(" %8s", severity));
+        }
+        writer.println(heading.append(String.format(" %8s", "Total")));
+        if (groups.isEmpty()) {
+            writer.println("(no projects)");
+        }
+        for (Group counts : groups.values()) {
+            TreeSet<String> states = new TreeSet<>();
+            for (Map<String, Map<String, Long>> byState : counts.counts.values()) {
+                states.addAll(byState.keySet());
+            }
+            if (states.isEmpty()) {
+                writer.println(String.format(rowFormat, counts.group, "-")
+                        + String.join("", Collections.nCopies(severities.size() + 1, String.format(" %8d", 0))));
+            }
+            for (String state : states) {
+                StringBuilder row = new StringBuilder(String.format(rowFormat, counts.group, state));
+                long total = 0;
+                for (String severity : severities) {
+                    long count = 0;
+                    Map<String, Long> queries = counts.counts.getOrDefault(severity, new TreeMap<>()).get(state);
+                    if (queries != null) {
+                        for (long n : queries.values()) {
+                            count += n;
+                        }
+                    }
+                    total += count;
+                    row.append(String.format(" %8d", count));
+                }
+                writer.println(row.append(String.format(" %8d", total)));
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Write a line of JSON for each group, with the counts by severity,
+     * state and query.
+     *
+     * @param writer the writer
+     * @throws IOException if the counts cannot be written
+     */
+    public synchronized void writeJson(Writer writer) throws IOException {
+        for (Group counts : groups.values()) {
+            writer.write(mapper.writeValueAsString(counts));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return the number of projects whose results could not be retrieved
+     */
+    public synchronized int getFailed() {
+        int failed = 0;
+        for (Group counts : groups.values()) {
+            failed += counts.failed;
+        }
+        return failed;
+    }
+
+    private Group getGroup(String group) {
+        return groups.computeIfAbsent(group, Group::new);
+    }
+
+    private static String orUnknown(String value) {
+        return value != null && !value.isEmpty() ? value : UNKNOWN;
+    }
+}
@@ -0,0 +1,48 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes scan results in a particular format.
+ * <p>
+ * Implementations stream their output: the header is written first and
+ * then each finding is written as it is supplied, without an intermediate
+ * representation of the whole document. Closing the writer completes the
+ * output and closes the underlying writer.
+ */
+public interface ResultsWriter extends Closeable {
+
+    /**
+     * Write whatever precedes the findings.
+     *
+     * @param scanResults the scan results (only the properties other than the findings are used)
+     * @throws IOException if the output cannot be written
+     */
+    void writeHeader(ScanResults scanResults) throws IOException;
+
+    /**
+     * Write a finding.
+     *
+     * @param xIssue the finding
+     * @throws IOException if the output cannot be written
+     */
+    void writeFinding(ScanResults.XIssue xIssue) throws IOException;
+
+    /**
+     * Write scan results (the header followed by each finding).
+     *
+     * @param scanResults the scan results
+     * @throws IOException if the output cannot be written
+     */
+    default void write(ScanResults scanResults) throws IOException {
+        writeHeader(scanResults);
+        if (scanResults.getXIssues() != null) {
+            for (ScanResults.XIssue xIssue : scanResults.getXIssues()) {
+                writeFinding(xIssue);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.checkmarx.util.results;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Creates a results writer for a particular output format.
+ */
+@FunctionalInterface
+public interface ResultsWriterFactory {
+
+    /**
+     * Create a results writer.
+     *
+     * @param writer the destination
+     * @return the results writer
+     * @throws IOException if the writer cannot be created
+     */
+    ResultsWriter create(Writer writer) throws IOException;
+}
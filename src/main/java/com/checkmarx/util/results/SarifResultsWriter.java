@@ -0,0 +1,158 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes scan results as a SARIF 2.1.0 log with a single run.
+ * <p>
+ * The results are streamed as the findings are written (one result per
+ * line on which a finding was reported). The tool description, which
+ * lists a rule for each query, is written after the results once all
+ * the queries are known.
+ */
+public class SarifResultsWriter implements ResultsWriter {
+    private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+    private static final String VERSION = "2.1.0";
+    private static final String TOOL_NAME = "Checkmarx";
+    private static final String TOOL_URI = "https://checkmarx.com";
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final JsonGenerator generator;
+    private final Map<String, String> rules = new LinkedHashMap<>();
+    private boolean started = false;
+    private String projectId;
+    private String project;
+    private String team;
+
+    public SarifResultsWriter(Writer writer) throws IOException {
+        this.generator = factory.createGenerator(writer);
+    }
+
+    @Override
+    public void writeHeader(ScanResults scanResults) throws IOException {
+        projectId = scanResults.getProjectId();
+        project = scanResults.getProject();
+        team = scanResults.getTeam();
+        generator.writeStartObject();
+        generator.writeStringField("$schema", SCHEMA);
+        generator.writeStringField("version", VERSION);
+        generator.writeArrayFieldStart("runs");
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("results");
+        started = true;
+    }
+
+    @Override
+    public void writeFinding(ScanResults.XIssue xIssue) throws IOException {
+        String ruleId = xIssue.getVulnerability();
+        rules.putIfAbsent(ruleId, xIssue.getCwe());
+        Set<Integer> lines = xIssue.getDetails() == null || xIssue.getDetails().isEmpty()
+                ? Collections.singleton(null) : xIssue.getDetails().keySet();
+        for (Integer line : lines) {
+            generator.writeStartObject();
+            generator.writeStringField("ruleId", ruleId);
+            generator.writeStringField("level", getLevel(xIssue.getSeverity()));
+            generator.writeObjectFieldStart("message");
+            generator.writeStringField("text", ruleId);
+            generator.writeEndObject();
+            if (xIssue.getFilename() != null) {
+                generator.writeArrayFieldStart("locations");
+                generator.writeStartObject();
+                generator.writeObjectFieldStart("physicalLocation");
+                generator.writeObjectFieldStart("artifactLocation");
+                generator.writeStringField("uri", xIssue.getFilename());
+                generator.writeEndObject();
+                if (line != null) {
+                    generator.writeObjectFieldStart("region");
+                    generator.writeNumberField("startLine", line);
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.writeEndArray();
+            }
+            if (xIssue.getSimilarityId() != null) {
+                generator.writeObjectFieldStart("partialFingerprints");
+                generator.writeStringField("similarityId", xIssue.getSimilarityId());
+                generator.writeEndObject();
+            }
+            generator.writeObjectFieldStart("properties");
+            generator.writeStringField("severity", xIssue.getSeverity());
+            generator.writeStringField("status", xIssue.getVulnerabilityStatus());
+            generator.writeStringField("link", xIssue.getLink());
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (started) {
+                generator.writeEndArray();
+                writeTool();
+                generator.writeObjectFieldStart("properties");
+                generator.writeStringField("projectId", projectId);
+                generator.writeStringField("project", project);
+                generator.writeStringField("team", team);
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.flush();
+        } finally {
+            generator.close();
+        }
+    }
+
+    private void writeTool() throws IOException {
+        generator.writeObjectFieldStart("tool");
+        generator.writeObjectFieldStart("driver");
+        generator.writeStringField("name", TOOL_NAME);
+        generator.writeStringField("informationUri", TOOL_URI);
+        generator.writeArrayFieldStart("rules");
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            generator.writeStartObject();
+            generator.writeStringField("id", rule.getKey());
+            generator.writeStringField("name", rule.getKey());
+            if (rule.getValue() != null) {
+                generator.writeObjectFieldStart("properties");
+                generator.writeStringField("cwe", rule.getValue());
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Map a Checkmarx severity to a SARIF level.
+     */
+    private static String getLevel(String severity) {
+        if (severity == null) {
+            return "warning";
+        }
+        switch (severity.toUpperCase(Locale.ROOT)) {
+            case "CRITICAL":
+            case "HIGH":
+                return "error";
+            case "MEDIUM":
+                return "warning";
+            default:
+                return "note";
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.checkmarx.util.throttle;
+
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A limit on the number of concurrent calls which adapts to the server
+ * (additive increase, multiplicative decrease).
+ * <p>
+ * While calls complete as quickly as usual and the limit is being used,
+ * the limit grows by about one each time a limit's worth of calls
+ * completes. When a call fails or takes much longer than usual for its
+ * method, the limit is cut by a quarter (at most once per call duration,
+ * so that a burst of slow calls counts once). The usual duration of each
+ * method is the fastest seen, drifting slowly upwards so that a server
+ * which becomes slower for good is eventually accepted as normal.
+ */
+class AdaptiveConcurrencyLimit {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(AdaptiveConcurrencyLimit.class);
+    private static final double DECREASE_FACTOR = 0.75;
+    private static final int BASELINE_DRIFT = 32;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final LongSupplier nanoTime;
+    private final Map<String, Long> baselines = new HashMap<>();
+    private double limit;
+    private int inFlight = 0;
+    private long lastDecrease;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double latencyTolerance) {
+        this(initialLimit, minLimit, maxLimit, latencyTolerance, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime the clock (System::nanoTime, except in tests)
+     */
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                             LongSupplier nanoTime) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyTolerance = latencyTolerance;
+        this.nanoTime = nanoTime;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lastDecrease = nanoTime.getAsLong();
+    }
+
+    /**
+     * Wait until a call may start.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Record the completion of a call.
+     *
+     * @param method       the method called
+     * @param latencyNanos the duration of the call in nanoseconds
+     * @param failed       whether the call failed
+     */
+    synchronized void release(String method, long latencyNanos, boolean failed) {
+        boolean saturated = inFlight >= (int) limit;
+        inFlight--;
+        boolean slow = false;
+        if (!failed) {
+            Long baseline = baselines.get(method);
+            if (baseline == null || latencyNanos < baseline) {
+                baselines.put(method, latencyNanos);
+            } else {
+                slow = latencyNanos > latencyTolerance * baseline;
+                baselines.put(method, baseline + (latencyNanos - baseline) / BASELINE_DRIFT);
+            }
+        }
+
+        long now = nanoTime.getAsLong();
+        if (failed || slow) {
+            if (now - lastDecrease > latencyNanos) {
+                limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                lastDecrease = now;
+                log.debug("release: {}: {}, limit reduced to {}", method, failed ? "failed" : "slow", (int) limit);
+            }
+        } else if (saturated && limit < maxLimit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,143 @@
+package com.checkmarx.util.throttle;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The execution layer shared by every call to the Checkmarx SDK client,
+ * whichever command (or bulk task) makes it.
+ * <p>
+ * Each call waits for the rate limit (if one is set) and then for the
+ * adaptive concurrency limit, so bulk commands can be given more threads
+ * than the server can handle and the calls will still only be made as
+ * fast as the server allows. Reads (the methods whose names start with
+ * "get") which fail transiently (an I/O error, a 5xx response or a 429
+ * response anywhere in the exception's chain of causes) are retried
+ * after an exponentially increasing delay with full jitter. Other
+ * failures are not retried, as retrying a 404 (say) only delays the
+ * error, and other calls are never retried, as they may not be
+ * idempotent. Only transient failures reduce the concurrency limit.
+ */
+@Component
+public class SdkThrottle implements MethodInterceptor {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(SdkThrottle.class);
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final ThrottleProperties properties;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final TokenBucket rateLimit = new TokenBucket();
+
+    public SdkThrottle(ThrottleProperties properties) {
+        this.properties = properties;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(properties.getInitialConcurrency(),
+                properties.getMinConcurrency(), properties.getMaxConcurrency(), properties.getLatencyTolerance());
+        this.rateLimit.setRate(properties.getMaxRps());
+    }
+
+    /**
+     * Set the maximum rate of calls.
+     *
+     * @param maxRps the maximum number of calls per second (0 for no
+     *               limit, null for the configured limit)
+     */
+    public void setMaxRps(Double maxRps) {
+        rateLimit.setRate(maxRps != null ? maxRps : properties.getMaxRps());
+    }
+
+    /**
+     * @return the current concurrency limit
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit.getLimit();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getName();
+        int retries = method.startsWith("get") ? properties.getRetries() : 0;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call(invocation, method);
+            } catch (Throwable t) {
+                if (attempt >= retries || !isTransient(t) || Thread.currentThread().isInterrupted()) {
+                    throw t;
+                }
+                long delay = ThreadLocalRandom.current().nextLong(backoffCeiling(attempt) + 1);
+                log.debug("invoke: {}: attempt {} failed ({}), retrying in {} ms",
+                        method, attempt + 1, t.getMessage(), delay);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw t;
+                }
+            }
+        }
+    }
+
+    private Object call(MethodInvocation invocation, String method) throws Throwable {
+        try {
+            rateLimit.acquire();
+            concurrencyLimit.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("%s: interrupted while waiting to call the SDK", method));
+        }
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            // Each attempt must run the rest of the chain again
+            return invocation instanceof ProxyMethodInvocation
+                    ? ((ProxyMethodInvocation) invocation).invocableClone().proceed()
+                    : invocation.proceed();
+        } catch (Throwable t) {
+            failed = isTransient(t);
+            throw t;
+        } finally {
+            concurrencyLimit.release(method, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Return whether a failure is worth retrying: an I/O error or a 5xx or
+     * 429 response, anywhere in the chain of causes.
+     *
+     * @param t the failure
+     * @return true if the failure is transient
+     */
+    static boolean isTransient(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof ResourceAccessException
+                    || cause instanceof HttpServerErrorException) {
+                return true;
+            }
+            if (cause instanceof HttpStatusCodeException
+                    && ((HttpStatusCodeException) cause).getRawStatusCode() == TOO_MANY_REQUESTS) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private long backoffCeiling(int attempt) {
+        long base = properties.getRetryBaseDelay().toMillis();
+        long max = properties.getRetryMaxDelay().toMillis();
+        return attempt >= 30 ? max : Math.min(max, base << attempt);
+    }
+}
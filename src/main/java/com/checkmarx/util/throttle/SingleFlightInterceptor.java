@@ -0,0 +1,105 @@
+package com.checkmarx.util.throttle;
+
+import com.checkmarx.util.metrics.SdkMetrics;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces identical lookups which are in progress at the same time:
+ * when a lookup is called with the same arguments as a call which has not
+ * yet completed, it waits for that call and returns its result (or throws
+ * its exception) rather than calling the server again. Nothing is cached
+ * once the call completes.
+ * <p>
+ * The callers share the result object, so only the lookups whose results
+ * are never modified (teams, custom field definitions, role and LDAP
+ * server identifiers) are coalesced. Reads such as getProject return
+ * objects which the commands modify and send back, so they are not.
+ */
+public class SingleFlightInterceptor implements MethodInterceptor {
+    private static final Set<String> COALESCED_METHODS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("getTeams", "getCustomFields", "getRoleId", "getLdapServerId")));
+
+    private final SdkMetrics metrics;
+    private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightInterceptor(SdkMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * A method and its arguments
+     */
+    private static class Key {
+        private final Method method;
+        private final Object[] arguments;
+        private final int hashCode;
+
+        Key(Method method, Object[] arguments) {
+            this.method = method;
+            this.arguments = arguments;
+            this.hashCode = 31 * method.hashCode() + Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return method.equals(other.method) && Arrays.deepEquals(arguments, other.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String method = invocation.getMethod().getName();
+        if (invocation.getMethod().getDeclaringClass() == Object.class || !COALESCED_METHODS.contains(method)) {
+            return invocation.proceed();
+        }
+
+        Key key = new Key(invocation.getMethod(), invocation.getArguments().clone());
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            metrics.recordCoalesced(method);
+            try {
+                return existing.get();
+            } catch (ExecutionException ee) {
+                throw ee.getCause();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(String.format("%s: interrupted while waiting for the SDK", method));
+            }
+        }
+
+        try {
+            Object result = invocation.proceed();
+            call.complete(result);
+            return result;
+        } catch (Throwable t) {
+            call.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+}
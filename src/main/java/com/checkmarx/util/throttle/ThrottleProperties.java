@@ -0,0 +1,104 @@
+package com.checkmarx.util.throttle;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the limits on the calls to the Checkmarx SDK (cx-util.sdk.*)
+ */
+@Component
+@ConfigurationProperties(prefix = "cx-util.sdk")
+public class ThrottleProperties {
+    /**
+     * The maximum number of calls per second (0 for no limit)
+     */
+    private double maxRps = 0;
+
+    /**
+     * The number of concurrent calls allowed at first
+     */
+    private int initialConcurrency = 4;
+
+    private int minConcurrency = 1;
+    private int maxConcurrency = 32;
+
+    /**
+     * How many times slower than usual a call must be for the server to be
+     * considered overloaded
+     */
+    private double latencyTolerance = 2.0;
+
+    /**
+     * The number of times a failed read is retried
+     */
+    private int retries = 2;
+
+    private Duration retryBaseDelay = Duration.ofMillis(200);
+    private Duration retryMaxDelay = Duration.ofSeconds(5);
+
+    public double getMaxRps() {
+        return maxRps;
+    }
+
+    public void setMaxRps(double maxRps) {
+        this.maxRps = maxRps;
+    }
+
+    public int getInitialConcurrency() {
+        return initialConcurrency;
+    }
+
+    public void setInitialConcurrency(int initialConcurrency) {
+        this.initialConcurrency = initialConcurrency;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public void setMinConcurrency(int minConcurrency) {
+        this.minConcurrency = minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public void setRetries(int retries) {
+        this.retries = retries;
+    }
+
+    public Duration getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
+    public void setRetryBaseDelay(Duration retryBaseDelay) {
+        this.retryBaseDelay = retryBaseDelay;
+    }
+
+    public Duration getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    public void setRetryMaxDelay(Duration retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+}
@@ -0,0 +1,82 @@
+package com.checkmarx.util.throttle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the rate of calls, allowing bursts of up to a second's worth of
+ * calls after a quiet period.
+ * <p>
+ * Each call reserves the next free slot and then sleeps until that slot
+ * (outside the lock), so waiting callers are served in order.
+ */
+class TokenBucket {
+    private final LongSupplier nanoTime;
+    private double rate = 0;
+    private long intervalNanos = 0;
+    private long burstNanos = 0;
+    private long nextSlot;
+
+    TokenBucket() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime the clock (System::nanoTime, except in tests)
+     */
+    TokenBucket(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        this.nextSlot = nanoTime.getAsLong();
+    }
+
+    /**
+     * Set the rate.
+     *
+     * @param rate the maximum number of calls per second (0 for no limit)
+     */
+    synchronized void setRate(double rate) {
+        if (rate == this.rate) {
+            return;
+        }
+        this.rate = rate;
+        if (rate > 0) {
+            intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            burstNanos = (long) ((Math.max(1, rate) - 1) * intervalNanos);
+        }
+        nextSlot = nanoTime.getAsLong();
+    }
+
+    synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Wait until a call may start.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserve the next free slot.
+     *
+     * @return the number of nanoseconds until the slot (zero or negative if it has already started)
+     */
+    synchronized long reserve() {
+        if (rate <= 0) {
+            return 0;
+        }
+        long now = nanoTime.getAsLong();
+        if (nextSlot < now - burstNanos) {
+            nextSlot = now - burstNanos;
+        }
+        long slot = nextSlot;
+        nextSlot += intervalNanos;
+        return slot - now;
+    }
+}
@@ -0,0 +1,98 @@
+package com.checkmarx.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class AsyncMaskingAppenderTest {
+    private static final int PRODUCERS = 8;
+    private static final int EVENTS_PER_PRODUCER = 20_000;
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger(AsyncMaskingAppenderTest.class);
+
+    @Test
+    void multipleProducersLoseNothingAndKeepTheirOrder() throws InterruptedException {
+        ListAppender<ILoggingEvent> target = new ListAppender<>();
+        AsyncMaskingAppender appender = newAppender(target, 16);
+
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                    appender.doAppend(event(producer + ":" + i));
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+        go.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        // Whatever is still buffered must be written by stop
+        appender.stop();
+
+        assertFalse(target.isStarted());
+        assertEquals(PRODUCERS * EVENTS_PER_PRODUCER, target.list.size());
+        int[] next = new int[PRODUCERS];
+        for (ILoggingEvent event : target.list) {
+            String[] parts = event.getFormattedMessage().split(":");
+            int producer = Integer.parseInt(parts[0]);
+            assertEquals(next[producer], Integer.parseInt(parts[1]), "producer " + producer);
+            next[producer]++;
+        }
+    }
+
+    @Test
+    void stopWritesBufferedEvents() {
+        ListAppender<ILoggingEvent> target = new ListAppender<>();
+        AsyncMaskingAppender appender = newAppender(target, 1024);
+
+        for (int i = 0; i < 1000; i++) {
+            appender.doAppend(event(Integer.toString(i)));
+        }
+        appender.stop();
+
+        assertEquals(1000, target.list.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.toString(i), target.list.get(i).getFormattedMessage());
+        }
+    }
+
+    private AsyncMaskingAppender newAppender(ListAppender<ILoggingEvent> target, int queueSize) {
+        target.setContext(context);
+        target.setName("list");
+        target.start();
+        AsyncMaskingAppender appender = new AsyncMaskingAppender();
+        appender.setContext(context);
+        appender.setName("async");
+        appender.setQueueSize(queueSize);
+        appender.setMaxFlushTime(60_000);
+        appender.addAppender(target);
+        appender.start();
+        return appender;
+    }
+
+    private ILoggingEvent event(String message) {
+        return new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, null, null);
+    }
+}
@@ -0,0 +1,162 @@
+package com.checkmarx.util;
+
+import com.checkmarx.util.cache.CacheProperties;
+import com.checkmarx.util.cache.MetadataCache;
+import com.checkmarx.util.cmd.InventoryCommand;
+import com.checkmarx.util.cmd.ProjectCommand;
+import com.checkmarx.util.cmd.ResultsCacheCommand;
+import com.checkmarx.util.cmd.ResultsCommand;
+import com.checkmarx.util.cmd.RoleCommand;
+import com.checkmarx.util.cmd.TeamCommand;
+import com.checkmarx.util.metrics.SdkMetrics;
+import com.checkmarx.util.throttle.SdkThrottle;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import picocli.CommandLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class CheckmarxUtilRunnerTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private final MetadataCache metadataCache = mock(MetadataCache.class);
+    private final SdkThrottle sdkThrottle = mock(SdkThrottle.class);
+    private final PrintStream stdout = System.out;
+    private final PrintStream stderr = System.err;
+    private final InputStream stdin = System.in;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private CheckmarxUtilRunner runner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        System.setOut(new PrintStream(out, true, "UTF-8"));
+        System.setErr(new PrintStream(err, true, "UTF-8"));
+        runner = new CheckmarxUtilRunner(CommandLineCheck.create(ProjectCommand.class),
+                CommandLineCheck.create(ResultsCommand.class), CommandLineCheck.create(ResultsCacheCommand.class),
+                CommandLineCheck.create(RoleCommand.class), CommandLineCheck.create(TeamCommand.class),
+                CommandLineCheck.create(InventoryCommand.class), metadataCache, new CacheProperties(),
+                new SdkMetrics(), sdkThrottle);
+    }
+
+    @AfterEach
+    void restoreStandardStreams() {
+        System.setOut(stdout);
+        System.setErr(stderr);
+        System.setIn(stdin);
+    }
+
+    @Test
+    void nestedCommandsKeepTheSessionOptions() throws Exception {
+        runner.run(new String[]{"--no-cache", "--max-rps", "5", "session", "-i", plan("inventory", "inventory")});
+
+        ArgumentCaptor<MetadataCache.Mode> modes = ArgumentCaptor.forClass(MetadataCache.Mode.class);
+        verify(metadataCache, atLeastOnce()).setMode(modes.capture());
+        List<MetadataCache.Mode> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(MetadataCache.Mode.DISABLED);
+        }
+        expected.add(MetadataCache.Mode.DEFAULT);
+        assertEquals(expected, modes.getAllValues());
+
+        ArgumentCaptor<Double> rates = ArgumentCaptor.forClass(Double.class);
+        verify(sdkThrottle, atLeastOnce()).setMaxRps(rates.capture());
+        assertEquals(Arrays.asList(5.0, 5.0, 5.0, 5.0, 5.0, null), rates.getAllValues());
+    }
+
+    @Test
+    void sessionWritesItsMetricsOnceItCompletes() throws Exception {
+        runner.run(new String[]{"session", "--metrics", "-i", plan("inventory")});
+
+        assertEquals(CommandLine.ExitCode.SOFTWARE, runner.getExitCode());
+        assertTrue(text(err).contains("Startup: "));
+    }
+
+    @Test
+    void rejectsNestedSessionAfterOptions() throws Exception {
+        runner.run(new String[]{"session", "-i", plan("--no-cache session -i plan.txt", "--metrics serve")});
+
+        List<JsonNode> records = records();
+        assertEquals(2, records.size());
+        assertEquals(CommandLine.ExitCode.USAGE, records.get(0).path("exitCode").asInt());
+        assertEquals("The session command cannot be run in a session", records.get(0).path("err").asText().trim());
+        assertEquals("The serve command cannot be run in a session", records.get(1).path("err").asText().trim());
+    }
+
+    @Test
+    void serverRejectsEveryFormOfStandardInput() {
+        CheckmarxUtilRunner.Host server = new CheckmarxUtilRunner.Host("by the server", false);
+        for (String[] args : new String[][]{
+                {"project", "force-full-scan", "-d", "7", "--projects", "-"},
+                {"project", "force-full-scan", "-d", "7", "--projects=-"},
+                {"--no-cache", "results", "summarize", "-P=-"},
+                {"team", "sync-ldap", "-"}}) {
+            StringWriter errors = new StringWriter();
+
+            int exitCode = runner.execute(args, new PrintWriter(new StringWriter()), new PrintWriter(errors), server);
+
+            assertEquals(CommandLine.ExitCode.USAGE, exitCode, String.join(" ", args));
+            assertEquals("Commands run by the server cannot read standard input (\"-\")", errors.toString().trim());
+        }
+    }
+
+    @Test
+    void sessionReadingStandardInputRejectsCommandsReadingIt() throws Exception {
+        System.setIn(new ByteArrayInputStream("project force-full-scan -d 7 --projects=-\n"
+                .getBytes(StandardCharsets.UTF_8)));
+
+        runner.run(new String[]{"session"});
+
+        List<JsonNode> records = records();
+        assertEquals(1, records.size());
+        assertEquals(CommandLine.ExitCode.USAGE, records.get(0).path("exitCode").asInt());
+        assertEquals("Commands run in a session cannot read standard input (\"-\")",
+                records.get(0).path("err").asText().trim());
+    }
+
+    private String plan(String... lines) throws Exception {
+        Path file = tempDir.resolve("plan.txt");
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file.toString();
+    }
+
+    private List<JsonNode> records() throws Exception {
+        List<JsonNode> records = new ArrayList<>();
+        // Standard output also holds the log
+        for (String line : text(out).split("\n")) {
+            if (line.startsWith("{")) {
+                records.add(mapper.readTree(line));
+            }
+        }
+        return records;
+    }
+
+    private static String text(ByteArrayOutputStream stream) {
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,140 @@
+package com.checkmarx.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandServerTest {
+    @TempDir
+    Path tempDir;
+
+    private final List<List<String>> commands = Collections.synchronizedList(new ArrayList<>());
+    private CommandServer server;
+    private Path secretFile;
+    private String secret;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new CommandServer(0, () -> "", (args, out, err) -> {
+            commands.add(Arrays.asList(args));
+            out.print("ran");
+            return 0;
+        });
+        secretFile = tempDir.resolve("serve.secret");
+        server.start(secretFile);
+        secret = new String(Files.readAllBytes(secretFile), StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void runsAuthorizedJsonRequest() throws IOException {
+        HttpURLConnection connection = post("[\"project\", \"force-full-scan\", \"a b\"]",
+                Collections.singletonMap("Authorization", "Bearer " + secret));
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("0", connection.getHeaderField("X-Exit-Code"));
+        assertEquals(Collections.singletonList(Arrays.asList("project", "force-full-scan", "a b")), commands);
+    }
+
+    @Test
+    void tokenizesJsonString() throws IOException {
+        HttpURLConnection connection = post("\"team list -t '/CxServer/A B'\"",
+                Collections.singletonMap("Authorization", "Bearer " + secret));
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(Collections.singletonList(Arrays.asList("team", "list", "-t", "/CxServer/A B")), commands);
+    }
+
+    @Test
+    void rejectsMissingOrWrongSecret() throws IOException {
+        assertEquals(401, post("[\"team\"]", Collections.emptyMap()).getResponseCode());
+        assertEquals(401, post("[\"team\"]",
+                Collections.singletonMap("Authorization", "Bearer " + secret + "x")).getResponseCode());
+        assertTrue(commands.isEmpty());
+    }
+
+    @Test
+    void rejectsCrossOriginRequest() throws IOException {
+        // HttpURLConnection does not send an Origin header, so write the request directly
+        String body = "[\"team\"]";
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /run HTTP/1.1\r\n"
+                    + "Host: 127.0.0.1\r\n"
+                    + "Origin: http://example.com\r\n"
+                    + "Authorization: Bearer " + secret + "\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: " + body.length() + "\r\n"
+                    + "Connection: close\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("HTTP/1.1 403 Forbidden", in.readLine());
+        }
+        assertTrue(commands.isEmpty());
+    }
+
+    @Test
+    void rejectsNonJsonContentType() throws IOException {
+        HttpURLConnection connection = open("text/plain");
+        connection.setRequestProperty("Authorization", "Bearer " + secret);
+
+        assertEquals(415, send(connection, "team list").getResponseCode());
+        assertTrue(commands.isEmpty());
+    }
+
+    @Test
+    void deletesSecretFileOnStop() {
+        assertTrue(Files.exists(secretFile));
+        server.stop();
+        assertFalse(Files.exists(secretFile));
+    }
+
+    private HttpURLConnection post(String body, Map<String, String> headers) throws IOException {
+        HttpURLConnection connection = open("application/json; charset=utf-8");
+        headers.forEach(connection::setRequestProperty);
+        return send(connection, body);
+    }
+
+    private HttpURLConnection open(String contentType) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getPort() + "/run");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", contentType);
+        return connection;
+    }
+
+    private static HttpURLConnection send(HttpURLConnection connection, String body) throws IOException {
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+}
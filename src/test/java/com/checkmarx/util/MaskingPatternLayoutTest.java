@@ -0,0 +1,119 @@
+package com.checkmarx.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MaskingPatternLayoutTest {
+    /** The mask patterns in logback-spring.xml */
+    private static final List<String> CONFIGURED_PATTERNS = Arrays.asList(
+            "[^&]password=(.+?)\\s",
+            "&password=(.+?)&",
+            "token=(.+?)[&\\s]",
+            "\"access_token\":\"([^\"]+)\"",
+            "Authorization: Bearer (.+)");
+
+    /** Fragments from which the test messages are assembled */
+    private static final List<String> FRAGMENTS = Arrays.asList(
+            "password=", "&password=", "token=", "tok", "en=", "\"access_token\":\"", "\"",
+            "Authorization: Bearer ", "Authorization: ", "secret", "s3cr3t", "&", " ", "\t", "\n",
+            "GET /cxrestapi/projects?", "x", "été", "=", "pass", "word=");
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger(MaskingPatternLayoutTest.class);
+
+    @Test
+    void matchesRegexOnlyMaskingForConfiguredPatterns() {
+        assertEquivalent(CONFIGURED_PATTERNS);
+    }
+
+    @Test
+    void matchesRegexOnlyMaskingWhenPrefilterIsDisabled() {
+        // The alternation has no required literal, so every line is matched
+        assertEquivalent(Arrays.asList("token=(.+?)[&\\s]", "(?:secret|s3cr3t)=(\\S+)"));
+    }
+
+    @Test
+    void matchesRegexOnlyMaskingForQuantifiedLiterals() {
+        assertEquivalent(Arrays.asList("pas+word=(\\S+)", "x?token=(\\w*)", "Bearer\\s+(\\S+)", "a{2}ccess=(\\S+)"));
+    }
+
+    @Test
+    void requiredLiteralIsInEveryMatch() {
+        for (String maskPattern : CONFIGURED_PATTERNS) {
+            String keyword = KeywordPrefilter.requiredLiteral(maskPattern);
+            Pattern pattern = Pattern.compile(maskPattern);
+            Random random = new Random(maskPattern.hashCode());
+            for (int i = 0; i < 2000; i++) {
+                String message = randomMessage(random);
+                Matcher matcher = pattern.matcher(message);
+                while (matcher.find()) {
+                    assertTrue(matcher.group().contains(keyword), () -> maskPattern + ": " + matcher.group());
+                }
+            }
+        }
+    }
+
+    @Test
+    void noRequiredLiteralForAlternationOrInlineFlags() {
+        assertNull(KeywordPrefilter.requiredLiteral("secret=(\\S+)|token=(\\S+)"));
+        assertNull(KeywordPrefilter.requiredLiteral("(?i)token=(\\S+)"));
+        assertEquals("token=", KeywordPrefilter.requiredLiteral("token=(.+?)[&\\s]"));
+        assertEquals("Authorization: Bearer ", KeywordPrefilter.requiredLiteral("Authorization: Bearer (.+)"));
+    }
+
+    private void assertEquivalent(List<String> maskPatterns) {
+        MaskingPatternLayout layout = new MaskingPatternLayout();
+        layout.setContext(context);
+        layout.setPattern("%msg");
+        maskPatterns.forEach(layout::addMaskPattern);
+        layout.start();
+        Pattern pattern = Pattern.compile(String.join("|", maskPatterns));
+
+        Random random = new Random(maskPatterns.hashCode());
+        for (int i = 0; i < 5000; i++) {
+            String message = randomMessage(random);
+            LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, null, null);
+            assertEquals(regexOnlyMask(pattern, message), layout.doLayout(event), message);
+        }
+    }
+
+    /**
+     * The masking done before the keyword prefilter was introduced.
+     */
+    private static String regexOnlyMask(Pattern pattern, String message) {
+        StringBuilder sb = new StringBuilder(message);
+        Matcher matcher = pattern.matcher(sb);
+        while (matcher.find()) {
+            for (int group = 1; group <= matcher.groupCount(); group++) {
+                if (matcher.group(group) != null) {
+                    for (int i = matcher.start(group); i < matcher.end(group); i++) {
+                        sb.setCharAt(i, '*');
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String randomMessage(Random random) {
+        StringBuilder message = new StringBuilder();
+        int fragments = random.nextInt(12);
+        for (int i = 0; i < fragments; i++) {
+            message.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.checkmarx.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+    private static final int PRODUCERS = 8;
+    private static final int ELEMENTS_PER_PRODUCER = 100_000;
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(1, new RingBuffer<>(1).capacity());
+        assertEquals(8, new RingBuffer<>(5).capacity());
+        assertEquals(8, new RingBuffer<>(8).capacity());
+    }
+
+    @Test
+    void rejectsOfferWhenFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void multipleProducersLoseNothingAndKeepTheirOrder() throws InterruptedException {
+        // A small buffer so that the producers contend for slots and often find it full
+        RingBuffer<long[]> buffer = new RingBuffer<>(64);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                for (long i = 0; i < ELEMENTS_PER_PRODUCER; i++) {
+                    long[] element = {producer, i};
+                    while (!buffer.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+
+        long[] next = new long[PRODUCERS];
+        long received = 0;
+        go.countDown();
+        while (received < (long) PRODUCERS * ELEMENTS_PER_PRODUCER) {
+            long[] element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) element[0];
+            assertEquals(next[producer], element[1], "producer " + producer);
+            next[producer]++;
+            received++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+        for (int p = 0; p < PRODUCERS; p++) {
+            assertEquals(ELEMENTS_PER_PRODUCER, next[p]);
+        }
+    }
+}
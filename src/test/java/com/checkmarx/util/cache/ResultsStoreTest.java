@@ -0,0 +1,219 @@
+package com.checkmarx.util.cache;
+
+import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResultsStoreTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private final CxProperties cxProperties = mock(CxProperties.class);
+    private final CacheProperties cacheProperties = new CacheProperties();
+    private final MetadataCache metadataCache = mock(MetadataCache.class);
+
+    @BeforeEach
+    void setUp() {
+        when(cxProperties.getBaseUrl()).thenReturn("https://cx.example.com");
+        when(cxProperties.getUsername()).thenReturn("admin");
+        when(metadataCache.getMode()).thenReturn(MetadataCache.Mode.DEFAULT);
+        cacheProperties.setEnabled(true);
+        cacheProperties.setDirectory(tempDir.toString());
+    }
+
+    @Test
+    void returnsStoredResults() {
+        ScanResults scanResults = scanResults("1");
+        newStore().put(1001, scanResults);
+
+        // A new store reads the index and the results from disk
+        assertEquals(scanResults, newStore().get(1001));
+        assertNull(newStore().get(1002));
+    }
+
+    @Test
+    void isBypassedUnlessInTheDefaultMode() {
+        when(metadataCache.getMode()).thenReturn(MetadataCache.Mode.DISABLED);
+        newStore().put(1001, scanResults("1"));
+        when(metadataCache.getMode()).thenReturn(MetadataCache.Mode.DEFAULT);
+        assertNull(newStore().get(1001));
+
+        newStore().put(1001, scanResults("1"));
+        when(metadataCache.getMode()).thenReturn(MetadataCache.Mode.REFRESH);
+        assertNull(newStore().get(1001));
+    }
+
+    @Test
+    void discardsCorruptResults() throws IOException {
+        newStore().put(1001, scanResults("1"));
+        Path file = resultsFiles().get(0);
+        Files.write(file, "not gzip".getBytes(StandardCharsets.UTF_8));
+
+        ResultsStore store = newStore();
+        assertNull(store.get(1001));
+        assertFalse(readIndex().containsKey(1001));
+
+        // The unreferenced file is removed by pruning
+        ResultsStore.PruneResult result = store.prune(Long.MAX_VALUE);
+        assertEquals(0, result.removed);
+        assertEquals(8, result.removedBytes);
+        assertTrue(resultsFiles().isEmpty());
+    }
+
+    @Test
+    void discardsResultsWhichDoNotMatchTheirDigest() throws IOException {
+        newStore().put(1001, scanResults("1"));
+        // Valid results, but not those that were stored
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(resultsFiles().get(0)))) {
+            mapper.writeValue(out, scanResults("2"));
+        }
+
+        assertNull(newStore().get(1001));
+        assertFalse(readIndex().containsKey(1001));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedResults() throws IOException {
+        ResultsStore store = newStore();
+        store.put(1001, scanResults("1"));
+        store.put(1002, scanResults("2"));
+        store.put(1003, scanResults("3"));
+        Map<Integer, ResultsStore.Entry> index = readIndex();
+        index.get(1001).lastUsedAt = 300;
+        index.get(1002).lastUsedAt = 100;
+        index.get(1003).lastUsedAt = 200;
+        writeIndex(index);
+        long size = 0;
+        for (ResultsStore.Entry entry : index.values()) {
+            size += entry.size;
+        }
+        // Room for the three results (which are about the same size) but not a fourth
+        cacheProperties.setResultsMaxSize(DataSize.ofBytes(size + 50));
+
+        store = newStore();
+        store.put(1004, scanResults("4"));
+
+        assertEquals(Collections.singleton(1002), missing(readIndex(), 1001, 1002, 1003, 1004));
+        assertEquals(3, resultsFiles().size());
+        assertNull(store.get(1002));
+
+        ResultsStore.PruneResult result = store.prune(1);
+        assertEquals(3, result.removed);
+        assertEquals(0, result.remaining);
+        assertTrue(resultsFiles().isEmpty());
+    }
+
+    @Test
+    void prunesInOrderOfLastUse() throws IOException {
+        ResultsStore store = newStore();
+        store.put(1001, scanResults("1"));
+        store.put(1002, scanResults("2"));
+        Map<Integer, ResultsStore.Entry> index = readIndex();
+        index.get(1001).lastUsedAt = 200;
+        index.get(1002).lastUsedAt = 100;
+        writeIndex(index);
+
+        ResultsStore.PruneResult result = newStore().prune(index.get(1001).size);
+
+        assertEquals(1, result.removed);
+        assertEquals(index.get(1002).size, result.removedBytes);
+        assertEquals(1, result.remaining);
+        assertEquals(index.get(1001).size, result.remainingBytes);
+        assertEquals(Collections.singleton(1001), readIndex().keySet());
+        assertEquals(scanResults("1"), newStore().get(1001));
+    }
+
+    @Test
+    void sharesTheFileOfIdenticalResults() throws IOException {
+        ResultsStore store = newStore();
+        store.put(1001, scanResults("1"));
+        store.put(1002, scanResults("1"));
+        assertEquals(1, resultsFiles().size());
+
+        ResultsStore.PruneResult result = store.prune(readIndex().get(1001).size);
+
+        // The remaining scan still references the file
+        assertEquals(1, result.removed);
+        assertEquals(1, resultsFiles().size());
+    }
+
+    private ResultsStore newStore() {
+        return new ResultsStore(cxProperties, cacheProperties, metadataCache);
+    }
+
+    private static ScanResults scanResults(String projectId) {
+        ScanResults.XIssue xIssue = ScanResults.XIssue.builder()
+                .vulnerability("SQL_Injection")
+                .severity("High")
+                .filename("src/A.java")
+                .details(new TreeMap<>(Collections.singletonMap(10, new ScanResults.IssueDetails())))
+                .build();
+        ScanResults scanResults = new ScanResults();
+        scanResults.setProjectId(projectId);
+        scanResults.setProject("SP");
+        scanResults.setTeam("/CxServer/SP");
+        scanResults.setXIssues(Collections.singletonList(xIssue));
+        return scanResults;
+    }
+
+    private List<Path> resultsFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".json.gz")).collect(Collectors.toList());
+        }
+    }
+
+    private Path indexFile() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            return files.filter(file -> file.getFileName().toString().equals("index.json")).findFirst()
+                    .orElseThrow(IllegalStateException::new);
+        }
+    }
+
+    private Map<Integer, ResultsStore.Entry> readIndex() throws IOException {
+        return mapper.readValue(indexFile().toFile(), new TypeReference<TreeMap<Integer, ResultsStore.Entry>>() {
+        });
+    }
+
+    private void writeIndex(Map<Integer, ResultsStore.Entry> index) throws IOException {
+        mapper.writeValue(indexFile().toFile(), index);
+    }
+
+    private static Set<Integer> missing(Map<Integer, ?> index, Integer... scanIds) {
+        Set<Integer> missing = new TreeSet<>();
+        for (Integer scanId : scanIds) {
+            if (!index.containsKey(scanId)) {
+                missing.add(scanId);
+            }
+        }
+        return missing;
+    }
+}
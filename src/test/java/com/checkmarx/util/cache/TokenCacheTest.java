@@ -0,0 +1,152 @@
+package com.checkmarx.util.cache;
+
+import com.checkmarx.sdk.config.CxProperties;
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.sdk.service.CxAuthClient;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class TokenCacheTest {
+    private static final String STORED_TOKEN = "stored-token";
+
+    /**
+     * An authentication client with the fields which the token cache sets
+     */
+    abstract static class FakeAuthClient implements CxAuthClient {
+        String token;
+        LocalDateTime tokenExpires;
+
+        @Override
+        public String getCurrentToken() {
+            return token;
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private final CxProperties cxProperties = mock(CxProperties.class);
+    private final CacheProperties cacheProperties = new CacheProperties();
+
+    @BeforeEach
+    void storeToken() throws Throwable {
+        when(cxProperties.getBaseUrl()).thenReturn("https://cx.example.com");
+        when(cxProperties.getClientId()).thenReturn("resource_owner_client");
+        when(cxProperties.getUsername()).thenReturn("admin");
+        cacheProperties.setDirectory(tempDir.toString());
+        cacheProperties.setPersistToken(true);
+
+        FakeAuthClient client = newClient();
+        client.token = STORED_TOKEN;
+        client.tokenExpires = LocalDateTime.now().plusHours(1);
+        newTokenCache(client).invoke(invocation(() -> "ok"));
+        assertEquals(1, tokenFiles());
+    }
+
+    @Test
+    void restoresStoredToken() throws Throwable {
+        FakeAuthClient client = newClient();
+
+        assertEquals("ok", newTokenCache(client).invoke(invocation(() -> "ok")));
+        assertEquals(STORED_TOKEN, client.token);
+    }
+
+    @Test
+    void retriesOnceWhenStoredTokenIsRejected() throws Throwable {
+        FakeAuthClient client = newClient();
+        ProxyMethodInvocation invocation = invocation(() -> {
+            throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED);
+        });
+        ProxyMethodInvocation retry = invocation(() -> "ok");
+        when(invocation.invocableClone()).thenReturn(retry);
+
+        assertEquals("ok", newTokenCache(client).invoke(invocation));
+        verify(retry).proceed();
+        assertEquals(0, tokenFiles());
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() throws Throwable {
+        FakeAuthClient client = newClient();
+        CheckmarxException failure = new CheckmarxException("401 Unauthorized");
+        ProxyMethodInvocation invocation = invocation(() -> {
+            throw failure;
+        });
+        ProxyMethodInvocation retry = invocation(() -> "ok");
+        when(invocation.invocableClone()).thenReturn(retry);
+
+        assertSame(failure, assertThrows(CheckmarxException.class, () -> newTokenCache(client).invoke(invocation)));
+        verify(retry, never()).proceed();
+        assertEquals(1, tokenFiles());
+    }
+
+    @Test
+    void doesNotRetryWhenAnotherTokenWasUsed() throws Throwable {
+        FakeAuthClient client = newClient();
+        TokenCache tokenCache = newTokenCache(client);
+        tokenCache.invoke(invocation(() -> "ok"));
+
+        // The SDK has logged in again since the stored token was restored
+        client.token = "fresh-token";
+        ProxyMethodInvocation invocation = invocation(() -> {
+            throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED);
+        });
+        ProxyMethodInvocation retry = invocation(() -> "ok");
+        when(invocation.invocableClone()).thenReturn(retry);
+
+        assertThrows(HttpClientErrorException.class, () -> tokenCache.invoke(invocation));
+        verify(retry, never()).proceed();
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        Object call() throws Throwable;
+    }
+
+    private static ProxyMethodInvocation invocation(Call call) throws Throwable {
+        ProxyMethodInvocation invocation = mock(ProxyMethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(CxAuthClient.class.getMethod("getCurrentToken"));
+        when(invocation.proceed()).thenAnswer(i -> call.call());
+        when(invocation.invocableClone()).thenReturn(mock(MethodInvocation.class));
+        return invocation;
+    }
+
+    private static FakeAuthClient newClient() {
+        return mock(FakeAuthClient.class, withSettings().defaultAnswer(CALLS_REAL_METHODS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private TokenCache newTokenCache(FakeAuthClient client) {
+        ObjectProvider<CxAuthClient> provider = mock(ObjectProvider.class);
+        when(provider.getIfUnique()).thenReturn(client);
+        return new TokenCache(provider, cxProperties, cacheProperties);
+    }
+
+    private long tokenFiles() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("token-")).count();
+        }
+    }
+
+}
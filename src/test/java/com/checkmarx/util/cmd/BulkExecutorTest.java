@@ -0,0 +1,83 @@
+package com.checkmarx.util.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkExecutorTest {
+    @Test
+    void runsTasksWithTheSameKeyInOrder() {
+        Map<Integer, List<Integer>> runs = new ConcurrentHashMap<>();
+        Map<Integer, AtomicInteger> active = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        try (BulkExecutor executor = new BulkExecutor(4)) {
+            for (int i = 0; i < 1000; i++) {
+                int key = i % 5;
+                int task = i;
+                executor.submit(key, () -> {
+                    if (active.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    Thread.yield();
+                    runs.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(task);
+                    active.get(key).decrementAndGet();
+                    return null;
+                });
+            }
+        }
+
+        assertEquals(0, overlaps.get());
+        assertEquals(5, runs.size());
+        for (Map.Entry<Integer, List<Integer>> entry : runs.entrySet()) {
+            List<Integer> tasks = entry.getValue();
+            assertEquals(200, tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                assertEquals(entry.getKey() + i * 5, tasks.get(i));
+            }
+        }
+    }
+
+    @Test
+    void runsTasksWithDifferentKeysConcurrently() throws InterruptedException {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        try (BulkExecutor executor = new BulkExecutor(2)) {
+            for (String key : new String[]{"a", "b"}) {
+                executor.submit(key, () -> {
+                    bothRunning.countDown();
+                    return bothRunning.await(10, TimeUnit.SECONDS);
+                });
+            }
+            assertTrue(bothRunning.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void failedTaskDoesNotStopTheTasksQueuedBehindIt() throws Exception {
+        CompletableFuture<Object> failed;
+        CompletableFuture<String> next;
+        try (BulkExecutor executor = new BulkExecutor(1)) {
+            failed = executor.submit("key", () -> {
+                throw new IllegalStateException("failed");
+            });
+            next = executor.submit("key", () -> "ran");
+        }
+
+        ExecutionException ee = assertThrows(ExecutionException.class, failed::get);
+        assertEquals("failed", ee.getCause().getMessage());
+        assertEquals("ran", next.get());
+    }
+}
@@ -0,0 +1,64 @@
+package com.checkmarx.util.cmd;
+
+import com.checkmarx.sdk.exception.CheckmarxException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CmdUtilTest {
+    private final InputStream stdin = System.in;
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void restoreStandardInput() {
+        System.setIn(stdin);
+    }
+
+    @Test
+    void closingStandardInputLeavesItOpen() throws IOException {
+        boolean[] closed = new boolean[1];
+        System.setIn(new ByteArrayInputStream("first\n".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        });
+
+        try (BufferedReader reader = CmdUtil.openInput(CmdUtil.STANDARD_INPUT)) {
+            assertEquals("first", reader.readLine());
+        }
+
+        assertFalse(closed[0]);
+    }
+
+    @Test
+    void opensFiles() throws IOException {
+        Path file = tempDir.resolve("teams.txt");
+        Files.write(file, Collections.singletonList("/CxServer/SP"), StandardCharsets.UTF_8);
+
+        try (BufferedReader reader = CmdUtil.openInput(file.toString())) {
+            assertEquals("/CxServer/SP", reader.readLine());
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveThreads() throws CheckmarxException {
+        CmdUtil.checkThreads(1);
+        assertThrows(CheckmarxException.class, () -> CmdUtil.checkThreads(0));
+    }
+}
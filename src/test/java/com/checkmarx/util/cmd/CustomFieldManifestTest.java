@@ -0,0 +1,156 @@
+package com.checkmarx.util.cmd;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CustomFieldManifestTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void parseCsvLineHandlesQuoting() {
+        assertEquals(Arrays.asList("a", "b", "c"), CustomFieldManifest.parseCsvLine("a,b,c"));
+        assertEquals(Arrays.asList("a,b", "c"), CustomFieldManifest.parseCsvLine("\"a,b\",c"));
+        assertEquals(Arrays.asList("say \"hi\"", ""), CustomFieldManifest.parseCsvLine("\"say \"\"hi\"\"\","));
+        assertEquals(Arrays.asList("", "", ""), CustomFieldManifest.parseCsvLine(",,"));
+        assertEquals(Collections.singletonList(""), CustomFieldManifest.parseCsvLine(""));
+        assertThrows(IllegalArgumentException.class, () -> CustomFieldManifest.parseCsvLine("\"unterminated,x"));
+    }
+
+    @Test
+    public void readsCsvRows() throws IOException {
+        List<CustomFieldManifest.Row> rows = read("manifest.csv",
+                "# comment before the header",
+                "Project,Team,varA,varB",
+                "",
+                "netgoat,/CxServer/SP,valA,\"b, with comma\"",
+                "  # indented comment",
+                "webgoat,,valC,",
+                "   ");
+
+        assertEquals(2, rows.size());
+        CustomFieldManifest.Row netgoat = rows.get(0);
+        assertNull(netgoat.getError());
+        assertEquals(4, netgoat.getNumber());
+        assertEquals("netgoat", netgoat.getProject());
+        assertEquals("/CxServer/SP", netgoat.getTeam());
+        assertEquals("valA", netgoat.getFields().get("varA"));
+        assertEquals("b, with comma", netgoat.getFields().get("varB"));
+
+        CustomFieldManifest.Row webgoat = rows.get(1);
+        assertNull(webgoat.getError());
+        assertEquals(6, webgoat.getNumber());
+        assertNull(webgoat.getTeam());
+        assertEquals(Collections.singleton("varA"), webgoat.getFields().keySet());
+    }
+
+    @Test
+    public void reportsBadCsvRows() throws IOException {
+        List<CustomFieldManifest.Row> rows = read("manifest.csv",
+                "project,varA",
+                "netgoat,a,extra",
+                "\"unterminated,a",
+                ",a",
+                "webgoat,b");
+
+        assertEquals(4, rows.size());
+        assertNotNull(rows.get(0).getError());
+        assertTrue(rows.get(0).getError().contains("at most 2 columns"), rows.get(0).getError());
+        assertEquals("unterminated quoted value", rows.get(1).getError());
+        assertEquals("no project specified", rows.get(2).getError());
+        assertNull(rows.get(3).getError());
+        assertEquals("webgoat", rows.get(3).getProject());
+    }
+
+    @Test
+    public void readsNdjsonRows() throws IOException {
+        List<CustomFieldManifest.Row> rows = read("manifest.ndjson",
+                "# comment",
+                "{\"project\": \"netgoat\", \"team\": \"/CxServer/SP\", \"fields\": {\"varA\": \"valA\", \"n\": 1}}",
+                "",
+                "{\"project\": \"webgoat\"}",
+                "[1, 2]",
+                "{not json",
+                "{\"team\": \"/CxServer\"}");
+
+        assertEquals(5, rows.size());
+        assertNull(rows.get(0).getError());
+        assertEquals("netgoat", rows.get(0).getProject());
+        assertEquals("/CxServer/SP", rows.get(0).getTeam());
+        assertEquals("valA", rows.get(0).getFields().get("varA"));
+        assertEquals("1", rows.get(0).getFields().get("n"));
+        assertNull(rows.get(1).getError());
+        assertNull(rows.get(1).getTeam());
+        assertTrue(rows.get(1).getFields().isEmpty());
+        assertEquals("expected a JSON object", rows.get(2).getError());
+        assertNotNull(rows.get(3).getError());
+        assertEquals(6, rows.get(3).getNumber());
+        assertEquals("no project specified", rows.get(4).getError());
+    }
+
+    @Test
+    public void ignoresNullNdjsonFields() throws IOException {
+        List<CustomFieldManifest.Row> rows = read("manifest.ndjson",
+                "{\"project\": \"netgoat\", \"fields\": {\"varA\": null, \"varB\": \"\"}}",
+                "{\"project\": \"netgoat\", \"fields\": {\"varA\": [\"valA\"]}}");
+
+        assertEquals(2, rows.size());
+        assertNull(rows.get(0).getError());
+        assertEquals(Collections.singletonMap("varB", ""), rows.get(0).getFields());
+        assertEquals("varA: expected a value", rows.get(1).getError());
+    }
+
+    @Test
+    public void sniffsFormatWithoutExtension() throws IOException {
+        List<CustomFieldManifest.Row> ndjson = read("manifest",
+                "# a comment line mentioning project,team",
+                "",
+                "{\"project\": \"netgoat\", \"fields\": {\"varA\": \"valA\"}}");
+        assertEquals(1, ndjson.size());
+        assertNull(ndjson.get(0).getError());
+        assertEquals("valA", ndjson.get(0).getFields().get("varA"));
+
+        List<CustomFieldManifest.Row> csv = read("manifest.txt",
+                "# {\"not\": \"json\"}",
+                "project,varA",
+                "netgoat,valA");
+        assertEquals(1, csv.size());
+        assertNull(csv.get(0).getError());
+        assertEquals("valA", csv.get(0).getFields().get("varA"));
+    }
+
+    @Test
+    public void emptyManifestHasNoRows() throws IOException {
+        assertTrue(read("empty.csv").isEmpty());
+        assertTrue(read("header-only.csv", "project,varA").isEmpty());
+        assertTrue(read("empty").isEmpty());
+    }
+
+    private List<CustomFieldManifest.Row> read(String name, String... lines) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        List<CustomFieldManifest.Row> rows = new ArrayList<>();
+        try (CustomFieldManifest manifest = CustomFieldManifest.open(file.toString())) {
+            CustomFieldManifest.Row row;
+            while ((row = manifest.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
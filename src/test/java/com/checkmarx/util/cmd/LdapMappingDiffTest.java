@@ -0,0 +1,251 @@
+package com.checkmarx.util.cmd;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LdapMappingDiffTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final int SERVER = 1;
+    private static final int OTHER_SERVER = 2;
+
+    @Test
+    void matchesDnsIgnoringCaseAndWhiteSpace() {
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Collections.singletonList(new LdapMappingDiff.Mapping(SERVER, "10", "CN=Developers,DC=example,DC=com")),
+                desired(SERVER, "10", "  cn=developers,dc=EXAMPLE,dc=com "));
+
+        assertTrue(diff.isEmpty());
+        assertEquals(1, diff.getUnchanged());
+    }
+
+    @Test
+    void addsAndRemovesDifferingMappings() {
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Arrays.asList(new LdapMappingDiff.Mapping(SERVER, "10", "CN=Old"),
+                        new LdapMappingDiff.Mapping(SERVER, "10", "CN=Kept")),
+                desired(SERVER, "10", "cn=kept", "CN=New"));
+
+        assertEquals(Collections.singletonList("CN=New"), dns(diff.getAdditions()));
+        assertEquals(Collections.singletonList("CN=Old"), dns(diff.getRemovals()));
+        assertEquals(1, diff.getUnchanged());
+    }
+
+    @Test
+    void leavesUntouchedScopesAlone() {
+        // Team 20 is not named and team 10 is only named for SERVER
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Arrays.asList(new LdapMappingDiff.Mapping(SERVER, "20", "CN=Other team"),
+                        new LdapMappingDiff.Mapping(OTHER_SERVER, "10", "CN=Other server"),
+                        new LdapMappingDiff.Mapping(SERVER, "10", "CN=Kept")),
+                desired(SERVER, "10", "CN=Kept"));
+
+        assertTrue(diff.isEmpty());
+        assertEquals(1, diff.getUnchanged());
+    }
+
+    @Test
+    void emptyListRemovesEveryMappingOfTheTarget() {
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Arrays.asList(new LdapMappingDiff.Mapping(SERVER, "10", "CN=A"),
+                        new LdapMappingDiff.Mapping(SERVER, "10", "CN=B"),
+                        new LdapMappingDiff.Mapping(SERVER, "20", "CN=C")),
+                desired(SERVER, "10"));
+
+        assertEquals(Arrays.asList("CN=A", "CN=B"), dns(diff.getRemovals()));
+        assertTrue(diff.getAdditions().isEmpty());
+    }
+
+    @Test
+    void emptyDesiredStateChangesNothing() {
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Collections.singletonList(new LdapMappingDiff.Mapping(SERVER, "10", "CN=A")),
+                Collections.emptyMap());
+
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.getUnchanged());
+    }
+
+    @Test
+    void ignoresDuplicates() {
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Arrays.asList(new LdapMappingDiff.Mapping(SERVER, "10", "CN=Old"),
+                        new LdapMappingDiff.Mapping(SERVER, "10", "cn=old"),
+                        new LdapMappingDiff.Mapping(SERVER, "10", "CN=Kept"),
+                        new LdapMappingDiff.Mapping(SERVER, "10", "CN=KEPT")),
+                desired(SERVER, "10", "CN=Kept", "cn=kept", "CN=New", "cn=new "));
+
+        assertEquals(Collections.singletonList("CN=New"), dns(diff.getAdditions()));
+        assertEquals(Collections.singletonList("CN=Old"), dns(diff.getRemovals()));
+        assertEquals(1, diff.getUnchanged());
+    }
+
+    @Test
+    void dryRunDescribesChangesWithoutApplyingThem() throws IOException {
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Collections.singletonList(new LdapMappingDiff.Mapping(SERVER, "10", "CN=Old")),
+                desired(SERVER, "10", "CN=New"));
+        StringWriter out = new StringWriter();
+        AtomicInteger calls = new AtomicInteger();
+
+        int failures = diff.apply(4, true, new NdjsonWriter(out), LdapMappingDiffTest::describe,
+                mapping -> calls.incrementAndGet(), mapping -> calls.incrementAndGet());
+
+        assertEquals(0, failures);
+        assertEquals(0, calls.get());
+        List<JsonNode> records = records(out);
+        assertEquals(2, records.size());
+        assertEquals("remove", records.get(0).path("action").asText());
+        assertEquals("planned", records.get(0).path("status").asText());
+        assertEquals("add", records.get(1).path("action").asText());
+        assertEquals("CN=New", records.get(1).path("dn").asText());
+    }
+
+    @Test
+    void appliesChangesToEachTargetInOrder() throws IOException {
+        List<LdapMappingDiff.Mapping> current = new ArrayList<>();
+        Map<Integer, Map<String, List<String>>> desired = new LinkedHashMap<>();
+        Map<String, List<String>> targets = new LinkedHashMap<>();
+        for (int target = 0; target < 8; target++) {
+            List<String> dns = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                current.add(new LdapMappingDiff.Mapping(SERVER, "t" + target, "CN=Old" + i));
+                dns.add("CN=New" + i);
+            }
+            targets.put("t" + target, dns);
+        }
+        desired.put(SERVER, targets);
+        LdapMappingDiff diff = new LdapMappingDiff(current, desired);
+
+        // Record the changes to each target and whether two ever overlapped
+        Map<String, List<String>> applied = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        LdapMappingDiff.MappingAction record = mapping -> {
+            AtomicInteger inProgress = active.computeIfAbsent(mapping.getTargetId(), k -> new AtomicInteger());
+            if (inProgress.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            Thread.yield();
+            applied.computeIfAbsent(mapping.getTargetId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(mapping.getDn());
+            inProgress.decrementAndGet();
+        };
+        StringWriter out = new StringWriter();
+
+        int failures = diff.apply(4, false, new NdjsonWriter(out), LdapMappingDiffTest::describe, record, record);
+
+        assertEquals(0, failures);
+        assertEquals(0, overlaps.get());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add("CN=Old" + i);
+        }
+        for (int i = 0; i < 20; i++) {
+            expected.add("CN=New" + i);
+        }
+        assertEquals(8, applied.size());
+        for (List<String> dns : applied.values()) {
+            assertEquals(expected, dns);
+        }
+        assertEquals(8 * 40, records(out).size());
+    }
+
+    @Test
+    void failedChangeDoesNotStopTheOthers() throws IOException {
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Collections.singletonList(new LdapMappingDiff.Mapping(SERVER, "10", "CN=Old")),
+                desired(SERVER, "10", "CN=New"));
+        StringWriter out = new StringWriter();
+        List<String> added = new ArrayList<>();
+
+        int failures = diff.apply(2, false, new NdjsonWriter(out), LdapMappingDiffTest::describe,
+                mapping -> added.add(mapping.getDn()),
+                mapping -> {
+                    throw new IllegalStateException("refused");
+                });
+
+        assertEquals(1, failures);
+        assertEquals(Collections.singletonList("CN=New"), added);
+        List<JsonNode> records = records(out);
+        assertEquals("failed", records.get(0).path("status").asText());
+        assertEquals("refused", records.get(0).path("message").asText());
+        assertEquals("applied", records.get(1).path("status").asText());
+        assertFalse(records.get(1).has("message"));
+    }
+
+    @Test
+    void failsIfAChangeRecordCannotBeWritten() {
+        LdapMappingDiff diff = new LdapMappingDiff(
+                Collections.singletonList(new LdapMappingDiff.Mapping(SERVER, "10", "CN=Old")),
+                desired(SERVER, "10", "CN=New"));
+        Writer full = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("No space left on device");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        IOException ioe = assertThrows(IOException.class, () -> diff.apply(2, false, new NdjsonWriter(full),
+                LdapMappingDiffTest::describe, mapping -> {
+                }, mapping -> {
+                }));
+        assertEquals("No space left on device", ioe.getMessage());
+    }
+
+    private static Map<Integer, Map<String, List<String>>> desired(int server, String target, String... dns) {
+        Map<String, List<String>> targets = new HashMap<>();
+        targets.put(target, Arrays.asList(dns));
+        return Collections.singletonMap(server, targets);
+    }
+
+    private static LdapMappingDiff.Change describe(LdapMappingDiff.Mapping mapping) {
+        LdapMappingDiff.Change change = new LdapMappingDiff.Change();
+        change.team = mapping.getTargetId();
+        return change;
+    }
+
+    private static List<String> dns(List<LdapMappingDiff.Mapping> mappings) {
+        List<String> dns = new ArrayList<>();
+        for (LdapMappingDiff.Mapping mapping : mappings) {
+            dns.add(mapping.getDn());
+        }
+        return dns;
+    }
+
+    private static List<JsonNode> records(StringWriter out) throws IOException {
+        List<JsonNode> records = new ArrayList<>();
+        for (String line : out.toString().split("\n")) {
+            if (!line.isEmpty()) {
+                records.add(mapper.readTree(line));
+            }
+        }
+        return records;
+    }
+}
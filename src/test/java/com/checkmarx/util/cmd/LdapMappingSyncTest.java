@@ -0,0 +1,116 @@
+package com.checkmarx.util.cmd;
+
+import com.checkmarx.sdk.exception.CheckmarxException;
+import com.checkmarx.util.cache.MetadataCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LdapMappingSyncTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private final MetadataCache metadataCache = mock(MetadataCache.class);
+    private final List<String> actions = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws CheckmarxException {
+        when(metadataCache.getLdapServerId("corp")).thenReturn(3);
+        when(metadataCache.getLdapServerId("missing")).thenReturn(-1);
+    }
+
+    @Test
+    void appliesChangesWithResolvedNames() throws Exception {
+        Path file = write("corp:\n  Dev:\n    - CN=Dev,DC=example\n");
+        StringWriter out = new StringWriter();
+
+        int exitCode = newSync().sync(file.toString(), false, 2, new PrintWriter(out));
+
+        assertEquals(CommandLine.ExitCode.OK, exitCode);
+        assertEquals(Arrays.asList("remove 3 10 /CxServer/Dev CN=Old", "add 3 10 /CxServer/Dev CN=Dev,DC=example"),
+                actions);
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        JsonNode removed = mapper.readTree(lines[0]);
+        assertEquals("remove", removed.path("action").asText());
+        assertEquals("corp", removed.path("ldapServer").asText());
+        assertEquals("/CxServer/Dev", removed.path("team").asText());
+        assertEquals("applied", removed.path("status").asText());
+    }
+
+    @Test
+    void reportsFailedChanges() throws Exception {
+        Path file = write("corp:\n  Dev: []\n");
+        LdapMappingSync sync = new LdapMappingSync(metadataCache, LdapMappingSyncTest::resolve,
+                serverId -> Collections.singletonList(new LdapMappingDiff.Mapping(serverId, "10", "CN=Old")),
+                (change, name) -> change.team = name,
+                (mapping, name) -> actions.add("add"),
+                (mapping, name) -> {
+                    throw new CheckmarxException("refused");
+                });
+
+        assertEquals(CommandLine.ExitCode.SOFTWARE, sync.sync(file.toString(), false, 2,
+                new PrintWriter(new StringWriter())));
+    }
+
+    @Test
+    void rejectsUnknownLdapServer() throws Exception {
+        Path file = write("missing:\n  Dev: []\n");
+
+        assertThrows(CheckmarxException.class,
+                () -> newSync().sync(file.toString(), false, 2, new PrintWriter(new StringWriter())));
+        assertEquals(Collections.emptyList(), actions);
+    }
+
+    @Test
+    void rejectsUnknownTarget() throws Exception {
+        Path file = write("corp:\n  Nobody: []\n");
+
+        assertThrows(CheckmarxException.class,
+                () -> newSync().sync(file.toString(), true, 2, new PrintWriter(new StringWriter())));
+    }
+
+    private LdapMappingSync newSync() {
+        return new LdapMappingSync(metadataCache, LdapMappingSyncTest::resolve,
+                serverId -> Collections.singletonList(new LdapMappingDiff.Mapping(serverId, "10", "CN=Old")),
+                (change, name) -> change.team = name,
+                (mapping, name) -> actions.add(String.format("add %d %s %s %s",
+                        mapping.getLdapServerId(), mapping.getTargetId(), name, mapping.getDn())),
+                (mapping, name) -> actions.add(String.format("remove %d %s %s %s",
+                        mapping.getLdapServerId(), mapping.getTargetId(), name, mapping.getDn())));
+    }
+
+    private static LdapMappingSync.Target resolve(String name) throws CheckmarxException {
+        if (!"Dev".equals(name)) {
+            throw new CheckmarxException("Could not find team ".concat(name));
+        }
+        return new LdapMappingSync.Target("10", "/CxServer/Dev");
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("ldap.yaml");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,49 @@
+package com.checkmarx.util.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NdjsonWriterTest {
+    @Test
+    void writesOneRecordPerLine() throws IOException {
+        StringWriter out = new StringWriter();
+        NdjsonWriter records = new NdjsonWriter(out);
+
+        records.write(Collections.singletonMap("id", 1));
+        records.write(Collections.singletonMap("id", 2));
+        records.checkFailure();
+
+        assertEquals("{\"id\":1}\n{\"id\":2}\n", out.toString());
+    }
+
+    @Test
+    void remembersTheFirstFailedWrite() {
+        IOException full = new IOException("No space left on device");
+        NdjsonWriter records = new NdjsonWriter(new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw full;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        assertThrows(IOException.class, () -> records.write(Collections.singletonMap("id", 1)));
+
+        assertSame(full, assertThrows(IOException.class, records::checkFailure));
+    }
+}
@@ -0,0 +1,100 @@
+package com.checkmarx.util.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.5, 0.9, 0.95, 0.99, 0.999, 1};
+    private static final double ACCURACY = 0.125;
+    private static final int SAMPLES = 100000;
+
+    @Test
+    void lowerBoundIsTheFirstValueOfEachBucket() {
+        int last = LatencyHistogram.index(Long.MAX_VALUE);
+        assertEquals(0, LatencyHistogram.lowerBound(0));
+        for (int i = 0; i < last; i++) {
+            long lower = LatencyHistogram.lowerBound(i);
+            long next = LatencyHistogram.lowerBound(i + 1);
+            assertTrue(next > lower, "bucket " + i);
+            assertEquals(i, LatencyHistogram.index(lower), "bucket " + i);
+            assertEquals(i, LatencyHistogram.index(next - 1), "bucket " + i);
+        }
+        assertEquals(last, LatencyHistogram.index(LatencyHistogram.lowerBound(last)));
+    }
+
+    @Test
+    void bucketsAreNarrowAtEveryMagnitude() {
+        for (int exponent = 0; exponent < Long.SIZE - 1; exponent++) {
+            for (long value : new long[]{1L << exponent, (1L << exponent) + 1, (1L << exponent) + (1L << exponent >> 1),
+                    (2L << exponent) - 1}) {
+                int index = LatencyHistogram.index(value);
+                long lower = LatencyHistogram.lowerBound(index);
+                assertTrue(lower <= value, "value " + value);
+                assertTrue(value - lower <= value * ACCURACY, "value " + value);
+                if (index < LatencyHistogram.index(Long.MAX_VALUE)) {
+                    assertTrue(LatencyHistogram.lowerBound(index + 1) > value, "value " + value);
+                }
+            }
+        }
+    }
+
+    @Test
+    void estimatesQuantilesOfAUniformDistribution() {
+        Random random = new Random(1);
+        checkQuantiles(() -> 1 + random.nextInt(1000000));
+    }
+
+    @Test
+    void estimatesQuantilesOfAnExponentialDistribution() {
+        Random random = new Random(2);
+        checkQuantiles(() -> (long) (-Math.log(1 - random.nextDouble()) * 50000));
+    }
+
+    @Test
+    void estimatesQuantilesAcrossMagnitudes() {
+        // Log-uniform between 1 microsecond and about 15 minutes
+        Random random = new Random(3);
+        checkQuantiles(() -> (long) Math.pow(10, random.nextDouble() * 9));
+    }
+
+    @Test
+    void estimatesExactSmallValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getQuantile(0.5));
+        for (int i = 0; i < 8; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+
+        assertEquals(9, histogram.getCount());
+        assertEquals(28, histogram.getSum());
+        assertEquals(7, histogram.getMax());
+        assertEquals(0, histogram.getQuantile(0.2));
+        assertEquals(3, histogram.getQuantile(0.5));
+        assertEquals(7, histogram.getQuantile(1));
+    }
+
+    private static void checkQuantiles(LongSupplier distribution) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            values[i] = distribution.getAsLong();
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values[SAMPLES - 1], histogram.getMax());
+        for (double quantile : QUANTILES) {
+            long exact = values[(int) Math.max(1, Math.ceil(quantile * SAMPLES)) - 1];
+            long estimate = histogram.getQuantile(quantile);
+            assertTrue(Math.abs(estimate - exact) <= exact * ACCURACY,
+                    String.format("quantile %s: estimate %d, exact %d", quantile, estimate, exact));
+        }
+    }
+}
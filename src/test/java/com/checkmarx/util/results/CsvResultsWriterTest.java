@@ -0,0 +1,78 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.checkmarx.util.results.NdjsonResultsWriterTest.scanResults;
+import static com.checkmarx.util.results.NdjsonResultsWriterTest.xIssue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvResultsWriterTest {
+
+    @Test
+    void writesAHeaderAndOneRecordPerFinding() throws IOException {
+        ScanResults.XIssue quoted = xIssue("XSS", "dir, \"with\"\r\nbreaks.js");
+        quoted.setCwe(null);
+        StringWriter out = new StringWriter();
+
+        try (CsvResultsWriter resultsWriter = new CsvResultsWriter(out)) {
+            resultsWriter.write(scanResults(xIssue("SQL_Injection", "a.java", 10, 20), quoted));
+        }
+
+        assertTrue(out.toString().endsWith("\r\n"));
+        List<List<String>> records = parse(out.toString());
+        assertEquals(3, records.size());
+        assertEquals(Arrays.asList("project_id", "project", "team", "query", "severity", "status", "cwe",
+                "language", "file", "lines", "similarity_id", "link"), records.get(0));
+        assertEquals(Arrays.asList("42", "SP", "/CxServer/SP", "SQL_Injection", "High", "To Verify", "89", "",
+                "a.java", "10;20", "-1234", "https://cx/SQL_Injection"), records.get(1));
+        assertEquals("", records.get(2).get(6));
+        assertEquals("dir, \"with\"\r\nbreaks.js", records.get(2).get(8));
+        assertEquals("", records.get(2).get(9));
+    }
+
+    /**
+     * Parse RFC 4180 CSV (records end with CRLF).
+     */
+    private static List<List<String>> parse(String text) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append(c);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                record.add(value.toString());
+                value.setLength(0);
+                records.add(record);
+                record = new ArrayList<>();
+                i++;
+            } else {
+                value.append(c);
+            }
+        }
+        assertTrue(record.isEmpty() && value.length() == 0 && !quoted, "incomplete record");
+        return records;
+    }
+}
@@ -0,0 +1,107 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprintSetTest {
+    @Test
+    void fingerprintsEachResult() {
+        ScanResults.XIssue base = xIssue("SQL_Injection", "src/A.java", "111", 10, "a(sql);", 20, "b(sql);");
+        ScanResults.XIssue head = xIssue("SQL_Injection", "src/A.java", "111", 10, "a(sql);", 30, "c(sql);");
+
+        FingerprintSet set = FingerprintSet.of(Collections.singletonList(base));
+
+        assertEquals(2, set.size());
+        long[] fingerprints = FingerprintSet.fingerprints(head);
+        assertTrue(set.contains(fingerprints[0]));
+        assertFalse(set.contains(fingerprints[1]));
+    }
+
+    @Test
+    void ignoresLineShifts() {
+        ScanResults.XIssue base = xIssue("SQL_Injection", "src/A.java", "111", 10, "a(sql);", 20, "b(sql);");
+        ScanResults.XIssue head = xIssue("SQL_Injection", "src/A.java", "222", 13, "a(sql);", 23, "    b(sql);");
+
+        assertArrayEquals(FingerprintSet.fingerprints(base), FingerprintSet.fingerprints(head));
+    }
+
+    @Test
+    void distinguishesRepeatedSnippets() {
+        ScanResults.XIssue base = xIssue("SQL_Injection", "src/A.java", null, 10, "run(sql);", 20, "run(sql);");
+        ScanResults.XIssue head = xIssue("SQL_Injection", "src/A.java", null, 15, "run(sql);");
+
+        FingerprintSet set = FingerprintSet.of(Collections.singletonList(head));
+
+        assertEquals(2, FingerprintSet.of(Collections.singletonList(base)).size());
+        long[] fingerprints = FingerprintSet.fingerprints(base);
+        assertTrue(set.contains(fingerprints[0]));
+        assertFalse(set.contains(fingerprints[1]));
+    }
+
+    @Test
+    void usesLineWithoutSnippet() {
+        ScanResults.XIssue base = xIssue("SQL_Injection", "src/A.java", null, 10, null, 20, " ");
+        ScanResults.XIssue head = xIssue("SQL_Injection", "src/A.java", null, 10, null, 30, null);
+
+        long[] baseFingerprints = FingerprintSet.fingerprints(base);
+        long[] headFingerprints = FingerprintSet.fingerprints(head);
+        assertEquals(baseFingerprints[0], headFingerprints[0]);
+        assertNotEquals(baseFingerprints[1], headFingerprints[1]);
+    }
+
+    @Test
+    void usesSimilarityIdWithoutResults() {
+        ScanResults.XIssue base = xIssue("SQL_Injection", "src/A.java", "111");
+        ScanResults.XIssue head = xIssue("SQL_Injection", "src/A.java", "222");
+
+        assertEquals(Collections.singletonList(null), FingerprintSet.getLines(base));
+        assertNotEquals(FingerprintSet.fingerprints(base)[0], FingerprintSet.fingerprints(head)[0]);
+        assertTrue(FingerprintSet.of(Collections.singletonList(base)).contains(FingerprintSet.fingerprints(base)[0]));
+    }
+
+    @Test
+    void distinguishesQueriesAndFiles() {
+        ScanResults.XIssue xIssue = xIssue("SQL_Injection", "src/A.java", null, 10, "a(sql);");
+
+        FingerprintSet set = FingerprintSet.of(Arrays.asList(xIssue,
+                xIssue("XSS", "src/A.java", null, 10, "a(sql);"),
+                xIssue("SQL_Injection", "src/B.java", null, 10, "a(sql);")));
+
+        assertEquals(3, set.size());
+        assertFalse(set.contains(FingerprintSet.fingerprints(xIssue("SQL_Injection", "src/C.java", null, 10, "a(sql);"))[0]));
+    }
+
+    @Test
+    void returnsLinesInOrder() {
+        assertEquals(Arrays.asList(5, 10, 20), FingerprintSet.getLines(xIssue("Q", "f", null, 20, "c", 5, "a", 10, "b")));
+    }
+
+    /**
+     * Create a finding with a result for each pair of line and code snippet.
+     */
+    private static ScanResults.XIssue xIssue(String query, String file, String similarityId, Object... results) {
+        Map<Integer, ScanResults.IssueDetails> details = new HashMap<>();
+        for (int i = 0; i < results.length; i += 2) {
+            ScanResults.IssueDetails issueDetails = new ScanResults.IssueDetails();
+            issueDetails.setCodeSnippet((String) results[i + 1]);
+            details.put((Integer) results[i], issueDetails);
+        }
+        return ScanResults.XIssue.builder()
+                .vulnerability(query)
+                .filename(file)
+                .similarityId(similarityId)
+                .details(details)
+                .build();
+    }
+}
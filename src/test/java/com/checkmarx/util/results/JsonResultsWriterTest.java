@@ -0,0 +1,31 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static com.checkmarx.util.results.NdjsonResultsWriterTest.scanResults;
+import static com.checkmarx.util.results.NdjsonResultsWriterTest.xIssue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonResultsWriterTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void writesTheSerialisedScanResults() throws IOException {
+        ScanResults scanResults = scanResults(xIssue("SQL_Injection", "a.java", 10, 20), xIssue("XSS", "b.js"));
+
+        assertEquals(mapper.valueToTree(scanResults), mapper.readTree(write(scanResults)));
+    }
+
+    private static String write(ScanResults scanResults) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonResultsWriter resultsWriter = new JsonResultsWriter(out)) {
+            resultsWriter.write(scanResults);
+        }
+        return out.toString();
+    }
+}
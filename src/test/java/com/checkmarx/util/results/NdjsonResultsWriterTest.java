@@ -0,0 +1,121 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class NdjsonResultsWriterTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void writesOneFindingPerLine() throws IOException {
+        StringWriter out = new StringWriter();
+
+        try (NdjsonResultsWriter resultsWriter = new NdjsonResultsWriter(out)) {
+            resultsWriter.write(scanResults(xIssue("SQL_Injection", "a.java", 10, 20), xIssue("XSS", "b.js", 5)));
+        }
+
+        List<JsonNode> lines = parse(out.toString());
+        assertEquals(2, lines.size());
+        assertEquals("42", lines.get(0).path("projectId").asText());
+        assertEquals("SP", lines.get(0).path("project").asText());
+        assertEquals("/CxServer/SP", lines.get(0).path("team").asText());
+        assertEquals("SQL_Injection", lines.get(0).path("vulnerability").asText());
+        assertEquals(Arrays.asList("10", "20"), fieldNames(lines.get(0).path("details")));
+        assertEquals("XSS", lines.get(1).path("vulnerability").asText());
+        assertFalse(lines.get(1).has("change"));
+    }
+
+    @Test
+    void writesChangesAndRecords() throws IOException {
+        StringWriter out = new StringWriter();
+
+        try (NdjsonResultsWriter resultsWriter = new NdjsonResultsWriter(out)) {
+            resultsWriter.writeHeader(scanResults());
+            resultsWriter.writeFinding(xIssue("SQL_Injection", "a.java", 10, 20), "new", Collections.singleton(20));
+            resultsWriter.writeRecord(Collections.singletonMap("added", 1));
+        }
+
+        List<JsonNode> lines = parse(out.toString());
+        assertEquals(2, lines.size());
+        assertEquals("change", lines.get(0).fieldNames().next());
+        assertEquals("new", lines.get(0).path("change").asText());
+        assertEquals(Collections.singletonList("20"), fieldNames(lines.get(0).path("details")));
+        assertEquals(1, lines.get(1).path("added").asInt());
+    }
+
+    @Test
+    void flushesOnlyWhenClosed() throws IOException {
+        int[] flushes = new int[1];
+        StringWriter out = new StringWriter() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+                super.flush();
+            }
+        };
+        NdjsonResultsWriter resultsWriter = new NdjsonResultsWriter(out);
+        resultsWriter.writeHeader(scanResults());
+        for (int i = 0; i < 100; i++) {
+            resultsWriter.writeFinding(xIssue("XSS", "b.js", i + 1));
+        }
+
+        assertEquals(0, flushes[0]);
+        resultsWriter.close();
+        assertEquals(100, parse(out.toString()).size());
+    }
+
+    static ScanResults scanResults(ScanResults.XIssue... xIssues) {
+        ScanResults scanResults = new ScanResults();
+        scanResults.setProjectId("42");
+        scanResults.setProject("SP");
+        scanResults.setTeam("/CxServer/SP");
+        scanResults.setXIssues(new ArrayList<>(Arrays.asList(xIssues)));
+        return scanResults;
+    }
+
+    static ScanResults.XIssue xIssue(String query, String filename, int... lines) {
+        Map<Integer, ScanResults.IssueDetails> details = new TreeMap<>();
+        for (int line : lines) {
+            details.put(line, new ScanResults.IssueDetails());
+        }
+        return ScanResults.XIssue.builder()
+                .vulnerability(query)
+                .severity("High")
+                .vulnerabilityStatus("To Verify")
+                .cwe("89")
+                .filename(filename)
+                .similarityId("-1234")
+                .link("https://cx/" + query)
+                .details(details)
+                .build();
+    }
+
+    private static List<JsonNode> parse(String text) throws IOException {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            lines.add(mapper.readTree(line));
+        }
+        assertEquals('\n', text.charAt(text.length() - 1));
+        return lines;
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,46 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResultsSummaryTest {
+    @Test
+    void countsEachResult() {
+        ResultsSummary summary = new ResultsSummary();
+        ScanResults scanResults = new ScanResults();
+        scanResults.setXIssues(Arrays.asList(
+                xIssue("SQL_Injection", "High", "To Verify", 10, 20, 30),
+                xIssue("SQL_Injection", "High", "Not Exploitable", 40),
+                xIssue("XSS", "Medium", "To Verify")));
+
+        summary.add("team", scanResults);
+
+        StringWriter table = new StringWriter();
+        summary.writeTable(new PrintWriter(table));
+        String[] rows = table.toString().split("\n");
+        assertEquals(3, rows.length);
+        assertEquals(Arrays.asList("team", "Not", "Exploitable", "1", "0", "1"), Arrays.asList(rows[1].trim().split("\\s+")));
+        assertEquals(Arrays.asList("team", "To", "Verify", "3", "1", "4"), Arrays.asList(rows[2].trim().split("\\s+")));
+    }
+
+    private static ScanResults.XIssue xIssue(String query, String severity, String state, int... lines) {
+        Map<Integer, ScanResults.IssueDetails> details = new HashMap<>();
+        for (int line : lines) {
+            details.put(line, new ScanResults.IssueDetails());
+        }
+        return ScanResults.XIssue.builder()
+                .vulnerability(query)
+                .severity(severity)
+                .vulnerabilityStatus(state)
+                .details(details)
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.checkmarx.util.results;
+
+import com.checkmarx.sdk.dto.ScanResults;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.checkmarx.util.results.NdjsonResultsWriterTest.scanResults;
+import static com.checkmarx.util.results.NdjsonResultsWriterTest.xIssue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SarifResultsWriterTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Set<String> LEVELS = new HashSet<>(Arrays.asList("none", "note", "warning", "error"));
+
+    @Test
+    void writesASarif210Log() throws IOException {
+        ScanResults.XIssue medium = xIssue("XSS", "b.js");
+        medium.setSeverity("Medium");
+
+        JsonNode log = write(scanResults(xIssue("SQL_Injection", "a.java", 10, 20), medium,
+                xIssue("SQL_Injection", "c.java", 7)));
+
+        checkShape(log);
+        JsonNode run = log.path("runs").get(0);
+        JsonNode rules = run.path("tool").path("driver").path("rules");
+        assertEquals(2, rules.size());
+        assertEquals("SQL_Injection", rules.get(0).path("id").asText());
+        assertEquals("89", rules.get(0).path("properties").path("cwe").asText());
+        assertEquals("XSS", rules.get(1).path("id").asText());
+
+        JsonNode results = run.path("results");
+        assertEquals(4, results.size());
+        JsonNode first = results.get(0);
+        assertEquals("SQL_Injection", first.path("ruleId").asText());
+        assertEquals("error", first.path("level").asText());
+        JsonNode location = first.path("locations").get(0).path("physicalLocation");
+        assertEquals("a.java", location.path("artifactLocation").path("uri").asText());
+        assertEquals(10, location.path("region").path("startLine").asInt());
+        assertEquals(20, results.get(1).path("locations").get(0).path("physicalLocation")
+                .path("region").path("startLine").asInt());
+        assertEquals("-1234", first.path("partialFingerprints").path("similarityId").asText());
+        // A finding without lines is reported once, without a region
+        assertEquals("warning", results.get(2).path("level").asText());
+        assertFalse(results.get(2).path("locations").get(0).path("physicalLocation").has("region"));
+        assertEquals("SP", run.path("properties").path("project").asText());
+    }
+
+    @Test
+    void writesARunWithoutResults() throws IOException {
+        JsonNode log = write(scanResults());
+
+        checkShape(log);
+        assertEquals(0, log.path("runs").get(0).path("results").size());
+        assertEquals(0, log.path("runs").get(0).path("tool").path("driver").path("rules").size());
+    }
+
+    private static JsonNode write(ScanResults scanResults) throws IOException {
+        StringWriter out = new StringWriter();
+        try (SarifResultsWriter resultsWriter = new SarifResultsWriter(out)) {
+            resultsWriter.write(scanResults);
+        }
+        return mapper.readTree(out.toString());
+    }
+
+    /**
+     * Check the properties that the SARIF 2.1.0 schema requires of a log,
+     * its runs and their results.
+     */
+    private static void checkShape(JsonNode log) {
+        assertEquals("2.1.0", log.path("version").asText());
+        assertTrue(log.path("$schema").asText().endsWith("sarif-2.1.0.json"));
+        assertTrue(log.path("runs").isArray());
+        assertEquals(1, log.path("runs").size());
+        JsonNode run = log.path("runs").get(0);
+        JsonNode driver = run.path("tool").path("driver");
+        assertTrue(driver.path("name").isTextual());
+        assertTrue(driver.path("rules").isArray());
+        Set<String> ruleIds = new HashSet<>();
+        for (JsonNode rule : driver.path("rules")) {
+            assertTrue(ruleIds.add(rule.path("id").asText()), "duplicate rule");
+        }
+        assertTrue(run.path("results").isArray());
+        for (JsonNode result : run.path("results")) {
+            assertTrue(result.path("message").path("text").isTextual());
+            assertTrue(ruleIds.contains(result.path("ruleId").asText()));
+            assertTrue(LEVELS.contains(result.path("level").asText()));
+            for (JsonNode location : result.path("locations")) {
+                JsonNode physicalLocation = location.path("physicalLocation");
+                assertTrue(physicalLocation.path("artifactLocation").path("uri").isTextual());
+                if (physicalLocation.has("region")) {
+                    assertTrue(physicalLocation.path("region").path("startLine").asInt() >= 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.checkmarx.util.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveConcurrencyLimitTest {
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final String METHOD = "getTeams";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000 * MILLIS);
+
+    @Test
+    void clampsTheInitialLimit() {
+        assertEquals(4, newLimit(8, 1, 4).getLimit());
+        assertEquals(2, newLimit(1, 2, 4).getLimit());
+        assertEquals(1, newLimit(0, 0, 0).getLimit());
+    }
+
+    @Test
+    void growsByAboutOneForEachLimitsWorthOfSaturatedCalls() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit(4, 1, 100);
+
+        // Each release at saturation adds 1/limit, so four calls add just under one
+        for (int i = 0; i < 4; i++) {
+            fill(limit);
+            release(limit, 1, 10, false);
+        }
+        assertEquals(4, limit.getLimit());
+        fill(limit);
+        release(limit, 1, 10, false);
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhenNotSaturated() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit(4, 1, 100);
+
+        for (int i = 0; i < 100; i++) {
+            limit.acquire();
+            limit.release(METHOD, 10 * MILLIS, false);
+        }
+
+        assertEquals(4, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void neverGrowsPastTheMaximum() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit(4, 1, 5);
+
+        for (int i = 0; i < 50; i++) {
+            fill(limit);
+            release(limit, limit.getLimit(), 10, false);
+        }
+
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void cutsByAQuarterOnFailure() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit(8, 1, 100);
+        clock.addAndGet(1000 * MILLIS);
+
+        limit.acquire();
+        limit.release(METHOD, 10 * MILLIS, true);
+
+        assertEquals(6, limit.getLimit());
+    }
+
+    @Test
+    void cutsOnceForABurstOfFailures() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit(8, 1, 100);
+        clock.addAndGet(1000 * MILLIS);
+
+        for (int i = 0; i < 4; i++) {
+            limit.acquire();
+        }
+        // The failures within one call duration of the first cut count once
+        for (int i = 0; i < 4; i++) {
+            limit.release(METHOD, 100 * MILLIS, true);
+            clock.addAndGet(10 * MILLIS);
+        }
+        assertEquals(6, limit.getLimit());
+
+        clock.addAndGet(100 * MILLIS);
+        limit.acquire();
+        limit.release(METHOD, 100 * MILLIS, true);
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    void cutsWhenACallIsMuchSlowerThanUsual() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit(8, 1, 100);
+        clock.addAndGet(1000 * MILLIS);
+        limit.acquire();
+        limit.release(METHOD, 10 * MILLIS, false);
+
+        // Within the tolerance (2x)
+        limit.acquire();
+        limit.release(METHOD, 19 * MILLIS, false);
+        assertEquals(8, limit.getLimit());
+
+        // Another method has its own baseline
+        limit.acquire();
+        limit.release("getProjects", 500 * MILLIS, false);
+        assertEquals(8, limit.getLimit());
+
+        limit.acquire();
+        limit.release(METHOD, 50 * MILLIS, false);
+        assertEquals(6, limit.getLimit());
+    }
+
+    @Test
+    void neverCutsBelowTheMinimum() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit(4, 3, 100);
+
+        for (int i = 0; i < 10; i++) {
+            clock.addAndGet(1000 * MILLIS);
+            limit.acquire();
+            limit.release(METHOD, 10 * MILLIS, true);
+        }
+
+        assertEquals(3, limit.getLimit());
+    }
+
+    @Test
+    void blocksAtTheLimitUntilACallCompletes() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit(1, 1, 1);
+        limit.acquire();
+
+        Thread waiter = new Thread(() -> {
+            try {
+                limit.acquire();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+        assertEquals(1, limit.getInFlight());
+
+        limit.release(METHOD, 10 * MILLIS, false);
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(Thread.State.TERMINATED, waiter.getState());
+        assertEquals(1, limit.getInFlight());
+    }
+
+    private AdaptiveConcurrencyLimit newLimit(int initial, int min, int max) {
+        return new AdaptiveConcurrencyLimit(initial, min, max, 2.0, clock::get);
+    }
+
+    private static void fill(AdaptiveConcurrencyLimit limit) throws InterruptedException {
+        while (limit.getInFlight() < limit.getLimit()) {
+            limit.acquire();
+        }
+    }
+
+    private void release(AdaptiveConcurrencyLimit limit, int calls, long millis, boolean failed) {
+        for (int i = 0; i < calls; i++) {
+            limit.release(METHOD, millis * MILLIS, failed);
+            clock.addAndGet(millis * MILLIS);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.checkmarx.util.throttle;
+
+import com.checkmarx.sdk.exception.CheckmarxException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SdkThrottleTest {
+    @Test
+    void ioErrorsAreTransient() {
+        assertTrue(SdkThrottle.isTransient(new SocketTimeoutException("Read timed out")));
+        assertTrue(SdkThrottle.isTransient(new ResourceAccessException("I/O error")));
+        assertTrue(SdkThrottle.isTransient(new IllegalStateException(new SocketTimeoutException("Read timed out"))));
+    }
+
+    @Test
+    void serverErrorsAndTooManyRequestsAreTransient() {
+        assertTrue(SdkThrottle.isTransient(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+        assertTrue(SdkThrottle.isTransient(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+        assertTrue(SdkThrottle.isTransient(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+    }
+
+    @Test
+    void otherFailuresAreNotTransient() {
+        assertFalse(SdkThrottle.isTransient(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+        assertFalse(SdkThrottle.isTransient(new HttpClientErrorException(HttpStatus.UNAUTHORIZED)));
+        assertFalse(SdkThrottle.isTransient(new CheckmarxException("Error obtaining teams")));
+        assertFalse(SdkThrottle.isTransient(new NullPointerException()));
+    }
+}
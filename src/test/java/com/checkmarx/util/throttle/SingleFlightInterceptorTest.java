@@ -0,0 +1,179 @@
+package com.checkmarx.util.throttle;
+
+import com.checkmarx.util.metrics.SdkMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class SingleFlightInterceptorTest {
+    private static final int CALLERS = 8;
+
+    /**
+     * The reads of the SDK service which the tests call
+     */
+    public interface Reads {
+        List<String> getTeams();
+
+        List<String> getProjects(String team);
+    }
+
+    private final SdkMetrics metrics = mock(SdkMetrics.class);
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void stopCallers() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentLookupsMakeOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Reads reads = proxy(new Reads() {
+            @Override
+            public List<String> getTeams() {
+                calls.incrementAndGet();
+                await(release);
+                return new ArrayList<>(Collections.singletonList("/CxServer"));
+            }
+
+            @Override
+            public List<String> getProjects(String team) {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(reads::getTeams));
+        }
+        // Every caller but the first waits for the first caller's call
+        verify(metrics, timeout(10000).times(CALLERS - 1)).recordCoalesced("getTeams");
+        release.countDown();
+
+        List<String> first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<List<String>> result : results) {
+            assertSame(first, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("Error obtaining teams");
+        Reads reads = proxy(new Reads() {
+            @Override
+            public List<String> getTeams() {
+                await(release);
+                throw failure;
+            }
+
+            @Override
+            public List<String> getProjects(String team) {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(reads::getTeams));
+        }
+        verify(metrics, timeout(10000).times(CALLERS - 1)).recordCoalesced("getTeams");
+        release.countDown();
+
+        for (Future<List<String>> result : results) {
+            ExecutionException ee = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertSame(failure, ee.getCause());
+        }
+    }
+
+    @Test
+    void otherReadsAreNotCoalesced() throws Exception {
+        // Each call waits until both calls have reached the service
+        CountDownLatch bothCalled = new CountDownLatch(2);
+        Reads reads = proxy(new Reads() {
+            @Override
+            public List<String> getTeams() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<String> getProjects(String team) {
+                bothCalled.countDown();
+                await(bothCalled);
+                return new ArrayList<>();
+            }
+        });
+
+        Future<List<String>> first = callers.submit(() -> reads.getProjects("/CxServer"));
+        Future<List<String>> second = callers.submit(() -> reads.getProjects("/CxServer"));
+
+        assertTrue(first.get(10, TimeUnit.SECONDS).isEmpty());
+        assertTrue(second.get(10, TimeUnit.SECONDS).isEmpty());
+        assertEquals(0, bothCalled.getCount());
+        verify(metrics, never()).recordCoalesced(any());
+    }
+
+    @Test
+    void completedLookupIsNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        Reads reads = proxy(new Reads() {
+            @Override
+            public List<String> getTeams() {
+                calls.incrementAndGet();
+                return new ArrayList<>();
+            }
+
+            @Override
+            public List<String> getProjects(String team) {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        reads.getTeams();
+        reads.getTeams();
+
+        assertEquals(2, calls.get());
+        verify(metrics, never()).recordCoalesced(any());
+    }
+
+    private Reads proxy(Reads target) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(Reads.class);
+        proxyFactory.addAdvice(new SingleFlightInterceptor(metrics));
+        return (Reads) proxyFactory.getProxy();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("timed out");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ie);
+        }
+    }
+}
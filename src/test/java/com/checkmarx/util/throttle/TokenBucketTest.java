@@ -0,0 +1,79 @@
+package com.checkmarx.util.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000 * MILLIS);
+    private final TokenBucket bucket = new TokenBucket(clock::get);
+
+    @Test
+    void noLimitNeverWaits() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, bucket.reserve());
+        }
+    }
+
+    @Test
+    void spacesCallsByTheInterval() {
+        bucket.setRate(10);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i * 100 * MILLIS, bucket.reserve());
+        }
+    }
+
+    @Test
+    void allowsASecondsBurstAfterAQuietPeriod() {
+        bucket.setRate(10);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        // Nine calls fit in the burst allowance and the tenth starts now
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.reserve() <= 0, "call " + i);
+        }
+        assertEquals(100 * MILLIS, bucket.reserve());
+        assertEquals(200 * MILLIS, bucket.reserve());
+    }
+
+    @Test
+    void slowRateHasNoBurst() {
+        bucket.setRate(0.5);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(2000 * MILLIS, bucket.reserve());
+    }
+
+    @Test
+    void elapsedTimeReducesTheWait() {
+        bucket.setRate(10);
+        bucket.reserve();
+        bucket.reserve();
+        clock.addAndGet(150 * MILLIS);
+
+        assertEquals(50 * MILLIS, bucket.reserve());
+    }
+
+    @Test
+    void changingTheRateStartsAfresh() {
+        bucket.setRate(1);
+        bucket.reserve();
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve());
+
+        bucket.setRate(100);
+        assertEquals(0, bucket.reserve());
+        assertEquals(10 * MILLIS, bucket.reserve());
+
+        bucket.setRate(0);
+        assertEquals(0, bucket.reserve());
+        assertEquals(0.0, bucket.getRate());
+    }
+}